@@ -24,6 +24,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -36,7 +37,15 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.FileUtils;
@@ -53,18 +62,28 @@ import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
 import org.apache.sling.feature.cpconverter.accesscontrol.DefaultAclManager;
 import org.apache.sling.feature.cpconverter.artifacts.ArtifactsDeployer;
 import org.apache.sling.feature.cpconverter.artifacts.FileArtifactWriter;
+import org.apache.sling.feature.cpconverter.cache.CachedConversion;
+import org.apache.sling.feature.cpconverter.cache.CachedConversion.CachedArtifact;
+import org.apache.sling.feature.cpconverter.cache.CachedConversion.Kind;
+import org.apache.sling.feature.cpconverter.cache.ConversionCache;
+import org.apache.sling.feature.cpconverter.cache.RecordingArtifactsDeployer;
+import org.apache.sling.feature.cpconverter.features.DefaultFeaturesManager;
 import org.apache.sling.feature.cpconverter.features.FeaturesManager;
 import org.apache.sling.feature.cpconverter.filtering.ResourceFilter;
 import org.apache.sling.feature.cpconverter.handlers.DefaultHandler;
-import org.apache.sling.feature.cpconverter.handlers.EntryHandler;
 import org.apache.sling.feature.cpconverter.handlers.EntryHandlersManager;
+import org.apache.sling.feature.cpconverter.handlers.EntryMatch;
 import org.apache.sling.feature.cpconverter.handlers.NodeTypesEntryHandler;
+import org.apache.sling.feature.cpconverter.handlers.VersionResolverContentPackageEntryHandler;
 import org.apache.sling.feature.cpconverter.handlers.slinginitialcontent.BundleSlingInitialContentExtractor;
 import org.apache.sling.feature.cpconverter.index.DefaultIndexManager;
 import org.apache.sling.feature.cpconverter.index.IndexManager;
 import org.apache.sling.feature.cpconverter.vltpkg.BaseVaultPackageScanner;
+import org.apache.sling.feature.cpconverter.vltpkg.FirstPassJournal;
+import org.apache.sling.feature.cpconverter.vltpkg.PackageCompression;
 import org.apache.sling.feature.cpconverter.vltpkg.PackagesEventsEmitter;
 import org.apache.sling.feature.cpconverter.vltpkg.RecollectorVaultPackageScanner;
+import org.apache.sling.feature.cpconverter.vltpkg.RecordingPackagesEventsEmitter;
 import org.apache.sling.feature.cpconverter.vltpkg.VaultPackageAssembler;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -77,6 +96,8 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
 
     private static final String DEFAULT_VERSION = "0.0.0";
 
+    private static final String CACHE_FORMAT_VERSION = "1";
+
     private final Map<PackageId, String> subContentPackages = new HashMap<>();
 
     private final List<VaultPackageAssembler> assemblers = new LinkedList<>();
@@ -97,11 +118,13 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
 
     private VaultPackageAssembler mainPackageAssembler;
 
+    private DefaultHandler defaultHandler;
+
     private final RecollectorVaultPackageScanner recollectorVaultPackageScanner;
 
     private final List<PackagesEventsEmitter> emitters = new ArrayList<>();
 
-    private final List<Runnable> deployTasks = new ArrayList<>();
+    private final List<DeployTask> deployTasks = new ArrayList<>();
 
     private final File tmpDirectory;
 
@@ -119,6 +142,30 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
 
     private RunModePolicy runModePolicy = RunModePolicy.DIRECT_ONLY;
 
+    private final SlingInitialContentPolicy slingInitialContentPolicy;
+
+    private int firstPassThreads = 1;
+
+    private int secondPassThreads = 1;
+
+    private ConverterFactory converterFactory;
+
+    private int deployThreads = 1;
+
+    private boolean singlePass = false;
+
+    private boolean streamingPackageAssembly = false;
+
+    private PackageCompression packageCompression = PackageCompression.DEFAULT;
+
+    private int subContentPackageMemoryThreshold = 0;
+
+    private ConversionCache conversionCache;
+
+    private final List<FirstPassJournal> firstPassJournals = new ArrayList<>();
+
+    private final List<ContentPackage2FeatureModelConverter> workers = new CopyOnWriteArrayList<>();
+
     public enum RunModePolicy {
         /**
          * Only path within containing package is considered for run mode evaluation 
@@ -175,9 +222,14 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
     }
     
     public ContentPackage2FeatureModelConverter(boolean strictValidation, @NotNull SlingInitialContentPolicy slingInitialContentPolicy, boolean disablePackageTypeRecalculation, @NotNull RunModePolicy runModePolicy) throws IOException {
+        this(strictValidation, slingInitialContentPolicy, disablePackageTypeRecalculation, runModePolicy, null);
+    }
+
+    private ContentPackage2FeatureModelConverter(boolean strictValidation, @NotNull SlingInitialContentPolicy slingInitialContentPolicy, boolean disablePackageTypeRecalculation, @NotNull RunModePolicy runModePolicy, @Nullable FirstPassJournal journal) throws IOException {
         super(strictValidation);
         this.disablePackageTypeRecalculation = disablePackageTypeRecalculation;
-        this.recollectorVaultPackageScanner = new RecollectorVaultPackageScanner(this, this.packageManager, strictValidation, subContentPackages, slingInitialContentPolicy);
+        this.slingInitialContentPolicy = slingInitialContentPolicy;
+        this.recollectorVaultPackageScanner = new RecollectorVaultPackageScanner(this, this.packageManager, strictValidation, subContentPackages, slingInitialContentPolicy, journal);
         this.tmpDirectory = Files.createTempDirectory("cp2fm-converter").toFile();
         this.runModePolicy = runModePolicy;
     }
@@ -238,6 +290,7 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
 
     public @NotNull ContentPackage2FeatureModelConverter setMainPackageAssembler(@NotNull VaultPackageAssembler assembler) {
         this.mainPackageAssembler = assembler;
+        this.defaultHandler = null;
         return this;
     }
 
@@ -258,6 +311,7 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
 
     public @NotNull ContentPackage2FeatureModelConverter setRemoveInstallHooks(boolean removeInstallHook) {
         this.removeInstallHooks = removeInstallHook;
+        this.defaultHandler = null;
         return this;
     }
     
@@ -269,7 +323,151 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
     public RunModePolicy getRunModePolicy() {
         return this.runModePolicy;
     }
+
+    /**
+     * Sets the number of threads used to read the input content-packages during the first pass; values greater
+     * than {@code 1} scan the input content-packages concurrently, the default {@code 1} scans them sequentially.
+     *
+     * @param firstPassThreads the number of threads
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setFirstPassThreads(int firstPassThreads) {
+        if (firstPassThreads < 1) {
+            throw new IllegalArgumentException("The number of first pass threads must be greater than 0, was " + firstPassThreads);
+        }
+        this.firstPassThreads = firstPassThreads;
+        return this;
+    }
     
+    /**
+     * Sets the number of threads used to convert the content-packages; values greater than {@code 1} convert
+     * content-packages which do not depend on each other concurrently, each one by a converter created by the
+     * {@link #setConverterFactory(ConverterFactory) converter factory}. The default {@code 1} converts them
+     * sequentially.
+     *
+     * Please note that content-packages converted concurrently only share what the first pass collected, so this
+     * requires an {@link AclManager} which {@link AclManager#supportsIsolatedConversion() supports isolated
+     * conversions}, e.g. a {@link DefaultAclManager} which does not enforce principal-based access control, since a
+     * service user mapping defined by a content-package would not be visible to the ones converted concurrently;
+     * {@link #convert(File...)} rejects other configurations.
+     *
+     * @param secondPassThreads the number of threads
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setSecondPassThreads(int secondPassThreads) {
+        if (secondPassThreads < 1) {
+            throw new IllegalArgumentException("The number of second pass threads must be greater than 0, was " + secondPassThreads);
+        }
+        this.secondPassThreads = secondPassThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to create and deploy the converted content-packages, once all of them have
+     * been converted; the default {@code 1} deploys them sequentially.
+     *
+     * @param deployThreads the number of threads
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setDeployThreads(int deployThreads) {
+        if (deployThreads < 1) {
+            throw new IllegalArgumentException("The number of deploy threads must be greater than 0, was " + deployThreads);
+        }
+        this.deployThreads = deployThreads;
+        return this;
+    }
+
+    /**
+     * Enables the single-pass mode: the first pass only collects the facts which can not be deferred, i.e. the
+     * content-packages dependencies, the sub content-packages versions and the users/groups, without extracting
+     * the Sling-Initial-Content of the embedded bundles; the content-packages generated out of them are resolved
+     * the first time they get converted, so bundles are read once only.
+     *
+     * Please note that a content-package generated out of the Sling-Initial-Content of a bundle is then kept even if
+     * a newer version of the same content-package gets generated later on.
+     *
+     * @param singlePass {@code true} to enable the single-pass mode, {@code false} otherwise
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setSinglePass(boolean singlePass) {
+        this.singlePass = singlePass;
+        return this;
+    }
+
+    public boolean isSinglePass() {
+        return singlePass;
+    }
+
+    /**
+     * Enables the streaming storage of the converted content-packages entries, see
+     * {@link VaultPackageAssembler#setStreaming(boolean)}.
+     *
+     * @param streamingPackageAssembly {@code true} to stream the entries, {@code false} otherwise
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setStreamingPackageAssembly(boolean streamingPackageAssembly) {
+        this.streamingPackageAssembly = streamingPackageAssembly;
+        return this;
+    }
+
+    /**
+     * Sets how the entries of the converted content-packages get compressed, see {@link PackageCompression}.
+     *
+     * @param packageCompression the package compression
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setPackageCompression(@NotNull PackageCompression packageCompression) {
+        this.packageCompression = packageCompression;
+        return this;
+    }
+
+    /**
+     * Sets the size, in bytes, up to which the sub content-packages are read in memory rather than being extracted
+     * to a temporary file, both compressed and once their entries are inflated; the default {@code 0} always extracts
+     * them.
+     *
+     * @param subContentPackageMemoryThreshold the size threshold
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setSubContentPackageMemoryThreshold(int subContentPackageMemoryThreshold) {
+        if (subContentPackageMemoryThreshold < 0) {
+            throw new IllegalArgumentException("The sub content-packages memory threshold must not be negative, was " + subContentPackageMemoryThreshold);
+        }
+        this.subContentPackageMemoryThreshold = subContentPackageMemoryThreshold;
+        return this;
+    }
+
+    public int getSubContentPackageMemoryThreshold() {
+        return subContentPackageMemoryThreshold;
+    }
+
+    public @NotNull ContentPackage2FeatureModelConverter setConverterFactory(@Nullable ConverterFactory converterFactory) {
+        this.converterFactory = converterFactory;
+        return this;
+    }
+
+    /**
+     * Sets the cache where the content-packages conversions are stored and looked up, across runs: a content-package
+     * is not converted again as long as its content, the converters configuration and what the first pass collected
+     * do not change. Cached content-packages are converted by converters created by the
+     * {@link #setConverterFactory(ConverterFactory) converter factory}, as done by
+     * {@link #setSecondPassThreads(int) concurrent conversions}, with the same restrictions on the {@link AclManager};
+     * both the converter and the factory ones have to be configured with a {@link FeaturesManager} able to
+     * {@link FeaturesManager#serialize(File) serialize} and {@link FeaturesManager#importSerialized(File) import}
+     * Feature Models, like the {@link DefaultFeaturesManager}.
+     *
+     * @param conversionCache the conversion cache, {@code null} to disable caching
+     * @return this converter
+     */
+    public @NotNull ContentPackage2FeatureModelConverter setConversionCache(@Nullable ConversionCache conversionCache) {
+        this.conversionCache = conversionCache;
+        return this;
+    }
+
+    public @Nullable ConversionCache getConversionCache() {
+        return conversionCache;
+    }
+
     public @Nullable IndexManager getIndexManager() {
         return indexManager;
     }
@@ -293,6 +491,15 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
 
     public void convert(@NotNull File... contentPackages) throws IOException, ConverterException {
         requireNonNull(contentPackages, "Null content-package(s) can not be converted.");
+        if (isParallelSecondPass() && converterFactory == null) {
+            throw new IllegalStateException("Converting content-packages with " + secondPassThreads + " threads requires a converter factory");
+        }
+        if (conversionCache != null && converterFactory == null) {
+            throw new IllegalStateException("Caching conversions requires a converter factory");
+        }
+        if (isIsolatedSecondPass() && !aclManager.supportsIsolatedConversion()) {
+            throw new IllegalStateException("Converting content-packages in isolation is not supported by " + aclManager.getClass().getName());
+        }
         secondPass(firstPass(contentPackages));
     }
 
@@ -300,27 +507,28 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
         Map<PackageId, VaultPackage> idFileMap = new LinkedHashMap<>();
         Map<PackageId, VaultPackage> idPackageMapping = new ConcurrentHashMap<>();
 
-        for (File contentPackage : contentPackages) {
-            requireNonNull(contentPackage, "Null content-package can not be converted.");
+        firstPassJournals.clear();
 
-            if (!contentPackage.exists() || !contentPackage.isFile()) {
-                throw new IllegalArgumentException("File " + contentPackage + " does not exist or it is a directory");
-            }
+        if ((firstPassThreads > 1 && contentPackages.length > 1) || isIsolatedSecondPass()) {
+            parallelFirstPass(idPackageMapping, contentPackages);
+        } else {
+            for (File contentPackage : contentPackages) {
+                checkContentPackage(contentPackage);
 
-            logger.info("Reading content-package '{}'...", contentPackage);
+                logger.info("Reading content-package '{}'...", contentPackage);
 
-            VaultPackage pack = open(contentPackage);
-            idPackageMapping.put(pack.getId(), pack);
+                VaultPackage pack = open(contentPackage);
+                idPackageMapping.put(pack.getId(), pack);
 
-            // analyze sub-content packages in order to filter out
-            // possible outdated conflicting packages
-            recollectorVaultPackageScanner.traverse(pack, null);
+                // analyze sub-content packages in order to filter out
+                // possible outdated conflicting packages
+                recollectorVaultPackageScanner.traverse(pack, null);
 
-            logger.info("content-package '{}' successfully read!", contentPackage);
+                logger.info("content-package '{}' successfully read!", contentPackage);
 
-            aclManager.reset();
-            bundleSlingInitialContentExtractor.reset();
-            
+                aclManager.reset();
+                bundleSlingInitialContentExtractor.reset();
+            }
         }
 
         logger.info("Ordering input content-package(s) {}...", idPackageMapping.keySet());
@@ -334,57 +542,386 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
         return idFileMap.values();
     }
 
+    private void parallelFirstPass(@NotNull Map<PackageId, VaultPackage> idPackageMapping, @NotNull File... contentPackages) throws IOException, ConverterException {
+        for (File contentPackage : contentPackages) {
+            checkContentPackage(contentPackage);
+        }
+
+        logger.info("Reading {} content-package(s) using {} threads...", contentPackages.length, firstPassThreads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(firstPassThreads, contentPackages.length)));
+        try {
+            List<Future<RecollectedPackage>> recollectedPackages = new ArrayList<>();
+            for (File contentPackage : contentPackages) {
+                recollectedPackages.add(executor.submit(() -> recollect(contentPackage)));
+            }
+
+            // merge in input order, so that the result is the same as the sequential scan
+            for (Future<RecollectedPackage> future : recollectedPackages) {
+                RecollectedPackage recollectedPackage = await(future);
+                idPackageMapping.put(recollectedPackage.vaultPackage.getId(), recollectedPackage.vaultPackage);
+                recollectedPackage.journal.replay(subContentPackages, aclManager);
+                firstPassJournals.add(recollectedPackage.journal);
+
+                aclManager.reset();
+                bundleSlingInitialContentExtractor.reset();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private @NotNull RecollectedPackage recollect(@NotNull File contentPackage) throws IOException, ConverterException {
+        FirstPassJournal journal = new FirstPassJournal();
+        // isolated converter, to not share its temporary directory and collected state with other threads
+        try (ContentPackage2FeatureModelConverter worker = new ContentPackage2FeatureModelConverter(strictValidation, slingInitialContentPolicy, disablePackageTypeRecalculation, runModePolicy, journal)) {
+            worker.featuresManager = featuresManager;
+            worker.aclManager = journal.getAclManager();
+            worker.singlePass = singlePass;
+
+            logger.info("Reading content-package '{}'...", contentPackage);
+
+            VaultPackage pack = worker.open(contentPackage);
+
+            // analyze sub-content packages in order to filter out
+            // possible outdated conflicting packages
+            worker.recollectorVaultPackageScanner.traverse(pack, null);
+
+            logger.info("content-package '{}' successfully read!", contentPackage);
+
+            return new RecollectedPackage(pack, journal);
+        }
+    }
+
+    private static <T> T await(@NotNull Future<T> future) throws IOException, ConverterException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConverterException("Interrupted while waiting for the conversion tasks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof ConverterException) {
+                throw (ConverterException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ConverterException(cause.getMessage(), cause);
+        }
+    }
+
+    private static void checkContentPackage(@Nullable File contentPackage) {
+        requireNonNull(contentPackage, "Null content-package can not be converted.");
+
+        if (!contentPackage.exists() || !contentPackage.isFile()) {
+            throw new IllegalArgumentException("File " + contentPackage + " does not exist or it is a directory");
+        }
+    }
+
     private void secondPass(@NotNull Collection<VaultPackage> orderedContentPackages) throws IOException, ConverterException {
         emitters.stream().forEach(PackagesEventsEmitter::start);
 
-        for (VaultPackage vaultPackage : orderedContentPackages) {
-            try {
-                emitters.stream().forEach(e -> e.startPackage(vaultPackage));
-                setMainPackageAssembler(VaultPackageAssembler.create(this.getTempDirectory(), vaultPackage, removeInstallHooks, disablePackageTypeRecalculation));
-                assemblers.add(getMainPackageAssembler());
+        try {
+            if ((isParallelSecondPass() && orderedContentPackages.size() > 1) || conversionCache != null) {
+                parallelSecondPass(new ArrayList<>(orderedContentPackages));
+            } else {
+                for (VaultPackage vaultPackage : orderedContentPackages) {
+                    convertPackage(vaultPackage, true);
+                }
+            }
+
+            deployPackages();
+        } finally {
+            mutableContentsIds.clear();
+            for (ContentPackage2FeatureModelConverter worker : workers) {
+                worker.close();
+            }
+            workers.clear();
+        }
 
-                ArtifactId mvnPackageId = toArtifactId(vaultPackage.getId(), vaultPackage.getFile());
+        emitters.stream().forEach(PackagesEventsEmitter::end);
+    }
+
+    private void convertPackage(@NotNull VaultPackage vaultPackage, boolean serialize) throws IOException, ConverterException {
+        try {
+            emitters.stream().forEach(e -> e.startPackage(vaultPackage));
+            setMainPackageAssembler(VaultPackageAssembler.create(this.getTempDirectory(), vaultPackage, removeInstallHooks, disablePackageTypeRecalculation));
+            getMainPackageAssembler().setStreaming(streamingPackageAssembly);
+            getMainPackageAssembler().setCompression(packageCompression);
+            assemblers.add(getMainPackageAssembler());
 
-                featuresManager.init(mvnPackageId);
+            ArtifactId mvnPackageId = toArtifactId(vaultPackage.getId(), vaultPackage.getFile());
 
-                logger.info("Converting content-package '{}'...", vaultPackage.getId());
+            featuresManager.init(mvnPackageId);
 
-                traverse(vaultPackage, null);
+            logger.info("Converting content-package '{}'...", vaultPackage.getId());
 
-                // retrieve the resulting zip-content-package and deploy it to the local mvn bundles dir.
-                try (VaultPackage result = processContentPackageArchive(getMainPackageAssembler(), null)) {
+            traverse(vaultPackage, null);
 
-                    // finally serialize the Feature Model(s) file(s)
+            // retrieve the resulting zip-content-package and deploy it to the local mvn bundles dir.
+            try (VaultPackage result = processContentPackageArchive(getMainPackageAssembler(), null)) {
 
-                    aclManager.addRepoinitExtension(assemblers, featuresManager);
-                    bundleSlingInitialContentExtractor.addRepoInitExtension(assemblers, featuresManager);
-                    indexManager.addRepoinitExtension(featuresManager);
-                    
-                    logger.info("Conversion complete!");
+                // finally serialize the Feature Model(s) file(s)
 
+                aclManager.addRepoinitExtension(assemblers, featuresManager);
+                bundleSlingInitialContentExtractor.addRepoInitExtension(assemblers, featuresManager);
+                indexManager.addRepoinitExtension(featuresManager);
+
+                logger.info("Conversion complete!");
+
+                if (serialize) {
                     featuresManager.serialize();
+                }
+
+                emitters.stream().forEach(e -> e.endPackage(vaultPackage.getId(), result));
+            }
+        } finally {
+
+            aclManager.reset();
+            bundleSlingInitialContentExtractor.reset();
+            indexManager.reset();
+            assemblers.clear();
+
+            try {
+                vaultPackage.close();
+            } catch (Exception e) {
+                // close quietly
+            }
+        }
+    }
+
+    private boolean isParallelSecondPass() {
+        return secondPassThreads > 1;
+    }
+
+    private boolean isIsolatedSecondPass() {
+        return isParallelSecondPass() || conversionCache != null;
+    }
 
-                    emitters.stream().forEach(e -> e.endPackage(vaultPackage.getId(), result));
+    /**
+     * Converts every content-package as soon as the content-packages it depends on have been converted, each one by
+     * an isolated converter, then merges the results in the given order.
+     */
+    private void parallelSecondPass(@NotNull List<VaultPackage> orderedContentPackages) throws IOException, ConverterException {
+        // compute the dependencies before any content-package gets converted, and closed
+        List<List<Integer>> dependencies = new ArrayList<>();
+        for (int i = 0; i < orderedContentPackages.size(); i++) {
+            List<Integer> current = new ArrayList<>();
+            for (Dependency dependency : orderedContentPackages.get(i).getDependencies()) {
+                for (int j = 0; j < i; j++) {
+                    if (dependency.matches(orderedContentPackages.get(j).getId())) {
+                        current.add(j);
+                    }
                 }
-            } finally {
-                
-                aclManager.reset();
-                bundleSlingInitialContentExtractor.reset();
-                indexManager.reset();
-                assemblers.clear();
+            }
+            dependencies.add(current);
+        }
+
+        logger.info("Converting {} content-package(s) using {} threads...", orderedContentPackages.size(), secondPassThreads);
+
+        String firstPassDigest = conversionCache != null ? digestFirstPass() : null;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(secondPassThreads, orderedContentPackages.size()));
+        try {
+            List<CompletableFuture<ConvertedPackage>> convertedPackages = new ArrayList<>();
+            for (int i = 0; i < orderedContentPackages.size(); i++) {
+                VaultPackage vaultPackage = orderedContentPackages.get(i);
+                CompletableFuture<?>[] required = dependencies.get(i).stream()
+                        .map(convertedPackages::get)
+                        .toArray(CompletableFuture<?>[]::new);
+                convertedPackages.add(CompletableFuture.allOf(required).thenApplyAsync(ignored -> {
+                    try {
+                        return convertIsolated(vaultPackage, firstPassDigest);
+                    } catch (IOException | ConverterException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            // merge in the given order, so that the result does not depend on the scheduling
+            for (CompletableFuture<ConvertedPackage> future : convertedPackages) {
+                ConvertedPackage convertedPackage = await(future);
+                if (convertedPackage.conversion != null) {
+                    mergeCached(convertedPackage);
+                    continue;
+                }
+                ContentPackage2FeatureModelConverter worker = convertedPackage.converter;
+
+                worker.featuresManager.serialize();
+                convertedPackage.events.replay(emitters);
+
+                mutableContentsIds.putAll(worker.mutableContentsIds);
+                deployTasks.addAll(worker.deployTasks);
+                worker.mutableContentsIds.clear();
+                worker.deployTasks.clear();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
+    private @NotNull ConvertedPackage convertIsolated(@NotNull VaultPackage vaultPackage, @Nullable String firstPassDigest) throws IOException, ConverterException {
+        if (converterFactory == null) {
+            throw new IllegalStateException("Converting content-packages in parallel requires a converter factory");
+        }
+
+        String cacheKey = null;
+        File packageFile = vaultPackage.getFile();
+        if (firstPassDigest != null) {
+            cacheKey = computeCacheKey(firstPassDigest, packageFile);
+            CachedConversion cached = getCached(cacheKey, packageFile);
+            if (cached != null) {
+                logger.info("Content-package '{}' conversion found in the cache", vaultPackage.getId());
                 try {
                     vaultPackage.close();
                 } catch (Exception e) {
                     // close quietly
                 }
+                return new ConvertedPackage(cacheKey, cached, true);
             }
         }
 
-        deployPackages();
-        mutableContentsIds.clear();
+        ContentPackage2FeatureModelConverter worker = converterFactory.newConverter();
+        workers.add(worker);
 
-        emitters.stream().forEach(PackagesEventsEmitter::end);
+        worker.subContentPackages.putAll(subContentPackages);
+        worker.singlePass = singlePass;
+        if (!worker.aclManager.supportsIsolatedConversion()) {
+            throw new IllegalStateException("Converting content-packages in isolation is not supported by " + worker.aclManager.getClass().getName());
+        }
+        // restore what the first pass collected
+        for (FirstPassJournal journal : firstPassJournals) {
+            journal.replayAclOperations(worker.aclManager);
+            worker.aclManager.reset();
+        }
+
+        RecordingPackagesEventsEmitter events = new RecordingPackagesEventsEmitter();
+        worker.setEmitter(events);
+
+        if (cacheKey == null) {
+            worker.convertPackage(vaultPackage, false);
+            return new ConvertedPackage(worker, events);
+        }
+
+        File staging = conversionCache.newEntry();
+        try {
+            CachedConversion conversion = new CachedConversion(staging);
+            worker.setBundlesDeployer(new RecordingArtifactsDeployer(requireNonNull(worker.getArtifactsDeployer()), conversion, Kind.ARTIFACT));
+            if (worker.unreferencedArtifactsDeployer != null) {
+                worker.setUnreferencedArtifactsDeployer(new RecordingArtifactsDeployer(worker.unreferencedArtifactsDeployer, conversion, Kind.UNREFERENCED_ARTIFACT));
+            }
+
+            worker.convertPackage(vaultPackage, false);
+
+            worker.featuresManager.serialize(conversion.getFeaturesDirectory());
+            // the dependencies of the converted content-packages get updated once deployed
+            for (DeployTask task : worker.deployTasks) {
+                File contentPackage = ((AssemblerDeployTask) task).assembler.createPackage();
+                conversion.addArtifact(Kind.CONTENT_PACKAGE, new FileArtifactWriter(contentPackage), task.runMode, task.mvnPackageId);
+            }
+            conversion.addMutableContentsIds(worker.mutableContentsIds);
+            conversion.setEvents(events);
+            conversion.save();
+            worker.deployTasks.clear();
+            worker.mutableContentsIds.clear();
+
+            File entry = conversionCache.commit(cacheKey, staging);
+            CachedConversion committed = CachedConversion.load(entry, packageFile);
+            if (committed == null) {
+                throw new IOException("Conversion cache entry " + entry + " is not complete");
+            }
+            return new ConvertedPackage(cacheKey, committed, false);
+        } catch (IOException | ConverterException | RuntimeException e) {
+            conversionCache.discard(staging);
+            throw e;
+        }
+    }
+
+    private @Nullable CachedConversion getCached(@NotNull String cacheKey, @NotNull File packageFile) {
+        File entry = conversionCache.get(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            CachedConversion cached = CachedConversion.load(entry, packageFile);
+            if (cached == null) {
+                conversionCache.release(cacheKey);
+            }
+            return cached;
+        } catch (IOException e) {
+            logger.warn("Ignoring conversion cache entry {}: {}", entry, e.getMessage());
+            conversionCache.release(cacheKey);
+            return null;
+        }
+    }
+
+    /**
+     * Merges a cached conversion the same way the results of an isolated converter are merged; the artifacts are
+     * deployed again only if they have not been deployed by an isolated converter already.
+     */
+    private void mergeCached(@NotNull ConvertedPackage convertedPackage) throws IOException {
+        CachedConversion conversion = requireNonNull(convertedPackage.conversion);
+        try {
+            featuresManager.importSerialized(conversion.getFeaturesDirectory());
+            conversion.getEvents().replay(emitters);
+            mutableContentsIds.putAll(conversion.getMutableContentsIds());
+
+            for (CachedArtifact artifact : conversion.getArtifacts()) {
+                File file = conversion.getFile(artifact);
+                switch (artifact.getKind()) {
+                    case CONTENT_PACKAGE:
+                        // the cache entry may be evicted before being deployed
+                        File contentPackage = new File(tmpDirectory, deployTasks.size() + "-" + file.getName());
+                        Files.copy(file.toPath(), contentPackage.toPath());
+                        deployTasks.add(new CachedDeployTask(contentPackage, packageCompression, requireNonNull(getArtifactsDeployer()), artifact.getId(), artifact.getRunMode()));
+                        break;
+                    case ARTIFACT:
+                        if (convertedPackage.cacheHit) {
+                            requireNonNull(getArtifactsDeployer()).deploy(new FileArtifactWriter(file), artifact.getRunMode(), artifact.getId());
+                        }
+                        break;
+                    case UNREFERENCED_ARTIFACT:
+                        if (convertedPackage.cacheHit) {
+                            requireNonNull(unreferencedArtifactsDeployer, "Cached unreferenced artifacts require an unreferenced artifacts deployer")
+                                    .deploy(new FileArtifactWriter(file), artifact.getRunMode(), artifact.getId());
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown cached artifact kind " + artifact.getKind());
+                }
+            }
+        } finally {
+            conversionCache.release(convertedPackage.cacheKey);
+        }
+    }
+
+    private @NotNull String digestFirstPass() {
+        MessageDigest digest = ConversionCache.newDigest();
+        Map<String, String> sortedSubContentPackages = new TreeMap<>();
+        subContentPackages.forEach((id, path) -> sortedSubContentPackages.put(id.toString(), path));
+        sortedSubContentPackages.forEach((id, path) -> ConversionCache.update(digest, id + '=' + path));
+        for (FirstPassJournal journal : firstPassJournals) {
+            journal.update(digest);
+        }
+        return ConversionCache.toKey(digest);
+    }
+
+    private @NotNull String computeCacheKey(@NotNull String firstPassDigest, @NotNull File packageFile) throws IOException {
+        MessageDigest digest = ConversionCache.newDigest();
+        ConversionCache.update(digest, CACHE_FORMAT_VERSION);
+        ConversionCache.update(digest, String.valueOf(getClass().getPackage().getImplementationVersion()));
+        ConversionCache.update(digest, conversionCache.getConfigurationFingerprint());
+        ConversionCache.update(digest, "singlePass=" + singlePass);
+        ConversionCache.update(digest, firstPassDigest);
+        ConversionCache.update(digest, packageFile);
+        return ConversionCache.toKey(digest);
     }
 
     private static void orderDependencies(@NotNull Map<PackageId, VaultPackage> idFileMap,
@@ -412,7 +949,7 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
         requireNonNull(path, "Impossible to process a null vault package");
         requireNonNull(vaultPackage, "Impossible to process a null vault package");
 
-        if (!isSubContentPackageIncluded(path)) {
+        if (!isSubContentPackageIncluded(path) && !isDeferredSubContentPackageIncluded(path, vaultPackage)) {
             logger.info("Sub content-package {} is filtered out, so it won't be processed.", path);
             return;
         }
@@ -420,6 +957,8 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
         emitters.stream().forEach(e -> e.startSubPackage(path, vaultPackage));
 
         VaultPackageAssembler clonedPackage = VaultPackageAssembler.create(this.getTempDirectory(), vaultPackage, removeInstallHooks,disablePackageTypeRecalculation);
+        clonedPackage.setStreaming(streamingPackageAssembly);
+        clonedPackage.setCompression(packageCompression);
 
         // Please note: THIS IS A HACK to meet the new requirement without drastically change the original design
         // temporary swap the main handler to collect stuff
@@ -497,39 +1036,85 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
     }
 
     public void deployPackages() {
+        mutableContentsIds.values().forEach(
+                value -> value.removeIf(dep -> mutableContentsIds.keySet().stream().anyMatch(dep::matches)));
+
+        if (deployThreads > 1 && deployTasks.size() > 1) {
+            parallelDeploy();
+        } else {
+            deployTasks.forEach(task -> task.deploy(mutableContentsIds));
+        }
+        deployTasks.clear();
+    }
+
+    /**
+     * Runs all the deploy tasks, which are independent from each other once the dependencies have been resolved,
+     * and reports them in their original order; the first failure is rethrown once all tasks are done, along with
+     * the other ones as suppressed exceptions.
+     */
+    private void parallelDeploy() {
+        logger.info("Deploying {} content-package(s) using {} threads...", deployTasks.size(), deployThreads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(deployThreads, deployTasks.size()));
         try {
-            mutableContentsIds.values().forEach(
-                    value -> value.removeIf(dep -> mutableContentsIds.keySet().stream().anyMatch(dep::matches)));
+            List<Future<?>> deployments = new ArrayList<>();
+            for (DeployTask task : deployTasks) {
+                deployments.add(executor.submit(() -> task.deploy(mutableContentsIds)));
+            }
+
+            RuntimeException failure = null;
+            for (int i = 0; i < deployments.size(); i++) {
+                ArtifactId mvnPackageId = deployTasks.get(i).mvnPackageId;
+                try {
+                    deployments.get(i).get();
+                    logger.debug("Content-package '{}' deployed", mvnPackageId);
+                } catch (ExecutionException e) {
+                    logger.error("Content-package '{}' could not be deployed: {}", mvnPackageId, e.getCause().getMessage());
+                    RuntimeException current = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new RuntimeException(e.getCause());
+                    if (failure == null) {
+                        failure = current;
+                    } else {
+                        failure.addSuppressed(current);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while deploying the content-packages", e);
+                }
+            }
 
-            deployTasks.forEach(Runnable::run);
-        } catch (RuntimeException ex) {
-            if (ex.getCause() instanceof Exception) {
-                throw ex;
+            if (failure != null) {
+                throw failure;
             }
-            throw ex;
+        } finally {
+            executor.shutdownNow();
         }
-        deployTasks.clear();
     }
 
     private void deploy(@NotNull VaultPackageAssembler assembler, @NotNull ArtifactId mvnPackageId, @Nullable String runMode) {
         Objects.requireNonNull(getFeaturesManager()).addArtifact(runMode, mvnPackageId);
         ArtifactsDeployer deployer = Objects.requireNonNull(getArtifactsDeployer());
-        deployTasks.add(() -> {
-            assembler.updateDependencies(mutableContentsIds);
-            try {
-                File finalContentPackageArchive = assembler.createPackage();
-                // deploy the new content-package to the local mvn bundles dir
-                deployer.deploy(new FileArtifactWriter(finalContentPackageArchive), runMode, mvnPackageId);
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
-            }
-        });
+        deployTasks.add(new AssemblerDeployTask(assembler, deployer, mvnPackageId, runMode));
     }
 
     public boolean isSubContentPackageIncluded(@NotNull String path) {
         return subContentPackages.containsValue(path);
     }
 
+    private boolean isDeferredSubContentPackageIncluded(@NotNull String path, @NotNull VaultPackage vaultPackage) {
+        // in single-pass mode, the content-packages generated out of the Sling-Initial-Content are not known yet
+        return singlePass && VersionResolverContentPackageEntryHandler.resolve(subContentPackages, vaultPackage.getId(), path);
+    }
+
+    private @NotNull DefaultHandler getDefaultHandler() {
+        // shared by all the entries of the main package, until it gets replaced
+        if (defaultHandler == null) {
+            defaultHandler = new DefaultHandler(getMainPackageAssembler(), removeInstallHooks);
+        }
+        return defaultHandler;
+    }
+
     private void process(@NotNull String entryPath, @NotNull Archive archive, @Nullable Entry entry, String runMode) throws IOException, ConverterException {
         if (resourceFilter != null && resourceFilter.isFilteredOut(entryPath)) {
             throw new ConverterException("Path '"
@@ -539,9 +1124,9 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
                     + " not allowed by user configuration, please check configured filtering patterns");
         }
 
-        EntryHandler entryHandler = handlersManager.getEntryHandlerByEntryPath(entryPath);
-        if (entryHandler == null) {
-            entryHandler = new DefaultHandler(getMainPackageAssembler(), removeInstallHooks);
+        EntryMatch match = handlersManager.getEntryMatchByEntryPath(entryPath);
+        if (match == null) {
+            match = new EntryMatch(getDefaultHandler(), entryPath);
         }
 
         if (entry == null) {
@@ -550,7 +1135,7 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
                 throw new IllegalArgumentException("Archive '" + archive.getMetaInf().getPackageProperties().getId() + "' does not contain entry with path '" + entryPath + "'");
             }
         }
-        entryHandler.handle(entryPath, archive, entry, this, runMode);
+        match.handle(archive, entry, this, runMode);
         if (!getMainPackageAssembler().recordEntryPath(entryPath)) {
             logger.warn("Duplicate entry path {}", entryPath);
         }
@@ -614,4 +1199,112 @@ public class ContentPackage2FeatureModelConverter extends BaseVaultPackageScanne
     public List<VaultPackageAssembler> getAssemblers() {
         return new ArrayList<>(assemblers);
     }
+
+    private abstract static class DeployTask {
+
+        private final ArtifactsDeployer deployer;
+
+        private final ArtifactId mvnPackageId;
+
+        private final String runMode;
+
+        DeployTask(@NotNull ArtifactsDeployer deployer, @NotNull ArtifactId mvnPackageId, @Nullable String runMode) {
+            this.deployer = deployer;
+            this.mvnPackageId = mvnPackageId;
+            this.runMode = runMode;
+        }
+
+        void deploy(@NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) {
+            try {
+                File finalContentPackageArchive = createPackage(mutableContentsIds);
+                // deploy the new content-package to the local mvn bundles dir
+                deployer.deploy(new FileArtifactWriter(finalContentPackageArchive), runMode, mvnPackageId);
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        abstract @NotNull File createPackage(@NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) throws IOException;
+
+    }
+
+    private static final class AssemblerDeployTask extends DeployTask {
+
+        private final VaultPackageAssembler assembler;
+
+        AssemblerDeployTask(@NotNull VaultPackageAssembler assembler, @NotNull ArtifactsDeployer deployer, @NotNull ArtifactId mvnPackageId, @Nullable String runMode) {
+            super(deployer, mvnPackageId, runMode);
+            this.assembler = assembler;
+        }
+
+        @Override
+        @NotNull File createPackage(@NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) throws IOException {
+            assembler.updateDependencies(mutableContentsIds);
+            return assembler.createPackage();
+        }
+
+    }
+
+    private static final class CachedDeployTask extends DeployTask {
+
+        private final File contentPackage;
+
+        private final PackageCompression compression;
+
+        CachedDeployTask(@NotNull File contentPackage, @NotNull PackageCompression compression, @NotNull ArtifactsDeployer deployer, @NotNull ArtifactId mvnPackageId, @Nullable String runMode) {
+            super(deployer, mvnPackageId, runMode);
+            this.contentPackage = contentPackage;
+            this.compression = compression;
+        }
+
+        @Override
+        @NotNull File createPackage(@NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) throws IOException {
+            VaultPackageAssembler.updateDependencies(contentPackage, mutableContentsIds, compression, contentPackage);
+            return contentPackage;
+        }
+
+    }
+
+    private static final class ConvertedPackage {
+
+        private final ContentPackage2FeatureModelConverter converter;
+
+        private final RecordingPackagesEventsEmitter events;
+
+        private final String cacheKey;
+
+        private final CachedConversion conversion;
+
+        private final boolean cacheHit;
+
+        ConvertedPackage(@NotNull ContentPackage2FeatureModelConverter converter, @NotNull RecordingPackagesEventsEmitter events) {
+            this.converter = converter;
+            this.events = events;
+            this.cacheKey = null;
+            this.conversion = null;
+            this.cacheHit = false;
+        }
+
+        ConvertedPackage(@NotNull String cacheKey, @NotNull CachedConversion conversion, boolean cacheHit) {
+            this.converter = null;
+            this.events = null;
+            this.cacheKey = cacheKey;
+            this.conversion = conversion;
+            this.cacheHit = cacheHit;
+        }
+
+    }
+
+    private static final class RecollectedPackage {
+
+        private final VaultPackage vaultPackage;
+
+        private final FirstPassJournal journal;
+
+        RecollectedPackage(@NotNull VaultPackage vaultPackage, @NotNull FirstPassJournal journal) {
+            this.vaultPackage = vaultPackage;
+            this.journal = journal;
+        }
+
+    }
 }
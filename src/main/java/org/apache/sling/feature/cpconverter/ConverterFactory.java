@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter;
+
+import java.io.IOException;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the converters used to convert independent content-packages concurrently.
+ *
+ * Every created converter must be configured like the converter it works for, but with its own
+ * {@link org.apache.sling.feature.cpconverter.features.FeaturesManager},
+ * {@link org.apache.sling.feature.cpconverter.accesscontrol.AclManager},
+ * {@link org.apache.sling.feature.cpconverter.index.IndexManager} and entry handlers instances; it must not have any
+ * {@link org.apache.sling.feature.cpconverter.vltpkg.PackagesEventsEmitter}, since
+ * package events are forwarded to the emitters of the main converter.
+ */
+@FunctionalInterface
+public interface ConverterFactory {
+
+    @NotNull ContentPackage2FeatureModelConverter newConverter() throws IOException, ConverterException;
+
+}
@@ -53,4 +53,15 @@ public interface AclManager {
 
     void reset();
 
+    /**
+     * Tells whether what this manager generates for a content-package only depends on what has been collected during
+     * the first pass, and not on what the content-packages converted before it added, so that content-packages can
+     * be converted in isolation, i.e. concurrently or restored from a conversion cache.
+     *
+     * @return {@code true} if content-packages can be converted in isolation, {@code false} otherwise
+     */
+    default boolean supportsIsolatedConversion() {
+        return false;
+    }
+
 }
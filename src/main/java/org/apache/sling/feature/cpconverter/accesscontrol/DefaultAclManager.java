@@ -26,12 +26,13 @@ import org.apache.sling.feature.cpconverter.ConverterException;
 import org.apache.sling.feature.cpconverter.features.FeaturesManager;
 import org.apache.sling.feature.cpconverter.repoinit.NoOpVisitor;
 import org.apache.sling.feature.cpconverter.repoinit.OperationProcessor;
+import org.apache.sling.feature.cpconverter.repoinit.RepoInitOperationsCache;
 import org.apache.sling.feature.cpconverter.repoinit.createpath.CreatePathSegmentProcessor;
 import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
+import org.apache.sling.feature.cpconverter.shared.PathTrie;
 import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.apache.sling.feature.cpconverter.vltpkg.VaultPackageAssembler;
 import org.apache.sling.repoinit.parser.RepoInitParsingException;
-import org.apache.sling.repoinit.parser.impl.RepoInitParserService;
 import org.apache.sling.repoinit.parser.operations.CreateServiceUser;
 import org.apache.sling.repoinit.parser.operations.DisableServiceUser;
 import org.apache.sling.repoinit.parser.operations.Operation;
@@ -49,7 +50,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.jcr.NamespaceException;
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -96,6 +96,8 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
     
     private RepoPath userRootPath;
 
+    private RepoInitOperationsCache repoInitOperationsCache = new RepoInitOperationsCache();
+
     /**
      * Same as {@code DefaultAclManager(null, "system", false)}
      * @see ConverterConstants#SYSTEM_USER_REL_PATH_DEFAULT
@@ -131,6 +133,18 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
         this.alwaysForceSystemUserPath = alwaysForceSystemUserPath;
     }
 
+    public @NotNull RepoInitOperationsCache getRepoInitOperationsCache() {
+        return repoInitOperationsCache;
+    }
+
+    /**
+     * @param repoInitOperationsCache the cache of parsed repoinit scripts, usually the one of the features manager
+     * this ACL manager is used by
+     */
+    public void setRepoInitOperationsCache(@NotNull RepoInitOperationsCache repoInitOperationsCache) {
+        this.repoInitOperationsCache = repoInitOperationsCache;
+    }
+
     @Override
     public boolean addUser(@NotNull User user) {
         return users.add(user);
@@ -187,7 +201,11 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
                 formatter.format("%s", op.asRepoInitString());
             }
 
-            addUsersAndGroups(formatter);
+            // indexed once, instead of scanning all the entries for each user, group and path
+            PathTrie aclPaths = new PathTrie();
+            acls.values().forEach(entries -> entries.forEach(acl -> aclPaths.add(acl.getRepositoryPath())));
+
+            addUsersAndGroups(formatter, aclPaths);
             addPaths(formatter, packageAssemblers);
 
             // add the acls
@@ -213,7 +231,7 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
 
         if ("seed".equalsIgnoreCase(runMode)) {
             try {
-                List<Operation> ops = new RepoInitParserService().parse(new StringReader(repoInitText));
+                List<Operation> ops = repoInitOperationsCache.parse(source, repoInitText);
                 for (Operation op : ops) {
                     op.accept(new NoOpVisitor() {
                         @Override
@@ -229,7 +247,7 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
         }
         try (Formatter formatter = new Formatter()) {
             if (enforcePrincipalBased() || alwaysForceSystemUserPath) {
-                List<Operation> ops = new RepoInitParserService().parse(new StringReader(repoInitText));
+                List<Operation> ops = repoInitOperationsCache.parse(source, repoInitText);
                 processor.apply(ops, formatter,this);
             } else {
                 formatter.format("%s", repoInitText);
@@ -244,7 +262,7 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
         }
     }
 
-    private void addUsersAndGroups(@NotNull Formatter formatter) throws ConverterException {
+    private void addUsersAndGroups(@NotNull Formatter formatter, @NotNull PathTrie aclPaths) throws ConverterException {
         for (SystemUser systemUser : systemUsers) {
             // make sure all system users are created first
             boolean withForcedPath = (alwaysForceSystemUserPath || enforcePrincipalBased(systemUser));
@@ -256,7 +274,7 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
                 formatter.format("%s", disable.asRepoInitString());
             }
 
-            if (aclIsBelow(systemUser.getPath())) {
+            if (aclPaths.containsDescendants(systemUser.getPath())) {
                 throw new ConverterException("Detected policy on subpath of system-user: " + systemUser);
             }
         }
@@ -264,12 +282,12 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
         // abort the conversion if an access control entry takes effect at or below a user/group which is not
         // created by repo-init statements generated here.
         for(final Group g : groups) {
-            if (aclStartsWith(g.getPath())) {
+            if (aclPaths.containsDescendantsOrSelf(g.getPath())) {
                 throw new ConverterException("Detected policy on group: " + g);
             }
         }
         for(final User u : users) {
-            if (aclStartsWith(u.getPath())) {
+            if (aclPaths.containsDescendantsOrSelf(u.getPath())) {
                 throw new ConverterException("Detected policy on user: " + u);
             }
         }
@@ -299,11 +317,16 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
                 .map(AccessControlEntry::getRepositoryPath)
                 .collect(Collectors.toSet());
 
+        PathTrie pathsIndex = new PathTrie();
+        paths.forEach(pathsIndex::add);
+        PathTrie userPaths = new PathTrie();
+        Stream.of(systemUsers, users, groups).flatMap(Collection::stream).forEach(user -> userPaths.add(user.getPath()));
+
         paths.stream()
-                .filter(path -> paths.stream().noneMatch(other -> !other.equals(path) && other.startsWith(path)))
+                // only the leaves need to be created, the paths above them get created along
+                .filter(path -> !pathsIndex.containsDescendants(path))
                 .filter(((Predicate<RepoPath>)RepoPath::isRepositoryPath).negate())
-                .filter(path -> Stream.of(systemUsers, users, groups).flatMap(Collection::stream)
-                        .noneMatch(user -> user.getPath().startsWith(path)))
+                .filter(path -> !userPaths.containsDescendantsOrSelf(path))
                 .map(path -> getCreatePath(path, packageAssemblers))
                 .filter(Objects::nonNull)
                 .forEach(
@@ -311,14 +334,6 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
                 );
     }
 
-    private boolean aclStartsWith(@NotNull RepoPath path) {
-        return acls.values().stream().flatMap(List::stream).anyMatch(acl -> acl.getRepositoryPath().startsWith(path));
-    }
-
-    private boolean aclIsBelow(@NotNull RepoPath path) {
-        return acls.values().stream().flatMap(List::stream).anyMatch(acl -> acl.getRepositoryPath().startsWith(path) && !acl.getRepositoryPath().equals(path));
-    }
-
     private void addStatements(@NotNull SystemUser systemUser,
                                @NotNull List<AccessControlEntry> authorizations,
                                @NotNull Formatter formatter) {
@@ -350,6 +365,15 @@ public class DefaultAclManager implements AclManager, EnforceInfo {
         return lines;
     }
 
+    /**
+     * Service user mappings are only looked up when enforcing principal-based access control, and the ones defined by
+     * a content-package affect the ones converted after it.
+     */
+    @Override
+    public boolean supportsIsolatedConversion() {
+        return !enforcePrincipalBased();
+    }
+
     private boolean enforcePrincipalBased() {
         return enforcePrincipalBasedSupportedPath != null;
     }
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jackrabbit.vault.packaging.Dependency;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.cpconverter.artifacts.ArtifactWriter;
+import org.apache.sling.feature.cpconverter.vltpkg.RecordingPackagesEventsEmitter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonString;
+import jakarta.json.JsonWriter;
+
+/**
+ * The outcome of a content-package conversion, as stored in a {@link ConversionCache} entry: the Feature Model(s)
+ * file(s), the deployed artifacts, the converted content-packages, the mutable content-packages and the package
+ * events.
+ */
+public final class CachedConversion {
+
+    private static final String INDEX_FILE = "conversion.json";
+
+    private static final String FEATURES_DIRECTORY = "features";
+
+    private static final String ARTIFACTS_DIRECTORY = "artifacts";
+
+    public enum Kind {
+
+        /** An artifact deployed by the bundles deployer. */
+        ARTIFACT,
+
+        /** An artifact deployed by the unreferenced artifacts deployer. */
+        UNREFERENCED_ARTIFACT,
+
+        /** A converted content-package, deployed once its dependencies have been updated. */
+        CONTENT_PACKAGE
+
+    }
+
+    private final File directory;
+
+    private final List<CachedArtifact> artifacts = new ArrayList<>();
+
+    private final Map<PackageId, Set<Dependency>> mutableContentsIds = new LinkedHashMap<>();
+
+    private RecordingPackagesEventsEmitter events = new RecordingPackagesEventsEmitter();
+
+    /**
+     * @param directory the (staging) directory of the cache entry
+     */
+    public CachedConversion(@NotNull File directory) {
+        this.directory = directory;
+    }
+
+    public @NotNull File getFeaturesDirectory() {
+        return new File(directory, FEATURES_DIRECTORY);
+    }
+
+    public synchronized @NotNull List<CachedArtifact> getArtifacts() {
+        return Collections.unmodifiableList(new ArrayList<>(artifacts));
+    }
+
+    public @NotNull Map<PackageId, Set<Dependency>> getMutableContentsIds() {
+        return Collections.unmodifiableMap(mutableContentsIds);
+    }
+
+    public @NotNull RecordingPackagesEventsEmitter getEvents() {
+        return events;
+    }
+
+    /**
+     * Stores a copy of an artifact.
+     *
+     * @param kind how the artifact has to be deployed
+     * @param artifactWriter writes the artifact content
+     * @param runMode the optional run mode
+     * @param id the artifact id
+     * @return the stored copy
+     * @throws IOException if the artifact can not be stored
+     */
+    public synchronized @NotNull File addArtifact(@NotNull Kind kind, @NotNull ArtifactWriter artifactWriter, @Nullable String runMode, @NotNull ArtifactId id) throws IOException {
+        File artifactsDirectory = new File(directory, ARTIFACTS_DIRECTORY);
+        Files.createDirectories(artifactsDirectory.toPath());
+        String fileName = artifacts.size() + "-" + id.toMvnName();
+        try (OutputStream output = new FileOutputStream(new File(artifactsDirectory, fileName))) {
+            artifactWriter.write(output);
+        }
+        CachedArtifact artifact = new CachedArtifact(kind, runMode, id, ARTIFACTS_DIRECTORY + '/' + fileName);
+        artifacts.add(artifact);
+        return getFile(artifact);
+    }
+
+    public void addMutableContentsIds(@NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) {
+        this.mutableContentsIds.putAll(mutableContentsIds);
+    }
+
+    public void setEvents(@NotNull RecordingPackagesEventsEmitter events) {
+        this.events = events;
+    }
+
+    /**
+     * @param artifact an artifact of this conversion
+     * @return the stored copy of the artifact
+     */
+    public @NotNull File getFile(@NotNull CachedArtifact artifact) {
+        return new File(directory, artifact.path);
+    }
+
+    /**
+     * Writes the index of this conversion, to be done once everything else has been stored.
+     *
+     * @throws IOException if the index can not be written
+     */
+    public synchronized void save() throws IOException {
+        JsonArrayBuilder storedArtifacts = Json.createArrayBuilder();
+        for (CachedArtifact artifact : artifacts) {
+            JsonObjectBuilder storedArtifact = Json.createObjectBuilder()
+                    .add("kind", artifact.kind.name())
+                    .add("id", artifact.id.toMvnId())
+                    .add("path", artifact.path);
+            if (artifact.runMode != null) {
+                storedArtifact.add("runMode", artifact.runMode);
+            }
+            storedArtifacts.add(storedArtifact);
+        }
+
+        JsonObjectBuilder storedMutableContentsIds = Json.createObjectBuilder();
+        for (Map.Entry<PackageId, Set<Dependency>> mutableContentsId : mutableContentsIds.entrySet()) {
+            JsonArrayBuilder dependencies = Json.createArrayBuilder();
+            for (Dependency dependency : mutableContentsId.getValue()) {
+                dependencies.add(dependency.toString());
+            }
+            storedMutableContentsIds.add(mutableContentsId.getKey().toString(), dependencies);
+        }
+
+        JsonObject index = Json.createObjectBuilder()
+                .add("artifacts", storedArtifacts)
+                .add("mutableContentsIds", storedMutableContentsIds)
+                .add("events", events.toJson())
+                .build();
+        try (OutputStream output = new FileOutputStream(new File(directory, INDEX_FILE));
+             JsonWriter writer = Json.createWriter(output)) {
+            writer.writeObject(index);
+        }
+    }
+
+    /**
+     * Reads a conversion previously stored by {@link #save()}.
+     *
+     * @param directory the cache entry directory
+     * @param startedPackageFile the current file of the converted content-package
+     * @return the stored conversion, {@code null} if the entry is not complete
+     * @throws IOException if the index can not be read
+     */
+    public static @Nullable CachedConversion load(@NotNull File directory, @Nullable File startedPackageFile) throws IOException {
+        File indexFile = new File(directory, INDEX_FILE);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+
+        JsonObject index;
+        try (InputStream input = new FileInputStream(indexFile);
+             JsonReader reader = Json.createReader(input)) {
+            index = reader.readObject();
+        } catch (JsonException e) {
+            throw new IOException("Invalid conversion cache entry " + directory, e);
+        }
+
+        CachedConversion conversion = new CachedConversion(directory);
+        for (JsonObject storedArtifact : index.getJsonArray("artifacts").getValuesAs(JsonObject.class)) {
+            conversion.artifacts.add(new CachedArtifact(Kind.valueOf(storedArtifact.getString("kind")),
+                    storedArtifact.getString("runMode", null),
+                    ArtifactId.parse(storedArtifact.getString("id")),
+                    storedArtifact.getString("path")));
+        }
+        JsonObject storedMutableContentsIds = index.getJsonObject("mutableContentsIds");
+        for (String packageId : storedMutableContentsIds.keySet()) {
+            Set<Dependency> dependencies = new LinkedHashSet<>();
+            for (JsonString dependency : storedMutableContentsIds.getJsonArray(packageId).getValuesAs(JsonString.class)) {
+                dependencies.add(Dependency.fromString(dependency.getString()));
+            }
+            conversion.mutableContentsIds.put(PackageId.fromString(packageId), dependencies);
+        }
+        conversion.events = RecordingPackagesEventsEmitter.fromJson(index.getJsonArray("events"), startedPackageFile);
+        return conversion;
+    }
+
+    public static final class CachedArtifact {
+
+        private final Kind kind;
+
+        private final String runMode;
+
+        private final ArtifactId id;
+
+        private final String path;
+
+        CachedArtifact(@NotNull Kind kind, @Nullable String runMode, @NotNull ArtifactId id, @NotNull String path) {
+            this.kind = kind;
+            this.runMode = runMode;
+            this.id = id;
+            this.path = path;
+        }
+
+        public @NotNull Kind getKind() {
+            return kind;
+        }
+
+        public @Nullable String getRunMode() {
+            return runMode;
+        }
+
+        public @NotNull ArtifactId getId() {
+            return id;
+        }
+
+    }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A directory of conversion results, each one stored in a sub-directory named after the SHA-256 key of what
+ * determined it, i.e. the input content-package, the converter configuration and what the first pass collected.
+ *
+ * Entries are staged in a temporary directory and committed by renaming it, so that concurrent runs never see a
+ * partially written entry; once the cache exceeds its maximum size, the least recently used entries get evicted,
+ * except the ones still in use by this instance.
+ */
+public final class ConversionCache {
+
+    private static final String STAGING_PREFIX = ".staging-";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Set<String> pinnedKeys = new HashSet<>();
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final String configurationFingerprint;
+
+    /**
+     * @param directory the cache directory, created if it does not exist
+     * @param maxSize the size, in bytes, above which the least recently used entries get evicted
+     * @param configurationFingerprint describes the configuration of the converters, so that results obtained with
+     * different configurations are not mixed up
+     * @throws IOException if the cache directory can not be created
+     */
+    public ConversionCache(@NotNull File directory, long maxSize, @NotNull String configurationFingerprint) throws IOException {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The conversion cache size must be greater than 0, was " + maxSize);
+        }
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.configurationFingerprint = configurationFingerprint;
+    }
+
+    public @NotNull File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public @NotNull String getConfigurationFingerprint() {
+        return configurationFingerprint;
+    }
+
+    /**
+     * Looks up an entry, which is then considered as recently used and kept until {@link #release(String)}.
+     *
+     * @param key the entry key
+     * @return the entry directory, {@code null} if there is no entry for the given key
+     */
+    public synchronized @Nullable File get(@NotNull String key) {
+        File entry = new File(directory, key);
+        if (!entry.isDirectory()) {
+            return null;
+        }
+        touch(entry);
+        pinnedKeys.add(key);
+        return entry;
+    }
+
+    /**
+     * @return a new staging directory, where the content of an entry has to be written before committing it
+     * @throws IOException if the staging directory can not be created
+     */
+    public @NotNull File newEntry() throws IOException {
+        return Files.createTempDirectory(directory.toPath(), STAGING_PREFIX).toFile();
+    }
+
+    /**
+     * Commits a staged entry, which is kept until {@link #release(String)}, then evicts the least recently used
+     * entries if the cache exceeds its maximum size.
+     *
+     * @param key the entry key
+     * @param staging the staging directory created by {@link #newEntry()}
+     * @return the entry directory
+     * @throws IOException if the entry can not be committed
+     */
+    public synchronized @NotNull File commit(@NotNull String key, @NotNull File staging) throws IOException {
+        File entry = new File(directory, key);
+        try {
+            Files.move(staging.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(staging.toPath(), entry.toPath());
+        } catch (IOException e) {
+            if (!entry.isDirectory()) {
+                throw e;
+            }
+            // committed by a concurrent run in the meanwhile, with the same content
+            discard(staging);
+        }
+        touch(entry);
+        pinnedKeys.add(key);
+        evict();
+        return entry;
+    }
+
+    /**
+     * Lets an entry returned by {@link #get(String)} or {@link #commit(String, File)} be evicted again.
+     *
+     * @param key the entry key
+     */
+    public synchronized void release(@NotNull String key) {
+        pinnedKeys.remove(key);
+    }
+
+    /**
+     * Deletes a staging directory which is not going to be committed.
+     *
+     * @param staging the staging directory created by {@link #newEntry()}
+     */
+    public void discard(@NotNull File staging) {
+        FileUtils.deleteQuietly(staging);
+    }
+
+    /**
+     * @return the size, in bytes, of all the committed entries
+     */
+    public synchronized long getSize() {
+        long size = 0;
+        for (File entry : listEntries()) {
+            size += FileUtils.sizeOfDirectory(entry);
+        }
+        return size;
+    }
+
+    private void evict() {
+        List<File> entries = listEntries();
+        long size = 0;
+        for (File entry : entries) {
+            size += FileUtils.sizeOfDirectory(entry);
+        }
+
+        entries.sort(Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            if (size <= maxSize) {
+                return;
+            }
+            if (pinnedKeys.contains(entry.getName())) {
+                continue;
+            }
+            long entrySize = FileUtils.sizeOfDirectory(entry);
+            logger.info("Evicting conversion cache entry {} ({} bytes)", entry.getName(), entrySize);
+            FileUtils.deleteQuietly(entry);
+            size -= entrySize;
+        }
+    }
+
+    private @NotNull List<File> listEntries() {
+        List<File> entries = new ArrayList<>();
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory() && !child.getName().startsWith(STAGING_PREFIX)) {
+                    entries.add(child);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void touch(@NotNull File entry) {
+        if (!entry.setLastModified(System.currentTimeMillis())) {
+            logger.debug("Unable to update the last access time of conversion cache entry {}", entry.getName());
+        }
+    }
+
+    /**
+     * @return a new SHA-256 digest, to compute the entry keys
+     */
+    public static @NotNull MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Updates the given digest with a string, followed by a separator.
+     *
+     * @param digest the digest to update
+     * @param value the string to digest
+     */
+    public static void update(@NotNull MessageDigest digest, @NotNull String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    /**
+     * Updates the given digest with the content of a file.
+     *
+     * @param digest the digest to update
+     * @param file the file to digest
+     * @throws IOException if the file can not be read
+     */
+    public static void update(@NotNull MessageDigest digest, @NotNull File file) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream input = new FileInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * @param digest the digest of an entry content
+     * @return the entry key, as hexadecimal string
+     */
+    public static @NotNull String toKey(@NotNull MessageDigest digest) {
+        byte[] bytes = digest.digest();
+        char[] key = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            key[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            key[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(key);
+    }
+
+}
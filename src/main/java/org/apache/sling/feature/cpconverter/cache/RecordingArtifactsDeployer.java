@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.cpconverter.artifacts.ArtifactWriter;
+import org.apache.sling.feature.cpconverter.artifacts.ArtifactsDeployer;
+import org.apache.sling.feature.cpconverter.artifacts.FileArtifactWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores a copy of every deployed artifact in a {@link CachedConversion}, before deploying it.
+ */
+public final class RecordingArtifactsDeployer implements ArtifactsDeployer {
+
+    private final ArtifactsDeployer delegate;
+
+    private final CachedConversion conversion;
+
+    private final CachedConversion.Kind kind;
+
+    public RecordingArtifactsDeployer(@NotNull ArtifactsDeployer delegate, @NotNull CachedConversion conversion, @NotNull CachedConversion.Kind kind) {
+        this.delegate = delegate;
+        this.conversion = conversion;
+        this.kind = kind;
+    }
+
+    @Override
+    public @NotNull String deploy(@NotNull ArtifactWriter artifactWriter, @Nullable String runmode, @NotNull ArtifactId id) throws IOException {
+        File artifact = conversion.addArtifact(kind, artifactWriter, runmode, id);
+        return delegate.deploy(new FileArtifactWriter(artifact), runmode, id);
+    }
+
+}
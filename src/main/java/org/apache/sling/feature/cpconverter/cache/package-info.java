@@ -14,30 +14,7 @@
  * License for the specific language governing permissions and limitations under
  * the License.
  */
-package org.apache.sling.feature.cpconverter.repoinit.createpath;
-
-import org.apache.sling.feature.cpconverter.shared.AbstractJcrNodeParser;
-import org.xml.sax.Attributes;
-
-public final class PrimaryTypeParser extends AbstractJcrNodeParser<String> {
-
-    public PrimaryTypeParser() {
-        super();
-    }
-
-    @Override
-    protected void onJcrRootNode(String uri, String localName, String qName, Attributes attributes, String primaryType) {
-        detectedPrimaryType = primaryType;
-    }
-
-    @Override
-    protected void onJcrRootElement(String uri, String localName, String qName, Attributes attributes) {
-        // not needed
-    }
-
-    @Override
-    protected String getParsingResult() {
-        return detectedPrimaryType;
-    }
-
-}
+/**
+ * Persistent cache of the content-packages conversions, shared across runs.
+ */
+package org.apache.sling.feature.cpconverter.cache;
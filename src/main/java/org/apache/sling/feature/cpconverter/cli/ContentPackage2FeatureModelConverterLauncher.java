@@ -17,15 +17,24 @@
 package org.apache.sling.feature.cpconverter.cli;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
 
 import org.apache.sling.feature.Feature;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
@@ -35,15 +44,19 @@ import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter
 import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
 import org.apache.sling.feature.cpconverter.accesscontrol.DefaultAclManager;
 import org.apache.sling.feature.cpconverter.artifacts.LocalMavenRepositoryArtifactsDeployer;
+import org.apache.sling.feature.cpconverter.cache.ConversionCache;
 import org.apache.sling.feature.cpconverter.features.DefaultFeaturesManager;
-import org.apache.sling.feature.cpconverter.filtering.RegexBasedResourceFilter;
+import org.apache.sling.feature.cpconverter.filtering.CompiledRegexResourceFilter;
 import org.apache.sling.feature.cpconverter.handlers.DefaultEntryHandlersManager;
 import org.apache.sling.feature.cpconverter.handlers.slinginitialcontent.BundleSlingInitialContentExtractor;
 import org.apache.sling.feature.cpconverter.index.DefaultIndexManager;
 import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
 import org.apache.sling.feature.cpconverter.vltpkg.DefaultPackagesEventsEmitter;
+import org.apache.sling.feature.cpconverter.vltpkg.PackageCompression;
 import org.apache.sling.feature.io.json.FeatureJSONReader;
+import org.apache.sling.feature.io.json.FeatureJSONWriter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +73,15 @@ import picocli.CommandLine.Parameters;
 )
 public final class ContentPackage2FeatureModelConverterLauncher implements Runnable {
 
+    private static final long DEFAULT_CONVERSION_CACHE_SIZE = 10L * 1024 * 1024 * 1024;
+
+    // options which do not change the conversion outcome, hence not invalidating the cached conversions
+    private static final Set<String> NOT_FINGERPRINTED_OPTIONS = new HashSet<>(Arrays.asList(
+            "helpRequested", "debug", "quiet", "printVersion",
+            "artifactsOutputDirectory", "featureModelsOutputDirectory", "unreferencedArtifactsOutputDirectory",
+            "firstPassThreads", "secondPassThreads", "deployThreads", "compressionThreads", "subPackageMemoryThreshold",
+            "conversionCacheDirectory", "conversionCacheSize"));
+
     @Option(names = { "-h", "--help" }, usageHelp = true, description = "Display the usage message.")
     private boolean helpRequested;
 
@@ -150,6 +172,39 @@ public final class ContentPackage2FeatureModelConverterLauncher implements Runna
     @Option(names = { "--run-mode-policy" }, description = "Determines how to determine the final run mode of an artifact. DIRECT_ONLY uses only the run modes of the containing path while PREPEND_INHERITED inherits the run modes affecting the parent package. Valid values: ${COMPLETION-CANDIDATES}.", required = false, showDefaultValue = Visibility.ALWAYS)
     private RunModePolicy runModePolicy = RunModePolicy.DIRECT_ONLY;
 
+    @Option(names = { "--first-pass-threads" }, description = "The number of threads used to read the input content-packages before converting them.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private int firstPassThreads = 1;
+
+    @Option(names = { "--second-pass-threads" }, description = "The number of threads used to convert the content-packages which do not depend on each other.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private int secondPassThreads = 1;
+
+    @Option(names = { "--deploy-threads" }, description = "The number of threads used to create and deploy the converted content-packages.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private int deployThreads = 1;
+
+    @Option(names = { "--single-pass" }, description = "Reads the bundles Sling-Initial-Content only once, while converting the content-packages.", required = false)
+    private boolean singlePass = false;
+
+    @Option(names = { "--streaming-package-assembly" }, description = "Writes the converted content-packages entries straight into zip files, rather than into temporary directories.", required = false)
+    private boolean streamingPackageAssembly = false;
+
+    @Option(names = { "--compression-level" }, description = "The deflate level, from 0 to 9, of the converted content-packages entries; -1 uses the default level.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    @Option(names = { "--stored-extensions" }, description = "The file extensions of the already compressed entries, e.g. jpg,png,zip, which are stored rather than deflated in the converted content-packages.", required = false, split = ",")
+    private List<String> storedExtensions = new ArrayList<>();
+
+    @Option(names = { "--compression-threads" }, description = "The number of threads used to compress the entries of each converted content-package.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private int compressionThreads = 1;
+
+    @Option(names = { "--sub-package-memory-threshold" }, description = "The size, in bytes, up to which sub content-packages are read in memory rather than being extracted to temporary files, both compressed and uncompressed; 0 always extracts them.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private int subPackageMemoryThreshold = 0;
+
+    @Option(names = { "--conversion-cache-directory" }, description = "The directory where the content-packages conversions are cached across runs; conversions are not cached if not specified.", required = false)
+    private File conversionCacheDirectory;
+
+    @Option(names = { "--conversion-cache-size" }, description = "The size, in bytes, above which the least recently used cached conversions get evicted.", required = false, showDefaultValue = Visibility.ALWAYS)
+    private long conversionCacheSize = DEFAULT_CONVERSION_CACHE_SIZE;
+
     @Override
     public void run() {
         if (quiet) {
@@ -182,32 +237,16 @@ public final class ContentPackage2FeatureModelConverterLauncher implements Runna
 
         try {
             try {
-                AclManager aclManager = new DefaultAclManager(enforcePrincipalBasedSupportedPath, systemUserRelPath, alwaysForceSystemUserPath);
-
-                DefaultFeaturesManager featuresManager = new DefaultFeaturesManager(mergeConfigurations,
-                                                                bundlesStartOrder,
-                                                                featureModelsOutputDirectory,
-                                                                artifactIdOverride,
-                                                                fmPrefix,
-                                                                properties,
-                                                                aclManager);
-
-                featuresManager.setEnforceServiceMappingByPrincipal(enforceServiceMappingByPrincipal);
-
+                final Feature seed;
                 if (seedFeature != null) {
                     try(Reader reader = new InputStreamReader(new URL(seedFeature).openStream(), "UTF-8")) {
-                        Feature seed = FeatureJSONReader.read(reader, seedFeature);
+                        seed = FeatureJSONReader.read(reader, seedFeature);
                         System.out.println(seed);
-                        featuresManager.addSeed(seed);
                     }
+                } else {
+                    seed = null;
                 }
 
-                if (apiRegions != null)
-                    featuresManager.setAPIRegions(apiRegions);
-
-                if (exportsToRegion != null)
-                    featuresManager.setExportToAPIRegion(exportsToRegion);
-
                 Map<String, String> entryHandlerConfigsMap = new HashMap<>();
                 if (entryHandlerConfigs != null) {
                     for (String config : entryHandlerConfigs) {
@@ -218,30 +257,14 @@ public final class ContentPackage2FeatureModelConverterLauncher implements Runna
                     }
                 }
 
-                try (ContentPackage2FeatureModelConverter converter = new ContentPackage2FeatureModelConverter(strictValidation, slingInitialContentPolicy, disablePackageTypeRecalculation, runModePolicy)) {
-                    BundleSlingInitialContentExtractor bundleSlingInitialContentExtractor = new BundleSlingInitialContentExtractor();
-                    converter.setFeaturesManager(featuresManager)
-                             .setBundlesDeployer(new LocalMavenRepositoryArtifactsDeployer(artifactsOutputDirectory))
-                             .setBundleSlingInitialContentExtractor(bundleSlingInitialContentExtractor)
-                             .setEntryHandlersManager(new DefaultEntryHandlersManager(entryHandlerConfigsMap, !disableInstallerPolicy, slingInitialContentPolicy, bundleSlingInitialContentExtractor, systemUserRelPath))
-                             .setAclManager(aclManager)
-                             .setIndexManager(new DefaultIndexManager())
-                             .setEmitter(DefaultPackagesEventsEmitter.open(featureModelsOutputDirectory))
-                             .setFailOnMixedPackages(failOnMixedPackages)
-                             .setContentTypePackagePolicy(contentTypePackagePolicy);
-                    if (unreferencedArtifactsOutputDirectory != null) {
-                        converter.setUnreferencedArtifactsDeployer(new LocalMavenRepositoryArtifactsDeployer(unreferencedArtifactsOutputDirectory));
-                    } else if (contentTypePackagePolicy == ContentPackage2FeatureModelConverter.PackagePolicy.PUT_IN_DEDICATED_FOLDER) {
-                        throw new IllegalStateException("Argument '--content-type-package-policy PUT_IN_DEDICATED_FOLDER' requires argument '--unreferenced-artifacts-output-directory' as well!");
-                    }
-                    if (filteringPatterns != null && filteringPatterns.length > 0) {
-                        RegexBasedResourceFilter filter = new RegexBasedResourceFilter();
-
-                        for (String filteringPattern : filteringPatterns) {
-                            filter.addFilteringPattern(filteringPattern);
-                        }
-
-                        converter.setResourceFilter(filter);
+                try (ContentPackage2FeatureModelConverter converter = newConverter(seed, entryHandlerConfigsMap)) {
+                    converter.setEmitter(DefaultPackagesEventsEmitter.open(featureModelsOutputDirectory))
+                             .setFirstPassThreads(firstPassThreads)
+                             .setSecondPassThreads(secondPassThreads)
+                             .setDeployThreads(deployThreads)
+                             .setConverterFactory(() -> newConverter(seed, entryHandlerConfigsMap));
+                    if (conversionCacheDirectory != null) {
+                        converter.setConversionCache(new ConversionCache(conversionCacheDirectory, conversionCacheSize, computeConfigurationFingerprint(seed)));
                     }
                     converter.convert(contentPackages);
                 }
@@ -319,6 +342,90 @@ public final class ContentPackage2FeatureModelConverterLauncher implements Runna
         }
     }
 
+    private @NotNull ContentPackage2FeatureModelConverter newConverter(@Nullable Feature seed, @NotNull Map<String, String> entryHandlerConfigsMap) throws IOException, ConverterException {
+        AclManager aclManager = new DefaultAclManager(enforcePrincipalBasedSupportedPath, systemUserRelPath, alwaysForceSystemUserPath);
+
+        DefaultFeaturesManager featuresManager = new DefaultFeaturesManager(mergeConfigurations,
+                                                        bundlesStartOrder,
+                                                        featureModelsOutputDirectory,
+                                                        artifactIdOverride,
+                                                        fmPrefix,
+                                                        properties,
+                                                        aclManager);
+
+        featuresManager.setEnforceServiceMappingByPrincipal(enforceServiceMappingByPrincipal);
+
+        if (seed != null) {
+            featuresManager.addSeed(seed);
+        }
+
+        if (apiRegions != null)
+            featuresManager.setAPIRegions(apiRegions);
+
+        if (exportsToRegion != null)
+            featuresManager.setExportToAPIRegion(exportsToRegion);
+
+        ContentPackage2FeatureModelConverter converter = new ContentPackage2FeatureModelConverter(strictValidation, slingInitialContentPolicy, disablePackageTypeRecalculation, runModePolicy);
+        BundleSlingInitialContentExtractor bundleSlingInitialContentExtractor = new BundleSlingInitialContentExtractor();
+        converter.setFeaturesManager(featuresManager)
+                 .setBundlesDeployer(new LocalMavenRepositoryArtifactsDeployer(artifactsOutputDirectory))
+                 .setBundleSlingInitialContentExtractor(bundleSlingInitialContentExtractor)
+                 .setEntryHandlersManager(new DefaultEntryHandlersManager(entryHandlerConfigsMap, !disableInstallerPolicy, slingInitialContentPolicy, bundleSlingInitialContentExtractor, systemUserRelPath))
+                 .setAclManager(aclManager)
+                 .setIndexManager(new DefaultIndexManager())
+                 .setFailOnMixedPackages(failOnMixedPackages)
+                 .setContentTypePackagePolicy(contentTypePackagePolicy)
+                 .setSinglePass(singlePass)
+                 .setStreamingPackageAssembly(streamingPackageAssembly)
+                 .setPackageCompression(new PackageCompression(compressionLevel, storedExtensions, compressionThreads))
+                 .setSubContentPackageMemoryThreshold(subPackageMemoryThreshold);
+        if (unreferencedArtifactsOutputDirectory != null) {
+            converter.setUnreferencedArtifactsDeployer(new LocalMavenRepositoryArtifactsDeployer(unreferencedArtifactsOutputDirectory));
+        } else if (contentTypePackagePolicy == ContentPackage2FeatureModelConverter.PackagePolicy.PUT_IN_DEDICATED_FOLDER) {
+            converter.close();
+            throw new IllegalStateException("Argument '--content-type-package-policy PUT_IN_DEDICATED_FOLDER' requires argument '--unreferenced-artifacts-output-directory' as well!");
+        }
+        if (filteringPatterns != null && filteringPatterns.length > 0) {
+            CompiledRegexResourceFilter filter = new CompiledRegexResourceFilter();
+
+            for (String filteringPattern : filteringPatterns) {
+                filter.addFilteringPattern(filteringPattern);
+            }
+
+            converter.setResourceFilter(filter);
+        }
+        return converter;
+    }
+
+    /**
+     * Describes the options which determine the conversion outcome, along with the seed feature.
+     */
+    private @NotNull String computeConfigurationFingerprint(@Nullable Feature seed) throws IllegalAccessException, IOException {
+        StringBuilder fingerprint = new StringBuilder();
+        Map<String, Field> options = new TreeMap<>();
+        for (Field field : getClass().getDeclaredFields()) {
+            if (field.isAnnotationPresent(Option.class) && !NOT_FINGERPRINTED_OPTIONS.contains(field.getName())) {
+                options.put(field.getName(), field);
+            }
+        }
+        for (Field option : options.values()) {
+            option.setAccessible(true);
+            Object value = option.get(this);
+            if (value instanceof Object[]) {
+                value = Arrays.toString((Object[]) value);
+            } else if (value instanceof Map) {
+                value = new TreeMap<>((Map<?, ?>) value);
+            }
+            fingerprint.append(option.getName()).append('=').append(value).append('\n');
+        }
+        if (seed != null) {
+            StringWriter seedWriter = new StringWriter();
+            FeatureJSONWriter.write(seedWriter, seed);
+            fingerprint.append("seed=").append(seedWriter);
+        }
+        return fingerprint.toString();
+    }
+
     private static void printVersion(@NotNull final Logger logger) {
         logger.info("{} v{} (built on {})",
                 System.getProperty("project.artifactId"),
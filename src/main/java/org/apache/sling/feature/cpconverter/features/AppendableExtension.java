@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.features;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionState;
+import org.apache.sling.feature.ExtensionType;
+import org.jetbrains.annotations.NotNull;
+
+import jakarta.json.JsonStructure;
+
+/**
+ * A text or JSON {@link Extension} which collects the appended fragments and joins them only once its content is
+ * read, typically when the feature gets serialized, instead of copying the whole accumulated content on each append.
+ */
+final class AppendableExtension extends Extension {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SEPARATOR = System.lineSeparator();
+
+    private final List<String> fragments = new ArrayList<>();
+
+    private int length;
+
+    private boolean pending;
+
+    AppendableExtension(@NotNull ExtensionType type, @NotNull String name, @NotNull ExtensionState state) {
+        super(type, name, state);
+    }
+
+    /**
+     * Appends the fragment, separated from the previous one by a line separator.
+     *
+     * @param fragment the text or JSON fragment
+     */
+    void append(@NotNull String fragment) {
+        if (!fragments.isEmpty()) {
+            fragments.add(SEPARATOR);
+            length += SEPARATOR.length();
+        }
+        fragments.add(fragment);
+        length += fragment.length();
+        pending = true;
+    }
+
+    private void materialize() {
+        if (!pending) {
+            return;
+        }
+        pending = false;
+
+        StringBuilder content = new StringBuilder(length);
+        for (String fragment : fragments) {
+            content.append(fragment);
+        }
+        String text = content.toString();
+        fragments.clear();
+        fragments.add(text);
+
+        if (getType() == ExtensionType.JSON) {
+            super.setJSON(text);
+        } else {
+            super.setText(text);
+        }
+    }
+
+    private void reset(String content) {
+        fragments.clear();
+        length = 0;
+        pending = false;
+        if (content != null) {
+            fragments.add(content);
+            length = content.length();
+        }
+    }
+
+    @Override
+    public String getText() {
+        materialize();
+        return super.getText();
+    }
+
+    @Override
+    public void setText(String text) {
+        super.setText(text);
+        reset(text);
+    }
+
+    @Override
+    public String getJSON() {
+        materialize();
+        return super.getJSON();
+    }
+
+    @Override
+    public void setJSON(String text) {
+        super.setJSON(text);
+        reset(text);
+    }
+
+    @Override
+    public JsonStructure getJSONStructure() {
+        materialize();
+        return super.getJSONStructure();
+    }
+
+    @Override
+    public void setJSONStructure(JsonStructure struct) {
+        super.setJSONStructure(struct);
+        reset(super.getJSON());
+    }
+
+    @Override
+    public Extension copy() {
+        materialize();
+        return super.copy();
+    }
+
+}
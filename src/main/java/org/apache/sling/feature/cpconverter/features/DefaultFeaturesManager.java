@@ -22,7 +22,8 @@ import static org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelCo
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -49,18 +50,19 @@ import org.apache.sling.feature.Extensions;
 import org.apache.sling.feature.Feature;
 import org.apache.sling.feature.cpconverter.ConverterException;
 import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
+import org.apache.sling.feature.cpconverter.accesscontrol.DefaultAclManager;
 import org.apache.sling.feature.cpconverter.accesscontrol.Mapping;
 import org.apache.sling.feature.cpconverter.index.IndexManager;
 import org.apache.sling.feature.cpconverter.interpolator.SimpleVariablesInterpolator;
 import org.apache.sling.feature.cpconverter.interpolator.VariablesInterpolator;
 import org.apache.sling.feature.cpconverter.repoinit.NoOpVisitor;
+import org.apache.sling.feature.cpconverter.repoinit.RepoInitOperationsCache;
 import org.apache.sling.feature.cpconverter.vltpkg.PackagesEventsEmitter;
 import org.apache.sling.feature.extension.apiregions.api.ApiExport;
 import org.apache.sling.feature.extension.apiregions.api.ApiRegion;
 import org.apache.sling.feature.extension.apiregions.api.ApiRegions;
 import org.apache.sling.feature.io.json.FeatureJSONWriter;
 import org.apache.sling.repoinit.parser.RepoInitParsingException;
-import org.apache.sling.repoinit.parser.impl.RepoInitParserService;
 import org.apache.sling.repoinit.parser.operations.Operation;
 import org.apache.sling.repoinit.parser.operations.RegisterNamespace;
 import org.jetbrains.annotations.NotNull;
@@ -117,10 +119,17 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
 
     private AclManager aclManager;
 
+    private final RepoInitOperationsCache repoInitOperationsCache = new RepoInitOperationsCache();
+
     private final Map<String, String> pidToPathMapping = new HashMap<>();
 
     private final Stack<String> packageIds = new Stack<>();
 
+    /**
+     * The {@link #packageIds} joined for the repoinit origin comments, {@code null} until needed
+     */
+    private String packageOrigin;
+
     DefaultFeaturesManager() {
         this(new File(""));
     }
@@ -153,7 +162,7 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
         this.artifactIdOverride = artifactIdOverride;
         this.prefix = prefix;
         this.properties = properties;
-        this.aclManager = aclManager;
+        setAclManager(aclManager);
         this.namespaceUriByPrefix = new HashMap<>();
     }
 
@@ -273,14 +282,15 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
         if (seed.getExtensions().getByName(Extension.EXTENSION_NAME_REPOINIT) != null) {
             String repoInitText = seed.getExtensions().getByName(Extension.EXTENSION_NAME_REPOINIT).getText();
             getAclManager().addRepoinitExtention("seed", repoInitText, "seed", this);
-            extractNamespaces(repoInitText, namespaceUriByPrefix);
+            extractNamespaces("seed", repoInitText, namespaceUriByPrefix);
         }
 
     }
 
-    private static void extractNamespaces(String repoInitText, Map<String, String> namespaceUriByPrefix) {
+    private void extractNamespaces(String source, String repoInitText, Map<String, String> namespaceUriByPrefix) {
         try {
-            List<Operation> ops = new RepoInitParserService().parse(new StringReader(repoInitText));
+            // the ACL manager parsed the same script already
+            List<Operation> ops = repoInitOperationsCache.parse(source, repoInitText);
             for (Operation op : ops) {
                 op.accept(new NoOpVisitor() {
                     @Override
@@ -305,6 +315,13 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
 
     public void setAclManager(AclManager aclManager) {
         this.aclManager = aclManager;
+        if (aclManager instanceof DefaultAclManager) {
+            ((DefaultAclManager) aclManager).setRepoInitOperationsCache(repoInitOperationsCache);
+        }
+    }
+
+    @NotNull RepoInitOperationsCache getRepoInitOperationsCache() {
+        return repoInitOperationsCache;
     }
 
     private boolean handleRepoinitAndMappings(String runMode, Configuration cfg, Dictionary<String, Object> configurationProperties, boolean enforceServiceMappingByPrincipal)
@@ -452,21 +469,58 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
 
     @Override
     public void serialize() throws IOException {
-        RunmodeMapper runmodeMapper = RunmodeMapper.open(featureModelsOutputDirectory);
+        serialize(featureModelsOutputDirectory);
+    }
+
+    /**
+     * Serializes the Feature Model(s) file(s), along with their run modes mapping, to the given directory rather than
+     * to the output one, e.g. to import them later on via {@link #importSerialized(File)}.
+     *
+     * @param outputDirectory the directory where the Feature Model(s) file(s) get serialized
+     * @throws IOException if the Feature Model(s) file(s) can not be written
+     */
+    @Override
+    public void serialize(@NotNull File outputDirectory) throws IOException {
+        RunmodeMapper runmodeMapper = RunmodeMapper.open(outputDirectory);
 
-        serialize(targetFeature, null, runmodeMapper);
+        serialize(targetFeature, null, runmodeMapper, outputDirectory);
 
         if (!runModes.isEmpty()) {
             for (Entry<String, Feature> runmodeEntry : runModes.entrySet()) {
                 String runmode = runmodeEntry.getKey();
-                serialize(runmodeEntry.getValue(), runmode, runmodeMapper);
+                serialize(runmodeEntry.getValue(), runmode, runmodeMapper, outputDirectory);
             }
         }
 
         runmodeMapper.save();
     }
 
-    private void serialize(Feature feature, String runMode, RunmodeMapper runmodeMapper) throws IOException {
+    /**
+     * Copies the Feature Model(s) file(s) previously serialized to the given directory via {@link #serialize(File)}
+     * to the output directory, merging their run modes mapping with the existing one.
+     *
+     * @param directory the directory where the Feature Model(s) file(s) have been serialized
+     * @throws IOException if the Feature Model(s) file(s) can not be copied
+     */
+    @Override
+    public void importSerialized(@NotNull File directory) throws IOException {
+        if (!featureModelsOutputDirectory.exists()) {
+            featureModelsOutputDirectory.mkdirs();
+        }
+
+        RunmodeMapper serialized = RunmodeMapper.open(directory);
+        for (String fileName : serialized.getFileNames()) {
+            File targetFile = new File(featureModelsOutputDirectory, fileName);
+            logger.info("Copying Feature Model file '{}' to '{}'...", fileName, targetFile);
+            Files.copy(new File(directory, fileName).toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        RunmodeMapper runmodeMapper = RunmodeMapper.open(featureModelsOutputDirectory);
+        runmodeMapper.merge(serialized);
+        runmodeMapper.save();
+    }
+
+    private void serialize(Feature feature, String runMode, RunmodeMapper runmodeMapper, File outputDirectory) throws IOException {
         addAPIRegions(feature, apiRegionExports.get(runMode));
 
         StringBuilder fileNameBuilder = new StringBuilder()
@@ -486,7 +540,7 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
 
         String fileName = fileNameBuilder.toString();
 
-        File targetFile = new File(featureModelsOutputDirectory, fileName);
+        File targetFile = new File(outputDirectory, fileName);
         if (!targetFile.getParentFile().exists()) {
             targetFile.getParentFile().mkdirs();
         }
@@ -528,31 +582,39 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
         }
 
         // prepend source/origin
-        text = "# origin=".concat(String.join("|", this.packageIds)).concat(" source=").concat(source).concat(System.lineSeparator()).concat(text);
-
-        Extension repoInitExtension = getRunMode(runMode).getExtensions().getByName(Extension.EXTENSION_NAME_REPOINIT);
-        if (repoInitExtension == null) {
-            repoInitExtension = new Extension(ExtensionType.TEXT, Extension.EXTENSION_NAME_REPOINIT, ExtensionState.REQUIRED);
-            getRunMode(runMode).getExtensions().add(repoInitExtension);
-            repoInitExtension.setText(text);
-        } else {
-            repoInitExtension.setText(repoInitExtension.getText().concat(System.lineSeparator()).concat(text));
+        if (packageOrigin == null) {
+            packageOrigin = String.join("|", this.packageIds);
         }
+        text = "# origin=" + packageOrigin + " source=" + source + System.lineSeparator() + text;
+
+        addOrAppendExtension(getRunMode(runMode), ExtensionType.TEXT, Extension.EXTENSION_NAME_REPOINIT, ExtensionState.REQUIRED, text);
     }
 
     @Override
     public void addOrAppendOakIndexDefinitionsExtension(String source, String text)
             throws IOException, ConverterException {
 
-        Extension oakIndexDefsExtension = getRunMode(null).getExtensions().getByName(IndexManager.EXTENSION_NAME);
-        if (oakIndexDefsExtension == null) {
-            oakIndexDefsExtension = new Extension(ExtensionType.JSON, IndexManager.EXTENSION_NAME, ExtensionState.OPTIONAL);
-            getRunMode(null).getExtensions().add(oakIndexDefsExtension);
-            oakIndexDefsExtension.setJSON(text);
+        addOrAppendExtension(getRunMode(null), ExtensionType.JSON, IndexManager.EXTENSION_NAME, ExtensionState.OPTIONAL, text);
+    }
+
+    /**
+     * Appends the text to the named extension, creating it if needed; the extensions created here only join their
+     * fragments once read, so that the whole content is not copied on each append.
+     */
+    private static void addOrAppendExtension(@NotNull Feature feature, @NotNull ExtensionType type, @NotNull String name,
+            @NotNull ExtensionState state, @NotNull String text) {
+        Extension extension = feature.getExtensions().getByName(name);
+        if (extension == null) {
+            AppendableExtension appendableExtension = new AppendableExtension(type, name, state);
+            appendableExtension.append(text);
+            feature.getExtensions().add(appendableExtension);
+        } else if (extension instanceof AppendableExtension) {
+            ((AppendableExtension) extension).append(text);
+        } else if (type == ExtensionType.JSON) {
+            extension.setJSON(extension.getJSON().concat(System.lineSeparator()).concat(text));
         } else {
-            oakIndexDefsExtension.setJSON(oakIndexDefsExtension.getText().concat(System.lineSeparator()).concat(text));
+            extension.setText(extension.getText().concat(System.lineSeparator()).concat(text));
         }
-
     }
 
     private static void checkReferences(@NotNull final Dictionary<String, Object> configurationProperties, @NotNull final String pid) throws ConverterException {
@@ -579,20 +641,24 @@ public class DefaultFeaturesManager implements FeaturesManager, PackagesEventsEm
     @Override
     public void startPackage(@NotNull VaultPackage originalPackage) {
         packageIds.push(originalPackage.getId().toString());
+        packageOrigin = null;
     }
 
     @Override
     public void endPackage(@NotNull PackageId originalPackageId, @NotNull VaultPackage convertedPackage) {
         packageIds.pop();
+        packageOrigin = null;
     }
 
     @Override
     public void startSubPackage(@NotNull String path, @NotNull VaultPackage originalPackage) {
         packageIds.push(originalPackage.getId().toString());
+        packageOrigin = null;
     }
 
     @Override
     public void endSubPackage(@NotNull String path, @NotNull PackageId originalPackageId, @NotNull VaultPackage convertedPackage) {
         packageIds.pop();
+        packageOrigin = null;
     }
 }
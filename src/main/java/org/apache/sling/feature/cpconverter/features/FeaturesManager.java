@@ -16,6 +16,7 @@
  */
 package org.apache.sling.feature.cpconverter.features;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Dictionary;
 import java.util.Map;
@@ -59,6 +60,30 @@ public interface FeaturesManager {
 
     void serialize() throws IOException;
 
+    /**
+     * Serializes the Feature Model(s) file(s), along with their run modes mapping, to the given directory rather than
+     * to the output one, e.g. to import them later on via {@link #importSerialized(File)}.
+     *
+     * @param outputDirectory the directory where the Feature Model(s) file(s) get serialized
+     * @throws IOException if the Feature Model(s) file(s) can not be written
+     * @throws UnsupportedOperationException if this manager can only serialize to its output directory
+     */
+    default void serialize(@NotNull File outputDirectory) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support serializing to another directory");
+    }
+
+    /**
+     * Copies the Feature Model(s) file(s) previously serialized to the given directory via {@link #serialize(File)}
+     * to the output directory, merging their run modes mapping with the existing one.
+     *
+     * @param directory the directory where the Feature Model(s) file(s) have been serialized
+     * @throws IOException if the Feature Model(s) file(s) can not be copied
+     * @throws UnsupportedOperationException if this manager can not import serialized Feature Model(s) file(s)
+     */
+    default void importSerialized(@NotNull File directory) throws IOException {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support importing serialized Feature Models");
+    }
+
     /**
      * Add repoinit instructions
      * @param source An identifier for the source, for example the configuration pid
@@ -69,6 +69,20 @@ final class RunmodeMapper {
         this.properties.computeIfAbsent(runMode, id -> new LinkedHashSet<>()).add(jsonFileName);
     }
 
+    public @NotNull Set<String> getFileNames() {
+        Set<String> fileNames = new LinkedHashSet<>();
+        for (Set<String> names : properties.values()) {
+            fileNames.addAll(names);
+        }
+        return fileNames;
+    }
+
+    public void merge(@NotNull RunmodeMapper other) {
+        for (final Map.Entry<String, Set<String>> entry : other.properties.entrySet()) {
+            this.properties.computeIfAbsent(entry.getKey(), id -> new LinkedHashSet<>()).addAll(entry.getValue());
+        }
+    }
+
     public void save() throws IOException {
         final Properties props = new Properties();
         for(final Map.Entry<String, Set<String>> entry : this.properties.entrySet()) {
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.filtering;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.sling.feature.cpconverter.shared.RegexLiterals;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Same semantics as the {@link RegexBasedResourceFilter}, but all the filtering patterns are combined in a single
+ * regular expression, which is not even run when the path does not start with one of their literal prefixes or
+ * when its directory is known not to lead to any match.
+ *
+ * Patterns using back references or quoted sections can not be combined, they are matched one by one.
+ */
+public final class CompiledRegexResourceFilter implements ResourceFilter {
+
+    private static final int MAX_MEMOIZED_DIRECTORIES = 4096;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private volatile CompiledPatterns compiledPatterns;
+
+    public synchronized void addFilteringPattern(@NotNull String filteringPattern) {
+        requireNonNull(filteringPattern, "Null pattern to filter resources out is not a valid filtering pattern");
+
+        if (filteringPattern.isEmpty()) {
+            throw new IllegalArgumentException("Empty pattern to filter resources out is not a valid filtering pattern");
+        }
+
+        patterns.add(Pattern.compile(filteringPattern));
+        compiledPatterns = null;
+    }
+
+    @Override
+    public boolean isFilteredOut(@NotNull String path) {
+        CompiledPatterns current = getCompiledPatterns();
+        if (!current.matches(path)) {
+            return false;
+        }
+
+        // the rejection is rare, look for the responsible pattern only now
+        for (Pattern pattern : current.patterns) {
+            if (pattern.matcher(path).matches()) {
+                logger.info("Path '{}' matches against '{}' filtering pattern.", path, pattern);
+                break;
+            }
+        }
+        return true;
+    }
+
+    private @NotNull CompiledPatterns getCompiledPatterns() {
+        CompiledPatterns current = compiledPatterns;
+        if (current == null) {
+            synchronized (this) {
+                current = compiledPatterns;
+                if (current == null) {
+                    current = new CompiledPatterns(new ArrayList<>(patterns));
+                    compiledPatterns = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return {@code false} if the pattern would not behave the same in a combined regular expression, i.e. if it
+     * has flags, back references or a quoted section
+     */
+    static boolean isCombinable(@NotNull Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return false;
+        }
+
+        String regex = pattern.pattern();
+        for (int i = 0; i < regex.length() - 1; i++) {
+            if (regex.charAt(i) == '\\') {
+                char next = regex.charAt(i + 1);
+                if ((next >= '1' && next <= '9') || next == 'k' || next == 'Q') {
+                    return false;
+                }
+                // skip the escaped character
+                i++;
+            }
+        }
+        return true;
+    }
+
+    private static final class CompiledPatterns {
+
+        private final List<Pattern> patterns;
+
+        private final Pattern combined;
+
+        private final List<Pattern> uncombined = new ArrayList<>();
+
+        /**
+         * The literal prefixes of the combined patterns, {@code null} if any of them has none.
+         */
+        private final List<String> prefixes;
+
+        /**
+         * Whether the combined pattern may match a path below a given directory.
+         */
+        private final ConcurrentMap<String, Boolean> directories = new ConcurrentHashMap<>();
+
+        CompiledPatterns(@NotNull List<Pattern> patterns) {
+            this.patterns = patterns;
+
+            List<Pattern> combinable = new ArrayList<>();
+            for (Pattern pattern : patterns) {
+                if (isCombinable(pattern)) {
+                    combinable.add(pattern);
+                } else {
+                    uncombined.add(pattern);
+                }
+            }
+
+            this.combined = combine(combinable);
+            if (combined == null) {
+                uncombined.clear();
+                uncombined.addAll(patterns);
+                prefixes = null;
+            } else {
+                prefixes = collectPrefixes(combinable);
+            }
+        }
+
+        boolean matches(@NotNull String path) {
+            if (combined != null && matchesCombined(path)) {
+                return true;
+            }
+            for (Pattern pattern : uncombined) {
+                if (pattern.matcher(path).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesCombined(@NotNull String path) {
+            if (prefixes != null && !startsWithAny(path)) {
+                return false;
+            }
+
+            int separator = path.lastIndexOf('/');
+            if (separator > 0) {
+                String directory = path.substring(0, separator + 1);
+                Boolean mayMatch = directories.get(directory);
+                if (mayMatch == null) {
+                    Matcher matcher = combined.matcher(directory);
+                    // not hitting the end means that no longer input can match either
+                    mayMatch = matcher.matches() || matcher.hitEnd();
+                    if (directories.size() < MAX_MEMOIZED_DIRECTORIES) {
+                        directories.put(directory, mayMatch);
+                    }
+                }
+                if (!mayMatch) {
+                    return false;
+                }
+            }
+
+            return combined.matcher(path).matches();
+        }
+
+        private boolean startsWithAny(@NotNull String path) {
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static @Nullable Pattern combine(@NotNull List<Pattern> patterns) {
+            if (patterns.isEmpty()) {
+                return null;
+            }
+
+            StringBuilder regex = new StringBuilder();
+            for (Pattern pattern : patterns) {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                regex.append("(?:").append(pattern.pattern()).append(')');
+            }
+            try {
+                return Pattern.compile(regex.toString());
+            } catch (PatternSyntaxException e) {
+                // e.g. the same named group in different patterns
+                return null;
+            }
+        }
+
+        private static @Nullable List<String> collectPrefixes(@NotNull List<Pattern> patterns) {
+            List<String> prefixes = new ArrayList<>();
+            for (Pattern pattern : patterns) {
+                String prefix = RegexLiterals.getPrefix(pattern);
+                if (prefix.isEmpty()) {
+                    return null;
+                }
+                prefixes.add(prefix);
+            }
+            return prefixes;
+        }
+
+    }
+
+}
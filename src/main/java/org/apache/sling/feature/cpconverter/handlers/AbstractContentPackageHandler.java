@@ -16,19 +16,22 @@
  */
 package org.apache.sling.feature.cpconverter.handlers;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.jackrabbit.vault.fs.io.Archive;
 import org.apache.jackrabbit.vault.fs.io.Archive.Entry;
+import org.apache.jackrabbit.vault.fs.io.ZipStreamArchive;
 import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.ConverterException;
+import org.apache.sling.feature.cpconverter.vltpkg.VaultPackageUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -45,8 +48,30 @@ public abstract class AbstractContentPackageHandler extends AbstractRegexEntryHa
     @Override
     public final void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode)
             throws IOException, ConverterException {
+        handle(path, archive, entry, converter, runMode, requireMatch(path));
+    }
+
+    @Override
+    public final void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode,
+            @NotNull EntryMatch match) throws IOException, ConverterException {
         logger.info("Processing sub-content package '{}'...", entry.getName());
 
+        String targetRunMode;
+        // determine run mode string for current path
+        String runModeMatch = match.group(1);
+        targetRunMode = extractTargetRunMode(path, converter, runMode,
+            runModeMatch);
+        
+        boolean isEmbeddedPackage = EMBEDDED_PACKAGE_PATTERN.matcher(path).matches();
+        try (VaultPackage vaultPackage = openSubContentPackage(archive, entry, converter)) {
+            processSubPackage(path, targetRunMode, vaultPackage, converter, isEmbeddedPackage);
+        }
+
+        logger.info("Sub-content package '{}' processing is over", entry.getName());
+    }
+
+    private @NotNull VaultPackage openSubContentPackage(@NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter)
+            throws IOException, ConverterException {
         final File temporaryDir = new File(converter.getTempDirectory(), "sub-content-packages");
         temporaryDir.mkdirs();
         File temporaryContentPackage = new File(temporaryDir, entry.getName());
@@ -62,40 +87,42 @@ public abstract class AbstractContentPackageHandler extends AbstractRegexEntryHa
         }
 
         if (!temporaryContentPackage.exists()) {
-            logger.debug("Extracting sub-content package '{}' to {} for future analysis...", entry.getName(), temporaryContentPackage);
-
-            try (InputStream input = archive.openInputStream(entry);
-                    OutputStream output = new FileOutputStream(temporaryContentPackage)) {
-                IOUtils.copy(input, output);
+            try (InputStream input = archive.openInputStream(entry)) {
+                byte[] head = new byte[0];
+                int memoryThreshold = converter.getSubContentPackageMemoryThreshold();
+                if (memoryThreshold > 0) {
+                    head = IOUtils.toByteArray(new BoundedInputStream(input, memoryThreshold + 1L));
+                    // the archive buffers the inflated entries, which have to fit in the threshold as well
+                    long uncompressedSize = head.length <= memoryThreshold ? getUncompressedSize(head) : -1;
+                    if (uncompressedSize >= 0 && uncompressedSize < memoryThreshold) {
+                        logger.debug("Reading sub-content package '{}' ({} bytes, {} uncompressed) in memory...",
+                                entry.getName(), head.length, uncompressedSize);
+                        // one more byte than the content, or the archive moves the whole buffer to a temporary file
+                        return converter.open(new ZipStreamArchive(new ByteArrayInputStream(head), (int) uncompressedSize + 1), entry.getName());
+                    }
+                }
+
+                logger.debug("Extracting sub-content package '{}' to {} for future analysis...", entry.getName(), temporaryContentPackage);
+
+                try (OutputStream output = new FileOutputStream(temporaryContentPackage)) {
+                    output.write(head);
+                    IOUtils.copy(input, output);
+                }
             }
 
             logger.debug("Sub-content package '{}' successfully extracted to {} ", entry.getName(), temporaryContentPackage);
         }
 
-        Matcher matcher = getPattern().matcher(path);
+        return converter.open(temporaryContentPackage);
+    }
 
-        // we are pretty sure it matches, here
-        if (!matcher.matches()) {
-            throw new IllegalStateException("Something went terribly wrong: pattern '"
-                                            + getPattern().pattern()
-                                            + "' should have matched already with path '"
-                                            + path
-                                            + "' but it does not, currently");
+    private long getUncompressedSize(byte[] contentPackage) {
+        try {
+            return VaultPackageUtils.getUncompressedSize(contentPackage);
+        } catch (IOException e) {
+            logger.debug("Unable to read the central directory of the sub-content package, it will be extracted", e);
+            return -1;
         }
-
-
-        String targetRunMode;
-        // determine run mode string for current path
-        String runModeMatch = matcher.group(1);
-        targetRunMode = extractTargetRunMode(path, converter, runMode,
-            runModeMatch);
-        
-        boolean isEmbeddedPackage = EMBEDDED_PACKAGE_PATTERN.matcher(path).matches();
-        try (VaultPackage vaultPackage = converter.open(temporaryContentPackage)) {
-            processSubPackage(path, targetRunMode, vaultPackage, converter, isEmbeddedPackage);
-        }
-
-        logger.info("Sub-content package '{}' processing is over", entry.getName());
     }
 
     protected abstract void processSubPackage(@NotNull String path, @Nullable String runMode, @NotNull VaultPackage contentPackage, @NotNull ContentPackage2FeatureModelConverter converter, boolean isEmbeddedPackage) throws IOException, ConverterException;
@@ -16,13 +16,14 @@
  */
 package org.apache.sling.feature.cpconverter.handlers;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.vault.fs.io.Archive;
 import org.apache.jackrabbit.vault.util.PlatformNameFormat;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
 import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.jetbrains.annotations.NotNull;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.TransformerConfigurationException;
@@ -33,11 +34,8 @@ import javax.xml.transform.stream.StreamResult;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.StringReader;
-import java.io.StringWriter;
-import java.util.regex.Matcher;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
 abstract class AbstractPolicyEntryHandler extends AbstractRegexEntryHandler {
 
@@ -50,46 +48,36 @@ abstract class AbstractPolicyEntryHandler extends AbstractRegexEntryHandler {
     @Override
     public void handle(@NotNull String path, @NotNull Archive archive, @NotNull Archive.Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode)
             throws IOException {
-        String resourcePath;
-        Matcher matcher = getPattern().matcher(path);
-        // we are pretty sure it matches, here
-        if (matcher.matches()) {
-            resourcePath = matcher.group(1);
-        } else {
-            throw new IllegalStateException("Something went terribly wrong: pattern '"
-                                            + getPattern().pattern()
-                                            + "' should have matched already with path '"
-                                            + path
-                                            + "' but it does not, currently");
-        }
+        handle(path, archive, entry, converter, runMode, requireMatch(path));
+    }
 
-        try {
-            TransformerHandler handler = saxTransformerFactory.newTransformerHandler();
-            handler.getTransformer().setOutputProperty(OutputKeys.INDENT, "yes");
-            handler.getTransformer().setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-            handler.getTransformer().setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-            StringWriter stringWriter = new StringWriter();
-            handler.setResult(new StreamResult(stringWriter));
+    @Override
+    public void handle(@NotNull String path, @NotNull Archive archive, @NotNull Archive.Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode,
+            @NotNull EntryMatch match) throws IOException {
+        String resourcePath = match.group(1);
 
-            AbstractPolicyParser policyParser = createPolicyParser(new RepoPath(PlatformNameFormat.getRepositoryPath(resourcePath)),
-                    converter.getAclManager(),
-                    handler);
-            boolean hasRejectedNodes;
-            try (InputStream input = archive.openInputStream(entry)) {
-                hasRejectedNodes = policyParser.parse(input);
-            }
+        // only the nodes which are not converted are recorded, to be written back if there are any
+        SaxEventsRecorder rejectedNodes = new SaxEventsRecorder();
+        AbstractPolicyParser policyParser = createPolicyParser(new RepoPath(PlatformNameFormat.getRepositoryPath(resourcePath)),
+                converter.getAclManager(),
+                rejectedNodes);
+        boolean hasRejectedNodes;
+        try (InputStream input = archive.openInputStream(entry)) {
+            hasRejectedNodes = policyParser.parse(input);
+        }
 
-            if (hasRejectedNodes) {
-                try (Reader reader = new StringReader(stringWriter.toString());
-                    OutputStreamWriter writer = new OutputStreamWriter(converter.getMainPackageAssembler().createEntry(path))) {
-                    IOUtils.copy(reader, writer);
-                }
+        if (hasRejectedNodes) {
+            try (OutputStream output = converter.getMainPackageAssembler().createEntry(path)) {
+                TransformerHandler handler = saxTransformerFactory.newTransformerHandler();
+                handler.getTransformer().setOutputProperty(OutputKeys.ENCODING, StandardCharsets.UTF_8.name());
+                handler.setResult(new StreamResult(output));
+                rejectedNodes.replay(handler);
+            } catch (TransformerConfigurationException | SAXException e) {
+                throw new IOException(e.getMessage(), e);
             }
-        } catch ( final TransformerConfigurationException e) {
-            throw new IOException(e.getMessage(), e);
         }
     }
 
     @NotNull
-    abstract AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull TransformerHandler handler);
+    abstract AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull ContentHandler handler);
 }
\ No newline at end of file
@@ -23,9 +23,9 @@ import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
-import javax.xml.transform.sax.TransformerHandler;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,14 +43,14 @@ abstract class AbstractPolicyParser extends AbstractJcrNodeParser<Boolean> {
 
     private final RepoPath repositoryPath;
 
-    final TransformerHandler handler;
+    final ContentHandler handler;
     final AclManager aclManager;
 
     boolean onRepAclNode = false;
     // ACL processing result
     boolean hasRejectedNodes = false;
 
-    AbstractPolicyParser(@NotNull String primaryType, @NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull TransformerHandler handler) {
+    AbstractPolicyParser(@NotNull String primaryType, @NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull ContentHandler handler) {
         super(primaryType);
         this.handler = handler;
         this.repositoryPath = repositoryPath;
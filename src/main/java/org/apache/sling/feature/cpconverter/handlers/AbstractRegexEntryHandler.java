@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -27,7 +28,9 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter.RunModePolicy;
+import org.apache.sling.feature.cpconverter.shared.RegexLiterals;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,12 +40,18 @@ abstract class AbstractRegexEntryHandler implements EntryHandler {
 
     private final Pattern pattern;
 
+    private final String pathPrefix;
+
+    private final String pathSuffix;
+
     AbstractRegexEntryHandler(@NotNull String regex) {
         this(Pattern.compile(regex));
     }
 
     AbstractRegexEntryHandler(@NotNull Pattern pattern) {
         this.pattern = pattern;
+        this.pathPrefix = RegexLiterals.getPrefix(pattern);
+        this.pathSuffix = RegexLiterals.getSuffix(pattern);
     }
 
     @Override
@@ -50,6 +59,38 @@ abstract class AbstractRegexEntryHandler implements EntryHandler {
         return pattern.matcher(path).matches();
     }
 
+    @Override
+    public final @Nullable EntryMatch match(@NotNull String path) {
+        Matcher matcher = pattern.matcher(path);
+        return matcher.matches() ? new EntryMatch(this, path, matcher) : null;
+    }
+
+    /**
+     * Matches a path this handler is about to handle without a previous {@link #match(String)}.
+     */
+    protected final @NotNull EntryMatch requireMatch(@NotNull String path) {
+        EntryMatch match = match(path);
+        // we are pretty sure it matches, here
+        if (match == null) {
+            throw new IllegalStateException("Something went terribly wrong: pattern '"
+                                            + pattern.pattern()
+                                            + "' should have matched already with path '"
+                                            + path
+                                            + "' but it does not, currently");
+        }
+        return match;
+    }
+
+    @Override
+    public final @NotNull String getPathPrefix() {
+        return pathPrefix;
+    }
+
+    @Override
+    public final @NotNull String getPathSuffix() {
+        return pathSuffix;
+    }
+
     protected final @NotNull Pattern getPattern() {
         return pattern;
     }
@@ -31,7 +31,6 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.regex.Matcher;
 
 abstract class AbstractUserEntryHandler extends AbstractRegexEntryHandler {
     
@@ -44,22 +43,28 @@ abstract class AbstractUserEntryHandler extends AbstractRegexEntryHandler {
     @Override
     public void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode)
             throws IOException, ConverterException {
-        Matcher matcher = getPattern().matcher(path);
-        if (matcher.matches()) {
-            RepoPath originalPath = new RepoPath(PlatformNameFormat.getRepositoryPath(matcher.group(1)));
-            RepoPath intermediatePath = originalPath.getParent();
+        EntryMatch match = match(path);
+        if (match != null) {
+            handle(path, archive, entry, converter, runMode, match);
+        }
+    }
+
+    @Override
+    public void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode,
+            @NotNull EntryMatch match) throws IOException, ConverterException {
+        RepoPath originalPath = new RepoPath(PlatformNameFormat.getRepositoryPath(match.group(1)));
+        RepoPath intermediatePath = originalPath.getParent();
 
-            byte[] tmp = IOUtils.toByteArray((archive.openInputStream(entry)));
-            AbstractUserParser parser = createParser(converter, originalPath, intermediatePath);
-            boolean converted = parser.parse(new ByteArrayInputStream(tmp));
-            if (!converted && !path.contains(systemUserSegment) && converter.hasMainPackageAssembler()) {
-                // write back regular users, groups and their intermediate folders that did not get converted into
-                // repo-init statements to the content package
-                VaultPackageAssembler assembler = converter.getMainPackageAssembler();
-                try (InputStream input = new ByteArrayInputStream(tmp);
-                     OutputStream output = assembler.createEntry(path)) {
-                    IOUtils.copy(input, output);
-                }
+        byte[] tmp = IOUtils.toByteArray((archive.openInputStream(entry)));
+        AbstractUserParser parser = createParser(converter, originalPath, intermediatePath);
+        boolean converted = parser.parse(new ByteArrayInputStream(tmp));
+        if (!converted && !path.contains(systemUserSegment) && converter.hasMainPackageAssembler()) {
+            // write back regular users, groups and their intermediate folders that did not get converted into
+            // repo-init statements to the content package
+            VaultPackageAssembler assembler = converter.getMainPackageAssembler();
+            try (InputStream input = new ByteArrayInputStream(tmp);
+                 OutputStream output = assembler.createEntry(path)) {
+                IOUtils.copy(input, output);
             }
         }
     }
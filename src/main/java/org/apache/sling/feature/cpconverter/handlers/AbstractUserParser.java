@@ -45,6 +45,11 @@ abstract class AbstractUserParser extends AbstractJcrNodeParser<Boolean> {
         this.intermediatePath = intermediatePath;
     }
 
+    @Override
+    protected boolean isRootElementOnly() {
+        return true;
+    }
+
     @Override
     protected void onJcrRootElement(String uri, String localName, String qName, Attributes attributes) {
         String authorizableId = attributes.getValue(REP_AUTHORIZABLE_ID);
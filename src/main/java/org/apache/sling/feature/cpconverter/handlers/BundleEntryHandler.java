@@ -30,7 +30,6 @@ import java.util.Properties;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
@@ -88,31 +87,31 @@ public class BundleEntryHandler extends AbstractRegexEntryHandler {
            @NotNull Entry entry, 
            @NotNull ContentPackage2FeatureModelConverter converter,
            String runMode) throws IOException, ConverterException {
+        handle(path, archive, entry, converter, runMode, requireMatch(path));
+    }
+
+    @Override
+    public void handle(@NotNull String path,
+           @NotNull Archive archive,
+           @NotNull Entry entry,
+           @NotNull ContentPackage2FeatureModelConverter converter,
+           String runMode,
+           @NotNull EntryMatch match) throws IOException, ConverterException {
         logger.info("Processing bundle {}...", entry.getName());
 
-        Matcher matcher = getPattern().matcher(path);
-        
         Integer startLevel = null;
-        // we are pretty sure it matches, here
-        if (!matcher.matches()) {
-            throw new IllegalStateException("Something went terribly wrong: pattern '"
-                                            + getPattern().pattern()
-                                            + "' should have matched already with path '"
-                                            + path
-                                            + "' but it does not, currently");
-        }
 
-        if (enforceBundlesBelowInstallFolder && !"install".equals(matcher.group("foldername"))) {
+        if (enforceBundlesBelowInstallFolder && !"install".equals(match.group("foldername"))) {
             throw new ConverterException("OSGi bundles are only considered if placed below a folder called 'install', but the bundle at '"+ path + "' is placed outside!");
         }
 
         // determine run mode string for current path
-        String runModeMatch = matcher.group("runmode");
+        String runModeMatch = match.group("runmode");
 
         String targetRunMode = extractTargetRunMode(path, converter, runMode,
             runModeMatch);
 
-        final String value = matcher.group("startlevel");
+        final String value = match.group("startlevel");
         if (value != null) {
             // there is a specified Start Level
             startLevel = Integer.parseInt(value); // NumberFormatException impossible due to RegEx
@@ -22,15 +22,26 @@ import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DefaultEntryHandlersManager implements EntryHandlersManager {
 
-    private final List<EntryHandler> entryHandlers = new LinkedList<>();
+    private static final int MAX_INDEXED_EXTENSIONS = 1024;
+
+    private static final String NO_EXTENSION = "";
+
+    private final List<EntryHandler> entryHandlers = new ArrayList<>();
+
+    /**
+     * The handlers which can possibly match the paths with a given extension, in registration order.
+     */
+    private final ConcurrentMap<String, EntryHandler[]> candidatesByExtension = new ConcurrentHashMap<>();
 
     public DefaultEntryHandlersManager() {
         this(Collections.emptyMap(), 
@@ -70,18 +81,73 @@ public class DefaultEntryHandlersManager implements EntryHandlersManager {
     }
 
     @Override
-    public void addEntryHandler(@NotNull EntryHandler handler) {
+    public synchronized void addEntryHandler(@NotNull EntryHandler handler) {
         entryHandlers.add(handler);
+        candidatesByExtension.clear();
     }
 
     @Override
     public @Nullable EntryHandler getEntryHandlerByEntryPath(@NotNull String path) {
-        for (EntryHandler entryHandler : entryHandlers) {
-            if (entryHandler.matches(path)) {
-                return entryHandler;
+        EntryMatch match = getEntryMatchByEntryPath(path);
+        return match != null ? match.getHandler() : null;
+    }
+
+    @Override
+    public @Nullable EntryMatch getEntryMatchByEntryPath(@NotNull String path) {
+        for (EntryHandler entryHandler : getCandidates(getExtension(path))) {
+            if (path.startsWith(entryHandler.getPathPrefix()) && path.endsWith(entryHandler.getPathSuffix())) {
+                EntryMatch match = entryHandler.match(path);
+                if (match != null) {
+                    return match;
+                }
             }
         }
         return null;
     }
 
+    private @NotNull EntryHandler[] getCandidates(@NotNull String extension) {
+        EntryHandler[] candidates = candidatesByExtension.get(extension);
+        if (candidates == null) {
+            candidates = computeCandidates(extension);
+        }
+        return candidates;
+    }
+
+    private synchronized @NotNull EntryHandler[] computeCandidates(@NotNull String extension) {
+        List<EntryHandler> compatibleHandlers = new ArrayList<>();
+        for (EntryHandler entryHandler : entryHandlers) {
+            if (isCompatible(extension, entryHandler.getPathSuffix())) {
+                compatibleHandlers.add(entryHandler);
+            }
+        }
+        EntryHandler[] candidates = compatibleHandlers.toArray(new EntryHandler[0]);
+        if (candidatesByExtension.size() < MAX_INDEXED_EXTENSIONS) {
+            candidatesByExtension.put(extension, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return the extension of the last path segment, dot included, or the empty string if it has none
+     */
+    static @NotNull String getExtension(@NotNull String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot == -1 || dot < path.lastIndexOf('/')) {
+            return NO_EXTENSION;
+        }
+        return path.substring(dot);
+    }
+
+    /**
+     * @return {@code false} if no path with the given extension can end with the given suffix
+     */
+    static boolean isCompatible(@NotNull String extension, @NotNull String suffix) {
+        if (NO_EXTENSION.equals(extension)) {
+            // a dot in the suffix would have to be followed by a slash
+            return suffix.lastIndexOf('.') <= suffix.lastIndexOf('/');
+        }
+        // both are tails of the same path
+        return extension.endsWith(suffix) || suffix.endsWith(extension);
+    }
+
 }
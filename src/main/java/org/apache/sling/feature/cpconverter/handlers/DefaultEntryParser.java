@@ -16,9 +16,12 @@
  */
 package org.apache.sling.feature.cpconverter.handlers;
 
+import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.vault.util.PathUtil;
 import org.apache.sling.feature.cpconverter.shared.AbstractJcrNodeParser;
+import org.apache.sling.feature.cpconverter.shared.NodeTypes;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.xml.sax.Attributes;
 
 import java.util.LinkedHashSet;
@@ -27,12 +30,13 @@ import java.util.Set;
 
 /**
  * Implementation of {@link AbstractJcrNodeParser} that builds and records paths of all elements (nodes) using the 
- * specified initial repository path.
+ * specified initial repository path, along with the types of the {@code jcr:root} node.
  */
 public class DefaultEntryParser extends AbstractJcrNodeParser<Set<String>> {
     
     private final LinkedList<String> currentPath = new LinkedList<>();
     private final Set<String> coveredNodePaths = new LinkedHashSet<>();
+    private NodeTypes nodeTypes;
 
     /**
      * Create a new {@link DefaultEntryParser}.
@@ -46,6 +50,10 @@ public class DefaultEntryParser extends AbstractJcrNodeParser<Set<String>> {
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) {
         if (JCR_ROOT.equals(qName)) {
+            String primaryType = attributes.getValue(JcrConstants.JCR_PRIMARYTYPE);
+            if (primaryType != null) {
+                nodeTypes = new NodeTypes(primaryType, NodeTypes.parseMixinTypes(attributes.getValue(JcrConstants.JCR_MIXINTYPES)));
+            }
             return;
         }
         
@@ -71,4 +79,11 @@ public class DefaultEntryParser extends AbstractJcrNodeParser<Set<String>> {
     public Set<String> getParsingResult() {
         return coveredNodePaths;
     }
+
+    /**
+     * @return The types of the {@code jcr:root} node, {@code null} if it has no primary type.
+     */
+    public @Nullable NodeTypes getNodeTypes() {
+        return nodeTypes;
+    }
 }
\ No newline at end of file
@@ -23,11 +23,39 @@ import org.apache.jackrabbit.vault.fs.io.Archive.Entry;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.ConverterException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface EntryHandler {
 
     boolean matches(@NotNull String path);
 
+    /**
+     * Matches a path, keeping what was captured while matching it.
+     *
+     * @param path the entry path
+     * @return the match, to be passed to {@link #handle(String, Archive, Entry, ContentPackage2FeatureModelConverter, String, EntryMatch)},
+     * {@code null} if this handler does not match the path
+     */
+    default @Nullable EntryMatch match(@NotNull String path) {
+        return matches(path) ? new EntryMatch(this, path) : null;
+    }
+
+    /**
+     * @return the literal prefix of all the paths this handler matches, so that it is not even asked about the
+     * other paths; the empty string if there is none
+     */
+    default @NotNull String getPathPrefix() {
+        return "";
+    }
+
+    /**
+     * @return the literal suffix of all the paths this handler matches, so that it is not even asked about the
+     * other paths; the empty string if there is none
+     */
+    default @NotNull String getPathSuffix() {
+        return "";
+    }
+
     default void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter) 
             throws IOException, ConverterException {
         handle(path, archive, entry, converter, null);
@@ -36,6 +64,15 @@ public interface EntryHandler {
     void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode) 
             throws IOException, ConverterException;
 
+    /**
+     * Handles an entry previously matched by {@link #match(String)}; handlers which do not make use of the match
+     * get the entry handled by {@link #handle(String, Archive, Entry, ContentPackage2FeatureModelConverter, String)}.
+     */
+    default void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode,
+            @NotNull EntryMatch match) throws IOException, ConverterException {
+        handle(path, archive, entry, converter, runMode);
+    }
+
     default EntryHandler withConfig(@NotNull String config) {
         return this;
     }
@@ -23,6 +23,15 @@ public interface EntryHandlersManager {
 
     @Nullable EntryHandler getEntryHandlerByEntryPath(@NotNull String path);
 
+    /**
+     * @param path the entry path
+     * @return the match of the handler in charge of the given path, {@code null} if there is none
+     */
+    default @Nullable EntryMatch getEntryMatchByEntryPath(@NotNull String path) {
+        EntryHandler entryHandler = getEntryHandlerByEntryPath(path);
+        return entryHandler != null ? entryHandler.match(path) : null;
+    }
+
     void addEntryHandler(@NotNull EntryHandler handler);
 
 }
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.handlers;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.jackrabbit.vault.fs.io.Archive.Entry;
+import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
+import org.apache.sling.feature.cpconverter.ConverterException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The outcome of matching an entry path against an {@link EntryHandler}, carrying the groups captured by its
+ * regular expression, if any, so that they do not have to be matched again while handling the entry.
+ */
+public final class EntryMatch {
+
+    private final EntryHandler handler;
+
+    private final String path;
+
+    private final Matcher matcher;
+
+    /**
+     * @param handler the handler the path matched
+     * @param path the matched path
+     */
+    public EntryMatch(@NotNull EntryHandler handler, @NotNull String path) {
+        this(handler, path, null);
+    }
+
+    /**
+     * @param handler the handler the path matched
+     * @param path the matched path
+     * @param matcher the matcher which successfully matched the whole path, {@code null} if the handler does not
+     * capture groups
+     */
+    public EntryMatch(@NotNull EntryHandler handler, @NotNull String path, @Nullable Matcher matcher) {
+        this.handler = handler;
+        this.path = path;
+        this.matcher = matcher;
+    }
+
+    public @NotNull EntryHandler getHandler() {
+        return handler;
+    }
+
+    public @NotNull String getPath() {
+        return path;
+    }
+
+    /**
+     * @param group the group index
+     * @return the captured group, {@code null} if the group did not participate to the match or the handler does
+     * not capture groups
+     */
+    public @Nullable String group(int group) {
+        return matcher != null ? matcher.group(group) : null;
+    }
+
+    /**
+     * @param name the group name, e.g. {@code runmode}
+     * @return the captured group, {@code null} if the group did not participate to the match or the handler does
+     * not capture groups
+     * @throws IllegalArgumentException if the handler regular expression has no group with the given name
+     */
+    public @Nullable String group(@NotNull String name) {
+        return matcher != null ? matcher.group(name) : null;
+    }
+
+    /**
+     * Lets the matched handler handle the entry.
+     *
+     * @param archive the archive the entry belongs to
+     * @param entry the matched entry
+     * @param converter the current converter
+     * @param runMode the inherited run mode, may be {@code null}
+     * @throws IOException if the entry can not be read
+     * @throws ConverterException if the entry can not be converted
+     */
+    public void handle(@NotNull Archive archive, @NotNull Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, @Nullable String runMode)
+            throws IOException, ConverterException {
+        handler.handle(path, archive, entry, converter, runMode, this);
+    }
+
+}
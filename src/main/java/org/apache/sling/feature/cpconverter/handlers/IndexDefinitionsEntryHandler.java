@@ -20,10 +20,14 @@ import static java.lang.String.format;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Optional;
 
 import javax.jcr.RepositoryException;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.util.Text;
 import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.io.Archive;
@@ -64,6 +68,17 @@ public class IndexDefinitionsEntryHandler extends AbstractRegexEntryHandler {
             ")$)[^.]+$"; // match everything else
 
     private static final String EXTENSION_XML = ".xml";
+
+    private static final String JCR_ROOT_PATH = "/jcr_root";
+
+    private static final String CONTENT_XML_SUFFIX = "/.content.xml";
+
+    private static final String DIR_SUFFIX = ".dir";
+
+    /**
+     * Entries larger than this are spooled to a temporary file rather than kept in memory.
+     */
+    private static final int IN_MEMORY_THRESHOLD = 1024 * 1024;
     
     // we hardcode the node type name to avoid a dependency on oak-core
     private static final String NODETYPE_OAK_QUERY_INDEX_DEFINITION = "oak:QueryIndexDefinition";
@@ -77,14 +92,14 @@ public class IndexDefinitionsEntryHandler extends AbstractRegexEntryHandler {
     }
     
     private static boolean isOakIndexDefinitionAsFullCoverageAggregate(@NotNull String repositoryPath,
-            @NotNull Archive archive, @NotNull Entry entry) throws IOException, XmlParseException {
+            @NotNull DeferredFileOutputStream content) throws IOException, XmlParseException {
         
         if ( !repositoryPath.endsWith(EXTENSION_XML) )
             return false;
         
         DocViewParser parser = new DocViewParser(new SimpleNamespaceResolver());
         
-        try (InputStream isCheck = archive.openInputStream(entry)) {
+        try (InputStream isCheck = content.toInputStream()) {
             IndexDefinitionAsFullCoverageDetectorParserHandler parserHandler = new IndexDefinitionAsFullCoverageDetectorParserHandler(repositoryPath);
             
             parser.parse(repositoryPath, new InputSource(isCheck), parserHandler);
@@ -93,6 +108,17 @@ public class IndexDefinitionsEntryHandler extends AbstractRegexEntryHandler {
         }
     }
 
+    static @NotNull String toPlatformPath(@NotNull String path) {
+        String platformPath = path;
+        if (platformPath.startsWith(JCR_ROOT_PATH)) {
+            platformPath = platformPath.substring(JCR_ROOT_PATH.length());
+        }
+        if (platformPath.endsWith(CONTENT_XML_SUFFIX)) {
+            platformPath = platformPath.substring(0, platformPath.length() - CONTENT_XML_SUFFIX.length());
+        }
+        return StringUtils.remove(platformPath, DIR_SUFFIX);
+    }
+
     public IndexDefinitionsEntryHandler() {
         super(PATH_PATTERN);
     }
@@ -104,45 +130,69 @@ public class IndexDefinitionsEntryHandler extends AbstractRegexEntryHandler {
         IndexManager indexManager = converter.getIndexManager();
         if ( indexManager == null ) {
             logger.info("{} not present, will skip index definition extraction", IndexManager.class.getName());
-        } else {
+            converter.getMainPackageAssembler().addEntry(path, archive, entry);
+            return;
+        }
+
+        // the entry is read once, then shared by the detection, the parsing and the assembly
+        DeferredFileOutputStream content = DeferredFileOutputStream.builder()
+                .setThreshold(IN_MEMORY_THRESHOLD)
+                .setPrefix("index-definition")
+                .setSuffix(".tmp")
+                .setDirectory(converter.getTempDirectory())
+                .get();
+        try {
             try (InputStream is = archive.openInputStream(entry)) {
+                IOUtils.copy(is, content);
+            } finally {
+                content.close();
+            }
 
-                String platformPath = path.replaceAll("^/jcr_root", "")
-                        .replaceAll("/\\.content\\.xml$", "")
-                        .replace(".dir", "");
-                String repositoryPath = PlatformNameFormat.getRepositoryPath(platformPath);
-                InputSource inputSource = new InputSource(is);
+            handle(path, archive, entry, converter, indexManager, content);
+        } finally {
+            if (!content.isInMemory()) {
+                Files.deleteIfExists(content.getPath());
+            }
+        }
+    }
+
+    private void handle(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry,
+            @NotNull ContentPackage2FeatureModelConverter converter, @NotNull IndexManager indexManager,
+            @NotNull DeferredFileOutputStream content) throws IOException, ConverterException {
+        try {
+            String repositoryPath = PlatformNameFormat.getRepositoryPath(toPlatformPath(path));
+
+            boolean isDocView = false;
+            // DocViewParser.isDocView closes the input stream it is passed
+            try ( InputStream isCheck = content.toInputStream() ) {
+                isDocView =  DocViewParser.isDocView(new InputSource(isCheck));
+            }
+            if ( isDocView ) {
+                DocViewParser parser = new DocViewParser(new SimpleNamespaceResolver());
 
-                boolean isDocView = false;
-                // DocViewParser.isDocView closes the input stream it is passed
-                try ( InputStream isCheck = archive.openInputStream(entry) ) {
-                    isDocView =  DocViewParser.isDocView(new InputSource(isCheck));
+                // SLING-12469 - support index definitions serialized as full coverage aggregates
+                if (isOakIndexDefinitionAsFullCoverageAggregate(repositoryPath, content)) {
+                    repositoryPath = removeXmlExtension(repositoryPath);
                 }
-                if ( isDocView ) {
-                    DocViewParser parser = new DocViewParser(new SimpleNamespaceResolver());
-                    
-                    // SLING-12469 - support index definitions serialized as full coverage aggregates
-                    if (isOakIndexDefinitionAsFullCoverageAggregate(repositoryPath, archive, entry)) {
-                        repositoryPath = removeXmlExtension(repositoryPath);
-                    }
-                    IndexDefinitionsParserHandler handler = new IndexDefinitionsParserHandler(archive.getMetaInf().getFilter(), indexManager.getIndexes());
+                IndexDefinitionsParserHandler handler = new IndexDefinitionsParserHandler(archive.getMetaInf().getFilter(), indexManager.getIndexes());
 
-                    parser.parse(repositoryPath, inputSource, handler);
+                try (InputStream is = content.toInputStream()) {
+                    parser.parse(repositoryPath, new InputSource(is), handler);
+                }
 
-                } else {
-                    // binary file, should we attach?
-                    if ( archive.getMetaInf().getFilter().contains(repositoryPath)) {
+            } else {
+                // binary file, should we attach?
+                if ( archive.getMetaInf().getFilter().contains(repositoryPath)) {
+                    try (InputStream is = content.toInputStream()) {
                         indexManager.getIndexes().registerBinary(repositoryPath, is);
                     }
                 }
-
-
-            } catch (XmlParseException e) {
-                throw new ConverterException("Failed parsing the index definitions", e);
             }
+        } catch (XmlParseException e) {
+            throw new ConverterException("Failed parsing the index definitions", e);
         }
 
-        converter.getMainPackageAssembler().addEntry(path, archive, entry);
+        converter.getMainPackageAssembler().addEntry(path, archive, entry, content::toInputStream);
     }
 
     static class DocViewParserHandlerAdapter implements DocViewParserHandler {
@@ -22,9 +22,9 @@ import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
-import javax.xml.transform.sax.TransformerHandler;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
@@ -42,7 +42,7 @@ public class RepPolicyEntryHandler extends AbstractPolicyEntryHandler {
     }
 
     @NotNull
-    AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull TransformerHandler handler) {
+    AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull ContentHandler handler) {
         return new RepPolicyParser(repositoryPath, aclManager, handler);
     }
 
@@ -62,7 +62,7 @@ public class RepPolicyEntryHandler extends AbstractPolicyEntryHandler {
         // just internal pointer for every iteration
         private boolean processCurrentAce = false;
 
-        public RepPolicyParser(RepoPath repositoryPath, AclManager aclManager, TransformerHandler handler) {
+        public RepPolicyParser(RepoPath repositoryPath, AclManager aclManager, ContentHandler handler) {
             super(REP_ACL, repositoryPath, aclManager, handler);
         }
 
@@ -23,9 +23,9 @@ import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.SAXException;
 
-import javax.xml.transform.sax.TransformerHandler;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -38,7 +38,7 @@ public final class RepPrincipalPolicyEntryHandler extends AbstractPolicyEntryHan
     }
 
     @Override
-    @NotNull AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull TransformerHandler handler) {
+    @NotNull AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull ContentHandler handler) {
         return new RepPrincipalPolicyParser(repositoryPath,
                 aclManager,
                 handler);
@@ -60,7 +60,7 @@ public final class RepPrincipalPolicyEntryHandler extends AbstractPolicyEntryHan
 
         private String principalName = null;
 
-        public RepPrincipalPolicyParser(RepoPath repositoryPath, AclManager aclManager, TransformerHandler handler) {
+        public RepPrincipalPolicyParser(RepoPath repositoryPath, AclManager aclManager, ContentHandler handler) {
             super(REP_PRINCIPAL_POLICY, repositoryPath, aclManager, handler);
         }
 
@@ -19,8 +19,7 @@ package org.apache.sling.feature.cpconverter.handlers;
 import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
 import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.jetbrains.annotations.NotNull;
-
-import javax.xml.transform.sax.TransformerHandler;
+import org.xml.sax.ContentHandler;
 
 public class RepRepoPolicyEntryHandler extends RepPolicyEntryHandler {
 
@@ -29,7 +28,7 @@ public class RepRepoPolicyEntryHandler extends RepPolicyEntryHandler {
     }
 
     @Override
-    @NotNull AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull TransformerHandler handler) {
+    @NotNull AbstractPolicyParser createPolicyParser(@NotNull RepoPath repositoryPath, @NotNull AclManager aclManager, @NotNull ContentHandler handler) {
         return new RepPolicyParser(new RepoPath("") , aclManager, handler);
     }
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.handlers;
+
+import org.jetbrains.annotations.NotNull;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the document and element events it receives, so that they can be replayed later on, only if needed.
+ */
+final class SaxEventsRecorder extends DefaultHandler {
+
+    private final List<SaxEvent> events = new ArrayList<>();
+
+    @Override
+    public void startDocument() {
+        events.add(ContentHandler::startDocument);
+    }
+
+    @Override
+    public void endDocument() {
+        events.add(ContentHandler::endDocument);
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+        // the parser reuses its attributes
+        Attributes copy = new AttributesImpl(attributes);
+        events.add(handler -> handler.startElement(uri, localName, qName, copy));
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) {
+        events.add(handler -> handler.endElement(uri, localName, qName));
+    }
+
+    void replay(@NotNull ContentHandler handler) throws SAXException {
+        for (SaxEvent event : events) {
+            event.replay(handler);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SaxEvent {
+
+        void replay(@NotNull ContentHandler handler) throws SAXException;
+
+    }
+
+}
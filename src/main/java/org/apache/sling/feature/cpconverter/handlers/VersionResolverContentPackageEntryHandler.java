@@ -23,12 +23,17 @@ import org.apache.jackrabbit.vault.packaging.PackageId;
 import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.ConverterException;
+import org.apache.sling.feature.cpconverter.vltpkg.FirstPassJournal;
 import org.apache.sling.feature.cpconverter.vltpkg.RecollectorVaultPackageScanner;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public final class VersionResolverContentPackageEntryHandler extends AbstractContentPackageHandler {
-    
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VersionResolverContentPackageEntryHandler.class);
+
     private final RecollectorVaultPackageScanner scanner;
 
     private final Map<PackageId, String> subContentPackages;
@@ -41,41 +46,65 @@ public final class VersionResolverContentPackageEntryHandler extends AbstractCon
     @Override
     protected void processSubPackage(@NotNull String path, @Nullable String runMode, @NotNull VaultPackage contentPackage, @NotNull ContentPackage2FeatureModelConverter converter, boolean isEmbeddedPackage)
             throws IOException, ConverterException {
+        PackageId currentId = contentPackage.getId();
+
+        if (resolve(subContentPackages, currentId, path)) {
+            FirstPassJournal journal = scanner.getJournal();
+            if (journal != null) {
+                journal.enterSubPackage(currentId, path);
+            }
+            try {
+                // iteratively traverse the sub(-sub)*content-packages
+                scanner.traverse(contentPackage, runMode);
+            } finally {
+                if (journal != null) {
+                    journal.exitSubPackage();
+                }
+            }
+        }
+    }
 
+    /**
+     * Records the given sub content-package in the map, unless a newer version of the same package has been
+     * recorded already; an older version gets replaced.
+     *
+     * @param subContentPackages the sub content-packages recorded so far, mapped to their paths
+     * @param currentId the id of the sub content-package to resolve
+     * @param path the path of the sub content-package
+     * @return {@code true} if the sub content-package has been recorded, {@code false} otherwise
+     */
+    public static boolean resolve(@NotNull Map<PackageId, String> subContentPackages, @NotNull PackageId currentId, @NotNull String path) {
         boolean addPackage;
-        PackageId currentId = contentPackage.getId();
 
-        logger.info("Checking if other {}:{} content-package versions were handled already", currentId.getGroup(), currentId.getName());
+        LOGGER.info("Checking if other {}:{} content-package versions were handled already", currentId.getGroup(), currentId.getName());
 
-        PackageId olderId = getPackage(currentId);
+        PackageId olderId = getPackage(subContentPackages, currentId);
 
         if (olderId != null) {
-            logger.info("Comparing {}:{} package versions: current one is {}, previous one is {} ",
+            LOGGER.info("Comparing {}:{} package versions: current one is {}, previous one is {} ",
                         currentId.getGroup(), currentId.getName(), currentId.getVersionString(), olderId.getVersionString());
 
             addPackage = currentId.compareTo(olderId) > 0;
 
             if (addPackage) {
-                logger.info("Replacing version {} of content-package {}:{} with version {}",
+                LOGGER.info("Replacing version {} of content-package {}:{} with version {}",
                             olderId.getVersionString(), currentId.getGroup(), currentId.getName(), currentId.getVersionString());
 
                 subContentPackages.remove(olderId);
             }
         } else {
-            logger.info("There were no other versions of content-package: {}:{}", currentId.getGroup(), currentId.getName());
+            LOGGER.info("There were no other versions of content-package: {}:{}", currentId.getGroup(), currentId.getName());
 
             addPackage = true;
         }
 
         if (addPackage) {
             subContentPackages.put(currentId, path);
-
-            // iteratively traverse the sub(-sub)*content-packages
-            scanner.traverse(contentPackage, runMode);
         }
+        return addPackage;
     }
 
-    private @Nullable PackageId getPackage(@NotNull PackageId expectedId) {
+    private static @Nullable PackageId getPackage(@NotNull Map<PackageId, String> subContentPackages, @NotNull PackageId expectedId) {
         for (PackageId currentId : subContentPackages.keySet()) {
             if (expectedId.getGroup().equals(currentId.getGroup())
                     && expectedId.getName().equals(currentId.getName())) {
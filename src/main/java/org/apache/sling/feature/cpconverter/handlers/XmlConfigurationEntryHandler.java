@@ -59,6 +59,11 @@ public final class XmlConfigurationEntryHandler extends AbstractConfigurationEnt
             super(SLING_OSGICONFIG);
         }
 
+        @Override
+        protected boolean isRootElementOnly() {
+            return true;
+        }
+
         @Override
         protected void onJcrRootElement(String uri, String localName, String qName, Attributes attributes) {
             configuration = Configurations.newConfiguration();
@@ -17,16 +17,36 @@
 package org.apache.sling.feature.cpconverter.index;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import org.apache.sling.feature.cpconverter.ConverterException;
 import org.apache.sling.feature.cpconverter.features.FeaturesManager;
+import org.jetbrains.annotations.Nullable;
 
 public class DefaultIndexManager implements IndexManager {
 
-    private IndexDefinitions indexDefinitions = new IndexDefinitions();
-    private IndexDefinitionsJsonWriter writer = new IndexDefinitionsJsonWriter(indexDefinitions);
+    private final long binariesHeapBudget;
+    private final File binariesDirectory;
+    private IndexDefinitions indexDefinitions;
+    private IndexDefinitionsJsonWriter writer;
+
+    public DefaultIndexManager() {
+        this(IndexDefinitions.DEFAULT_BINARIES_HEAP_BUDGET, null);
+    }
+
+    /**
+     * @param binariesHeapBudget the maximum number of index binary bytes kept on the heap
+     * @param binariesDirectory the directory where the index binaries exceeding the budget are spilled, {@code null}
+     * for the default temporary directory
+     */
+    public DefaultIndexManager(long binariesHeapBudget, @Nullable File binariesDirectory) {
+        this.binariesHeapBudget = binariesHeapBudget;
+        this.binariesDirectory = binariesDirectory;
+        this.indexDefinitions = new IndexDefinitions(binariesHeapBudget, binariesDirectory);
+        this.writer = new IndexDefinitionsJsonWriter(indexDefinitions);
+    }
 
     @Override
     public void addRepoinitExtension(FeaturesManager features) throws IOException, ConverterException {
@@ -46,7 +66,8 @@ public class DefaultIndexManager implements IndexManager {
 
     @Override
     public void reset() {
-        indexDefinitions = new IndexDefinitions();
+        indexDefinitions.close();
+        indexDefinitions = new IndexDefinitions(binariesHeapBudget, binariesDirectory);
         writer = new IndexDefinitionsJsonWriter(indexDefinitions);
     }
 }
@@ -16,23 +16,26 @@
  */
 package org.apache.sling.feature.cpconverter.index;
 
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.vault.util.DocViewNode2;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Holds information about discovered index definitions
@@ -43,47 +46,77 @@ import org.jetbrains.annotations.NotNull;
  * <p>This class supports non-root indexes but does not attempt to enforce Oak-level invariants, such as which index
  * types support non-root locations.</p>
  *
+ * <p>Binaries are kept on the heap up to a configurable budget and spilled to temporary files past it, which are
+ * deleted when the instance is {@link #close() closed}.</p>
+ *
  */
-public class IndexDefinitions {
+public class IndexDefinitions implements Closeable {
 
     public static final String OAK_INDEX_NAME = "oak:index";
     public static final String OAK_INDEX_PATH = "/" + OAK_INDEX_NAME; // NOSONAR - java:S1075 does not apply as this is not a filesystem path
 
-    private final Map<String, List<DocViewNode2>> children = new HashMap<>();
-    private final Map<String, byte[]> binaries = new HashMap<>();
+    /**
+     * The default number of binary bytes kept on the heap
+     */
+    public static final long DEFAULT_BINARIES_HEAP_BUDGET = 8L * 1024 * 1024;
+
+    /**
+     * The child nodes by parent path, then by name, in insertion order
+     */
+    private final Map<String, Map<Name, DocViewNode2>> children = new HashMap<>();
+    /**
+     * The subset of {@link #children} located under an {@code oak:index} node
+     */
+    private final Map<String, Map<Name, DocViewNode2>> indexes = new HashMap<>();
+    private final SpillingBinaryStore binaries;
     private Map<String, String> prefixesToUris = new HashMap<>();
     private Map<String, String> urisToPrefixes = new HashMap<>();
 
+    public IndexDefinitions() {
+        this(DEFAULT_BINARIES_HEAP_BUDGET, null);
+    }
+
+    /**
+     * @param binariesHeapBudget the maximum number of binary bytes kept on the heap
+     * @param binariesDirectory the directory where the binaries exceeding the budget are spilled, {@code null} for
+     * the default temporary directory
+     */
+    public IndexDefinitions(long binariesHeapBudget, @Nullable File binariesDirectory) {
+        binaries = new SpillingBinaryStore(binariesHeapBudget, binariesDirectory);
+    }
+
     public void addNode(@NotNull String parentPath, @NotNull DocViewNode2 node) {
-        List<DocViewNode2> currentChildren = children.computeIfAbsent(parentPath, k -> new ArrayList<>());
-        DocViewNode2 existing = null;
+        Map<Name, DocViewNode2> currentChildren = children.computeIfAbsent(parentPath, this::newChildren);
 
         if ( CollectionUtils.isEmpty(node.getProperties())
-                && ( binaries.get(parentPath + "/" + node.getName().getLocalName()) == null
+                && ( !hasBinary(parentPath + "/" + node.getName().getLocalName())
                 || node.getName().getLocalName().contains(".xml"))){
             return;
         }
-        for ( DocViewNode2 currentChild : currentChildren ) {
 
-            // prevent duplicates
-            if ( currentChild.getName().equals(node.getName() )) {
-                // new node holds less information. There should not be a scenario where we need to
-                // merge properties.
-                if ( node.getProperties().size() <= currentChild.getProperties().size() ) {
-                    return;
-                }
-
-                existing = currentChild;
+        // prevent duplicates
+        DocViewNode2 existing = currentChildren.get(node.getName());
+        if ( existing != null ) {
+            // new node holds less information. There should not be a scenario where we need to
+            // merge properties.
+            if ( node.getProperties().size() <= existing.getProperties().size() ) {
+                return;
             }
-        }
 
-        // remove node marked as placeholder
-        if ( existing != null ) {
-            currentChildren.remove(existing);
+            // remove node marked as placeholder, so that the new node is added last
+            currentChildren.remove(node.getName());
         }
 
         // add new node
-        currentChildren.add(node);
+        currentChildren.put(node.getName(), node);
+    }
+
+    private @NotNull Map<Name, DocViewNode2> newChildren(@NotNull String parentPath) {
+        Map<Name, DocViewNode2> newChildren = new LinkedHashMap<>();
+        if ( parentPath.endsWith(OAK_INDEX_PATH) ) {
+            indexes.put(parentPath, newChildren);
+        }
+        return newChildren;
     }
 
     /**
@@ -100,13 +133,16 @@ public class IndexDefinitions {
      * @return a map of discovered index locations, possibly empty
      */
     public @NotNull Map<String, List<DocViewNode2>> getIndexes() {
-        return children.entrySet().stream()
-            .filter( e -> e.getKey().endsWith(OAK_INDEX_PATH) )
-            .collect( Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue) );
+        Map<String, List<DocViewNode2>> indexesByLocation = new HashMap<>();
+        for ( Map.Entry<String, Map<Name, DocViewNode2>> location : indexes.entrySet() ) {
+            indexesByLocation.put(location.getKey(), new ArrayList<>(location.getValue().values()));
+        }
+        return indexesByLocation;
     }
 
     public @NotNull List<DocViewNode2> getChildren(@NotNull String parentPath) {
-        return children.getOrDefault(parentPath, Collections.emptyList());
+        Map<Name, DocViewNode2> currentChildren = children.get(parentPath);
+        return currentChildren == null ? Collections.emptyList() : new ArrayList<>(currentChildren.values());
     }
 
     /**
@@ -127,7 +163,8 @@ public class IndexDefinitions {
     /**
      * Registers a binary entry at the specified repository path
      *
-     * <p>The input stream may be fully read into memory, and therefore is not expected to be unreasonably large.</p>
+     * <p>The input stream is read into memory as long as the binaries heap budget allows it, into a temporary file
+     * otherwise.</p>
      *
      * <p>The input stream will be fully read, but not closed.</p>
      *
@@ -136,19 +173,54 @@ public class IndexDefinitions {
      * @throws IOException in case of I/O problems
      */
     public void registerBinary(@NotNull String repositoryPath, @NotNull InputStream is) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        IOUtils.copy(is, out);
-        binaries.put(repositoryPath, out.toByteArray());
+        binaries.put(repositoryPath, is);
+    }
+
+    /**
+     * Checks whether a binary is registered for a repository path
+     *
+     * @param repositoryPath the path of the repository
+     * @return true if a binary is registered
+     */
+    public boolean hasBinary(@NotNull String repositoryPath) {
+        return binaries.contains(repositoryPath);
+    }
+
+    /**
+     * Opens a potential binary registered for a repository path
+     *
+     * <p>The caller is responsible for closing the returned stream.</p>
+     *
+     * @param repositoryPath the path of the repository
+     * @return a new stream on the binary data, possibly {@code null}
+     * @throws IOException in case of I/O problems
+     */
+    public @Nullable InputStream openBinary(@NotNull String repositoryPath) throws IOException {
+        return binaries.open(repositoryPath);
     }
 
     /**
      * Returns a potential binary registered for a repository path
      *
+     * <p>The binary is fully read into memory, prefer {@link #openBinary(String)} for large binaries.</p>
+     *
      * @param repositoryPath the path of the repository
      * @return an optional wrapping the binary data, possibly {@link Optional#empty() empty}
      */
     public @NotNull Optional<byte[]> getBinary(@NotNull String repositoryPath) {
-        return Optional.ofNullable(binaries.get(repositoryPath));
+        try (InputStream is = binaries.open(repositoryPath)) {
+            return is == null ? Optional.empty() : Optional.of(IOUtils.toByteArray(is));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Binary '" + repositoryPath + "' could not be read", e);
+        }
+    }
+
+    /**
+     * Releases the registered binaries, deleting the spilled ones
+     */
+    @Override
+    public void close() {
+        binaries.close();
     }
 
     /**
@@ -183,7 +255,7 @@ public class IndexDefinitions {
         for ( int i = 0 ; i < 2 * depth; i++)
             padding.append(' ');
 
-        for ( DocViewNode2 node : children.getOrDefault(parentPath, Collections.emptyList()) ) {
+        for ( DocViewNode2 node : getChildren(parentPath) ) {
             out.println(padding.toString() + toShortName(node.getName()));
             dumpChildren(out, parentPath + '/' + node.getName().getLocalName());
         }
@@ -17,18 +17,23 @@
 package org.apache.sling.feature.cpconverter.index;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.Function;
 
 import javax.jcr.PropertyType;
 
+import org.apache.commons.io.input.ReaderInputStream;
+import org.apache.commons.io.output.StringBuilderWriter;
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.util.Base64;
 import org.apache.jackrabbit.vault.util.DocViewNode2;
@@ -73,6 +78,9 @@ public class IndexDefinitionsJsonWriter {
         }
     };
 
+    // only made of characters the generator does not escape, replaced by the streamed Base64 value
+    private static final String BLOB_PLACEHOLDER = "__blob__";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final IndexDefinitions indexDefinitions;
@@ -87,16 +95,17 @@ public class IndexDefinitionsJsonWriter {
      * @param out the output stream to write to
      */
     public void writeAsJson(@NotNull OutputStream out) throws IOException {
-        try ( JsonGenerator root = Json.createGenerator(out) ) {
+        CapturingWriter writer = new CapturingWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try ( JsonGenerator root = Json.createGenerator(writer) ) {
             root.writeStartObject();
             for ( Map.Entry<String, List<DocViewNode2>> indexEntry : indexDefinitions.getIndexes().entrySet() )
                 for ( DocViewNode2 index : indexEntry.getValue() )
-                    write(root, index, indexEntry.getKey());
+                    write(root, writer, index, indexEntry.getKey());
             root.writeEnd(); // end object declaration
         }
     }
 
-    private void write(JsonGenerator json, DocViewNode2 index, String parentPath) throws IOException {
+    private void write(JsonGenerator json, CapturingWriter writer, DocViewNode2 index, String parentPath) throws IOException {
 
         String nodeName = indexDefinitions.toShortName(index.getName());
         String objectKey = parentPath.equals(IndexDefinitions.OAK_INDEX_PATH) ?
@@ -149,33 +158,59 @@ public class IndexDefinitionsJsonWriter {
 
         // 3. write nt:data entries for nt:resource children of nt:files
         // in this case, this is the nt:resource node
-        Optional<byte[]> binary = indexDefinitions.getBinary(nodePath);
-        if ( binary.isPresent() ) {
+        boolean binary = indexDefinitions.hasBinary(nodePath);
+        if ( binary ) {
             write(json, JcrConstants.JCR_PRIMARYTYPE, Collections.singletonList(JcrConstants.NT_FILE),  s -> Json.createValue("nam:" + s ));
             json.writeStartObject(JcrConstants.JCR_CONTENT);
-            String blobAsString = new String(binary.get(), StandardCharsets.UTF_8);
             write(json, JcrConstants.JCR_PRIMARYTYPE, Collections.singletonList(JcrConstants.NT_RESOURCE),  s -> Json.createValue("nam:" + s ));
             write(json, JcrConstants.JCR_MIMETYPE,Collections.singletonList(Files.probeContentType(Paths.get(PlatformNameFormat.getPlatformName(nodeName)))), Json::createValue );
-            write(json, JcrConstants.JCR_DATA, Collections.singletonList(blobAsString), BLOB_MAPPER);
+            writeBlob(json, writer, JcrConstants.JCR_DATA, nodePath);
             json.writeEnd();
         }
 
         // 4. write children
         for ( DocViewNode2 child : indexDefinitions.getChildren(nodePath)) {
 
-            if( binary.isPresent()){
+            if( binary ){
                 String childNodeName = indexDefinitions.toShortName(child.getName());
                 if(childNodeName.equalsIgnoreCase(JcrConstants.JCR_CONTENT)) {
                     continue;
                 }
             }
-            write(json, child, nodePath);
+            write(json, writer, child, nodePath);
         }
 
         // 5. end object
         json.writeEnd();
     }
 
+    /**
+     * Base64-encodes the binary straight from the index definitions store into the generator output, without
+     * materialising either the binary or its encoded value.
+     *
+     * <p>The generator writes the property with a placeholder value, which is captured and replaced by the encoded
+     * binary. The binary goes through a UTF-8 decoding and encoding round-trip, so that the value is the same one
+     * {@link #BLOB_MAPPER} produces for its string representation.</p>
+     */
+    private void writeBlob(JsonGenerator json, CapturingWriter writer, String propertyName, String repositoryPath) throws IOException {
+        json.flush();
+        writer.startCapture();
+        json.write(propertyName, ":blobId:" + BLOB_PLACEHOLDER);
+        json.flush();
+        String captured = writer.stopCapture();
+
+        int placeholder = captured.indexOf(BLOB_PLACEHOLDER);
+        writer.write(captured, 0, placeholder);
+        try ( InputStream binary = indexDefinitions.openBinary(repositoryPath);
+              InputStream utf8 = ReaderInputStream.builder()
+                    .setReader(new InputStreamReader(binary, StandardCharsets.UTF_8))
+                    .setCharset(StandardCharsets.UTF_8)
+                    .get() ) {
+            Base64.encode(utf8, writer);
+        }
+        writer.write(captured, placeholder + BLOB_PLACEHOLDER.length(), captured.length() - placeholder - BLOB_PLACEHOLDER.length());
+    }
+
     private void write(JsonGenerator json, String propertyName, List<String> propertyValues, Function<String, JsonValue> mapper) {
         if ( propertyValues.size() == 1 ) {
             json.write(propertyName, mapper.apply(propertyValues.get(0)));
@@ -190,4 +225,50 @@ public class IndexDefinitionsJsonWriter {
         json.write(propertyName, arrayBuilder.build());
     }
 
+    /**
+     * Passes everything through to the wrapped writer, unless capturing, so that generated JSON snippets can be
+     * rewritten before reaching the output.
+     */
+    private static final class CapturingWriter extends Writer {
+
+        private final Writer out;
+
+        private StringBuilderWriter capture;
+
+        CapturingWriter(Writer out) {
+            this.out = out;
+        }
+
+        void startCapture() {
+            capture = new StringBuilderWriter();
+        }
+
+        String stopCapture() {
+            String captured = capture.toString();
+            capture = null;
+            return captured;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if ( capture != null ) {
+                capture.write(cbuf, off, len);
+            } else {
+                out.write(cbuf, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if ( capture == null ) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
 }
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.MemoryMappedFileInputStream;
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores binaries by repository path, on the heap as long as their overall size fits in the configured budget,
+ * in temporary files otherwise; spilled binaries are read back through memory mapping.
+ */
+final class SpillingBinaryStore implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<String, byte[]> inMemory = new HashMap<>();
+
+    private final Map<String, Path> spilled = new HashMap<>();
+
+    private final long heapBudget;
+
+    private final File directory;
+
+    private long heapUsage;
+
+    /**
+     * @param heapBudget the maximum number of bytes kept on the heap, across all the stored binaries
+     * @param directory the directory where the binaries exceeding the budget are spilled, {@code null} for the
+     * default temporary directory
+     */
+    SpillingBinaryStore(long heapBudget, @Nullable File directory) {
+        if (heapBudget < 0) {
+            throw new IllegalArgumentException("Negative heap budget " + heapBudget + " is not a valid budget");
+        }
+        this.heapBudget = heapBudget;
+        this.directory = directory;
+    }
+
+    /**
+     * Fully reads the input stream, without closing it, replacing any binary previously stored at the same path.
+     */
+    void put(@NotNull String path, @NotNull InputStream is) throws IOException {
+        remove(path);
+
+        DeferredFileOutputStream out = DeferredFileOutputStream.builder()
+                .setThreshold((int) Math.min(heapBudget - heapUsage, Integer.MAX_VALUE))
+                .setPrefix("index-binary")
+                .setSuffix(".tmp")
+                .setDirectory(directory)
+                .get();
+        try {
+            IOUtils.copy(is, out);
+        } finally {
+            out.close();
+        }
+
+        if (out.isInMemory()) {
+            byte[] data = out.getData();
+            heapUsage += data.length;
+            inMemory.put(path, data);
+        } else {
+            logger.debug("Binary '{}' exceeds the remaining heap budget, spilled to {}", path, out.getPath());
+            spilled.put(path, out.getPath());
+        }
+    }
+
+    boolean contains(@NotNull String path) {
+        return inMemory.containsKey(path) || spilled.containsKey(path);
+    }
+
+    /**
+     * @return a new stream on the binary stored at the given path, {@code null} if there is none
+     */
+    @Nullable InputStream open(@NotNull String path) throws IOException {
+        byte[] data = inMemory.get(path);
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
+        Path file = spilled.get(path);
+        if (file != null) {
+            return MemoryMappedFileInputStream.builder().setPath(file).get();
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of bytes currently held on the heap
+     */
+    long getHeapUsage() {
+        return heapUsage;
+    }
+
+    private void remove(@NotNull String path) {
+        byte[] data = inMemory.remove(path);
+        if (data != null) {
+            heapUsage -= data.length;
+        }
+        delete(spilled.remove(path));
+    }
+
+    private void delete(@Nullable Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Temporary file {} could not be deleted", file, e);
+        }
+    }
+
+    /**
+     * Drops all the stored binaries and deletes the spilled ones.
+     */
+    @Override
+    public void close() {
+        spilled.values().forEach(this::delete);
+        spilled.clear();
+        inMemory.clear();
+        heapUsage = 0;
+    }
+
+}
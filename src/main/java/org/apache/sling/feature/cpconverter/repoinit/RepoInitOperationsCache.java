@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.repoinit;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.sling.repoinit.parser.RepoInitParsingException;
+import org.apache.sling.repoinit.parser.impl.RepoInitParserService;
+import org.apache.sling.repoinit.parser.operations.Operation;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps the operations parsed from the recently seen repoinit scripts, keyed by source and text hash, so that the
+ * same script, e.g. the seed one, is parsed only once even if several visitors have to run over its operations.
+ *
+ * The operations are shared, visitors must not alter them.
+ */
+public final class RepoInitOperationsCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final Map<Key, ParsedScript> entries;
+
+    /**
+     * Same as {@code RepoInitOperationsCache(DEFAULT_MAX_ENTRIES)}
+     */
+    public RepoInitOperationsCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries the maximum number of scripts whose operations are kept, the least recently used are evicted
+     */
+    public RepoInitOperationsCache(int maxEntries) {
+        entries = new LinkedHashMap<Key, ParsedScript>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ParsedScript> eldest) {
+                return size() > maxEntries;
+            }
+
+        };
+    }
+
+    /**
+     * @param source the origin of the script, e.g. a configuration PID or {@code seed}
+     * @param repoInitText the repoinit script
+     * @return the unmodifiable list of parsed operations
+     * @throws RepoInitParsingException if the script is not valid
+     */
+    public @NotNull List<Operation> parse(@NotNull String source, @NotNull String repoInitText) throws RepoInitParsingException {
+        Key key = new Key(source, repoInitText.hashCode());
+        synchronized (entries) {
+            ParsedScript parsed = entries.get(key);
+            if (parsed != null && parsed.repoInitText.equals(repoInitText)) {
+                return parsed.operations;
+            }
+        }
+
+        List<Operation> operations = Collections.unmodifiableList(new RepoInitParserService().parse(new StringReader(repoInitText)));
+        synchronized (entries) {
+            entries.put(key, new ParsedScript(repoInitText, operations));
+        }
+        return operations;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static final class Key {
+
+        private final String source;
+
+        private final int textHash;
+
+        Key(@NotNull String source, int textHash) {
+            this.source = source;
+            this.textHash = textHash;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + textHash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return textHash == other.textHash && Objects.equals(source, other.source);
+        }
+
+    }
+
+    private static final class ParsedScript {
+
+        private final String repoInitText;
+
+        private final List<Operation> operations;
+
+        ParsedScript(@NotNull String repoInitText, @NotNull List<Operation> operations) {
+            this.repoInitText = repoInitText;
+            this.operations = operations;
+        }
+
+    }
+
+}
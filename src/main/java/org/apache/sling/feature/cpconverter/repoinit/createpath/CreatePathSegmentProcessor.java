@@ -18,18 +18,15 @@ package org.apache.sling.feature.cpconverter.repoinit.createpath;
 
 import org.apache.jackrabbit.vault.util.PlatformNameFormat;
 import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
+import org.apache.sling.feature.cpconverter.shared.NodeTypes;
 import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.apache.sling.feature.cpconverter.vltpkg.VaultPackageAssembler;
 import org.apache.sling.repoinit.parser.operations.CreatePath;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collection;
-import java.util.List;
-
-import static org.apache.jackrabbit.vault.util.Constants.DOT_CONTENT_XML;
 
 public class CreatePathSegmentProcessor {
 
@@ -37,7 +34,8 @@ public class CreatePathSegmentProcessor {
     }
 
     /**
-     * Process segments of a repopath to createpath, checking packageassemblers for existing primaryType definitions.
+     * Process segments of a repopath to createpath, checking packageassemblers for existing primaryType definitions,
+     * as indexed when their .content.xml entries were added, without reading any file.
      *
      * @param path
      * @param packageAssemblers
@@ -54,14 +52,13 @@ public class CreatePathSegmentProcessor {
             boolean segmentAdded = false;
             //loop all package assemblers and check if .content.xml is defined
             for (VaultPackageAssembler packageAssembler : packageAssemblers) {
-                File currentContent = packageAssembler.getFileEntry(repositoryPath.concat(ConverterConstants.SLASH).concat(DOT_CONTENT_XML));
-                if (currentContent.exists() && currentContent.isFile()) {
+                NodeTypes nodeTypes = getNodeTypes(packageAssembler, repositoryPath);
+                if (nodeTypes != null) {
                     //add segment if jcr:primaryType is defined.
-                    segmentAdded = addSegment(cp, part, currentContent);
-                    if (segmentAdded) {
-                        foundType = true;
-                        break;
-                    }
+                    cp.addSegment(part, nodeTypes.getPrimaryType(), nodeTypes.getMixinTypes());
+                    segmentAdded = true;
+                    foundType = true;
+                    break;
                 }
             }
             if (!segmentAdded) {
@@ -72,35 +69,15 @@ public class CreatePathSegmentProcessor {
         return foundType;
     }
 
-    private static boolean addSegment(@NotNull CreatePath cp, @NotNull String part, @NotNull File currentContent) {
-        try (FileInputStream input = new FileInputStream(currentContent);
-             FileInputStream input2 = new FileInputStream(currentContent)) {
-            String primary = new PrimaryTypeParser().parse(input);
-            if (primary != null) {
-                List<String> mixins = new ArrayList<>();
-                String mixin = new MixinParser().parse(input2);
-                if (mixin != null) {
-                    mixin = mixin.trim();
-                    if (mixin.startsWith("[")) {
-                        mixin = mixin.substring(1, mixin.length() - 1);
-                    }
-                    for (String m : mixin.split(",")) {
-                        String mixinName = m.trim();
-                        if (!mixinName.isEmpty()) {
-                            mixins.add(mixinName);
-                        }
-                    }
-                }
-                cp.addSegment(part, primary, mixins);
-                return true;
-            }
-        } catch (Exception e) {
+    private static @Nullable NodeTypes getNodeTypes(@NotNull VaultPackageAssembler packageAssembler, @NotNull String repositoryPath) {
+        try {
+            return packageAssembler.getNodeTypes(repositoryPath);
+        } catch (IOException e) {
             throw new RuntimeException("A fatal error occurred while parsing the '"
-                    + currentContent
-                    + "' file, see nested exceptions: "
+                    + repositoryPath
+                    + "' node types, see nested exceptions: "
                     + e, e);
         }
-        return false;
     }
 
 }
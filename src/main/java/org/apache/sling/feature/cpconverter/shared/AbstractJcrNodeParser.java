@@ -20,7 +20,9 @@ import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -38,6 +40,14 @@ public abstract class AbstractJcrNodeParser<O> extends DefaultHandler {
 
     private static final SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
 
+    /**
+     * Parsers are not thread safe but can be reused once reset: each thread keeps a few of them, more than one only
+     * when a parser is used while another one is still parsing.
+     */
+    private static final ThreadLocal<Deque<SAXParser>> saxParsers = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static final int MAX_POOLED_PARSERS = 4;
+
     private final List<String> primaryTypes;
 
     protected String detectedPrimaryType;
@@ -47,21 +57,65 @@ public abstract class AbstractJcrNodeParser<O> extends DefaultHandler {
     }
 
     public O parse(InputStream input) throws IOException {
+        Deque<SAXParser> pooledParsers = saxParsers.get();
+        SAXParser saxParser = pooledParsers.poll();
         try {
-            SAXParser saxParser = saxParserFactory.newSAXParser();
-            saxParser.parse(input, this);
+            if (saxParser == null) {
+                saxParser = newSAXParser();
+            }
+            try {
+                saxParser.parse(input, this);
+            } catch (ParsingStoppedException e) {
+                // the rest of the document is not needed
+            }
             return getParsingResult();    
         } catch ( final ParserConfigurationException | SAXException e) {
             throw new IOException(e.getMessage(), e);
+        } finally {
+            if (saxParser != null) {
+                release(pooledParsers, saxParser);
+            }
+        }
+    }
+
+    private static @NotNull SAXParser newSAXParser() throws ParserConfigurationException, SAXException {
+        // the factory is shared by all the threads
+        synchronized (saxParserFactory) {
+            return saxParserFactory.newSAXParser();
+        }
+    }
+
+    private static void release(@NotNull Deque<SAXParser> pooledParsers, @NotNull SAXParser saxParser) {
+        if (pooledParsers.size() >= MAX_POOLED_PARSERS) {
+            return;
+        }
+        try {
+            saxParser.reset();
+            pooledParsers.push(saxParser);
+        } catch (UnsupportedOperationException e) {
+            // can not be reused
         }
     }
 
+    /**
+     * Parsers only interested in the {@code jcr:root} element can stop the parsing right after it, without reading
+     * the rest of the document.
+     *
+     * @return {@code true} if the parsing stops after the first element, {@code false} by default
+     */
+    protected boolean isRootElementOnly() {
+        return false;
+    }
+
     @Override
     public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
         if (JCR_ROOT.equals(qName)) {
             String primaryType = attributes.getValue(JCR_PRIMARYTYPE);
             onJcrRootNode(uri, localName, qName, attributes, primaryType);
         }
+        if (isRootElementOnly()) {
+            throw ParsingStoppedException.INSTANCE;
+        }
     }
 
     protected void onJcrRootNode(String uri, String localName, String qName, Attributes attributes, String primaryType) {
@@ -74,4 +128,23 @@ public abstract class AbstractJcrNodeParser<O> extends DefaultHandler {
     protected abstract void onJcrRootElement(String uri, String localName, String qName, Attributes attributes);
 
     protected abstract O getParsingResult();
+
+    private static final class ParsingStoppedException extends SAXException {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final ParsingStoppedException INSTANCE = new ParsingStoppedException();
+
+        private ParsingStoppedException() {
+            super("Parsing stopped after the root element");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // control flow only
+            return this;
+        }
+
+    }
+
 }
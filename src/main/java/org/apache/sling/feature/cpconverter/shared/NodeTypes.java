@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.shared;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The primary type and the mixins declared by the root node of a {@code .content.xml} file.
+ */
+public final class NodeTypes {
+
+    private final String primaryType;
+
+    private final List<String> mixinTypes;
+
+    public NodeTypes(@NotNull String primaryType, @NotNull List<String> mixinTypes) {
+        this.primaryType = primaryType;
+        this.mixinTypes = Collections.unmodifiableList(new ArrayList<>(mixinTypes));
+    }
+
+    public @NotNull String getPrimaryType() {
+        return primaryType;
+    }
+
+    public @NotNull List<String> getMixinTypes() {
+        return mixinTypes;
+    }
+
+    /**
+     * @param mixinTypes the value of the {@code jcr:mixinTypes} attribute, e.g. {@code [mix:created,mix:lockable]}
+     * @return the mixin names, empty if the value is {@code null}
+     */
+    public static @NotNull List<String> parseMixinTypes(@Nullable String mixinTypes) {
+        List<String> mixins = new ArrayList<>();
+        if (mixinTypes != null) {
+            String value = mixinTypes.trim();
+            if (value.startsWith("[")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            for (String mixin : value.split(",")) {
+                String mixinName = mixin.trim();
+                if (!mixinName.isEmpty()) {
+                    mixins.add(mixinName);
+                }
+            }
+        }
+        return mixins;
+    }
+
+    @Override
+    public String toString() {
+        return primaryType + mixinTypes;
+    }
+
+}
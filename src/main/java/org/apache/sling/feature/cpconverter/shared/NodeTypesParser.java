@@ -14,22 +14,33 @@
  * License for the specific language governing permissions and limitations under
  * the License.
  */
-package org.apache.sling.feature.cpconverter.repoinit.createpath;
+package org.apache.sling.feature.cpconverter.shared;
 
 import org.apache.jackrabbit.JcrConstants;
-import org.apache.sling.feature.cpconverter.shared.AbstractJcrNodeParser;
+import org.jetbrains.annotations.Nullable;
 import org.xml.sax.Attributes;
 
-public final class MixinParser extends AbstractJcrNodeParser<String> {
-    private String mixins;
+/**
+ * Collects both the primary type and the mixins of the {@code jcr:root} node in a single pass.
+ */
+public final class NodeTypesParser extends AbstractJcrNodeParser<NodeTypes> {
+
+    private NodeTypes nodeTypes;
 
-    public MixinParser() {
+    public NodeTypesParser() {
         super();
     }
 
+    @Override
+    protected boolean isRootElementOnly() {
+        return true;
+    }
+
     @Override
     protected void onJcrRootNode(String uri, String localName, String qName, Attributes attributes, String primaryType) {
-        mixins = attributes.getValue(JcrConstants.JCR_MIXINTYPES);
+        if (primaryType != null) {
+            nodeTypes = new NodeTypes(primaryType, NodeTypes.parseMixinTypes(attributes.getValue(JcrConstants.JCR_MIXINTYPES)));
+        }
     }
 
     @Override
@@ -37,9 +48,12 @@ public final class MixinParser extends AbstractJcrNodeParser<String> {
         // not needed
     }
 
+    /**
+     * @return the types of the {@code jcr:root} node, {@code null} if it has no primary type
+     */
     @Override
-    protected String getParsingResult() {
-        return mixins;
+    protected @Nullable NodeTypes getParsingResult() {
+        return nodeTypes;
     }
 
 }
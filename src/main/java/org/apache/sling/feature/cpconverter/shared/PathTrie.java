@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.shared;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Indexes '/' separated paths by segment, so that the paths equal to or below a given root can be found by
+ * walking the root segments only, instead of testing every indexed path.
+ *
+ * A path is below a root when it starts with the root followed by a '/', as in
+ * {@link org.apache.jackrabbit.vault.fs.api.FilterSet#covers(String)}; likewise, a trailing '/' of a root is
+ * ignored, so that {@code /} is the root of all the absolute paths.
+ *
+ * {@link RepoPath}s can be indexed as well, by their {@link RepoPath#getSegments() segments}: as those do not include
+ * the empty segment before the leading '/' of the absolute string paths, a trie is meant to index either string
+ * paths or {@code RepoPath}s, not both.
+ */
+public final class PathTrie {
+
+    private final Node root = new Node();
+
+    private int size;
+
+    public PathTrie() {
+        // empty index
+    }
+
+    public PathTrie(@NotNull Collection<String> paths) {
+        for (String path : paths) {
+            add(path);
+        }
+    }
+
+    /**
+     * @param path the path to index
+     * @return {@code true} if the path was not indexed yet
+     */
+    public boolean add(@NotNull String path) {
+        Node node = root;
+        int start = 0;
+        while (true) {
+            int end = path.indexOf('/', start);
+            String segment = end == -1 ? path.substring(start) : path.substring(start, end);
+            node = node.getOrCreateChild(segment);
+            if (end == -1) {
+                break;
+            }
+            start = end + 1;
+        }
+        return mark(node, path);
+    }
+
+    /**
+     * @param path the repository path to index, ignored if it is the {@link RepoPath#isRepositoryPath() repository}
+     * @return {@code true} if the path was not indexed yet
+     */
+    public boolean add(@NotNull RepoPath path) {
+        if (path.isRepositoryPath()) {
+            return false;
+        }
+
+        Node node = root;
+        for (String segment : path.getSegments()) {
+            node = node.getOrCreateChild(segment);
+        }
+        return mark(node, path.toString());
+    }
+
+    private boolean mark(@NotNull Node node, @NotNull String path) {
+        if (node.path != null) {
+            return false;
+        }
+        node.path = path;
+        node.index = size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param rootPath the root path
+     * @return {@code true} if at least one indexed path is equal to or below the given root
+     */
+    public boolean containsDescendantsOrSelf(@NotNull String rootPath) {
+        // nodes only exist along the indexed paths
+        return find(rootPath) != null;
+    }
+
+    /**
+     * @param rootPath the root repository path
+     * @return {@code true} if at least one indexed path {@link RepoPath#startsWith(RepoPath) starts with} the given
+     * root
+     */
+    public boolean containsDescendantsOrSelf(@NotNull RepoPath rootPath) {
+        Node node = find(rootPath);
+        // the root node exists even if nothing has been indexed yet
+        return node != null && (node != root || size > 0);
+    }
+
+    /**
+     * @param rootPath the root repository path
+     * @return {@code true} if at least one indexed path is strictly below the given root
+     */
+    public boolean containsDescendants(@NotNull RepoPath rootPath) {
+        Node node = find(rootPath);
+        return node != null && node.children != null && !node.children.isEmpty();
+    }
+
+    /**
+     * @param rootPath the root path
+     * @return the indexed paths equal to or below the given root, in the order they were added
+     */
+    public @NotNull List<String> getDescendantsOrSelf(@NotNull String rootPath) {
+        Node node = find(rootPath);
+        if (node == null) {
+            return new ArrayList<>();
+        }
+
+        List<Node> found = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            Node current = pending.pop();
+            if (current.path != null) {
+                found.add(current);
+            }
+            if (current.children != null) {
+                for (Node child : current.children.values()) {
+                    pending.push(child);
+                }
+            }
+        }
+        found.sort((first, second) -> Integer.compare(first.index, second.index));
+
+        List<String> paths = new ArrayList<>(found.size());
+        for (Node current : found) {
+            paths.add(current.path);
+        }
+        return paths;
+    }
+
+    private @Nullable Node find(@NotNull String rootPath) {
+        String path = rootPath.endsWith("/") ? rootPath.substring(0, rootPath.length() - 1) : rootPath;
+        Node node = root;
+        int start = 0;
+        while (node != null) {
+            int end = path.indexOf('/', start);
+            String segment = end == -1 ? path.substring(start) : path.substring(start, end);
+            node = node.getChild(segment);
+            if (end == -1) {
+                break;
+            }
+            start = end + 1;
+        }
+        return node;
+    }
+
+    private @Nullable Node find(@NotNull RepoPath rootPath) {
+        if (rootPath.isRepositoryPath()) {
+            return null;
+        }
+
+        Node node = root;
+        for (String segment : rootPath.getSegments()) {
+            node = node.getChild(segment);
+            if (node == null) {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> children;
+
+        private String path;
+
+        private int index;
+
+        @Nullable Node getChild(@NotNull String segment) {
+            return children != null ? children.get(segment) : null;
+        }
+
+        @NotNull Node getOrCreateChild(@NotNull String segment) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(segment, key -> new Node());
+        }
+
+    }
+
+}
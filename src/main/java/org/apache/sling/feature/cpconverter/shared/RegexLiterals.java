@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.shared;
+
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Extracts the literal prefix and suffix every string matched by a regular expression starts and ends with, e.g.
+ * {@code /jcr_root/} and {@code .jar} out of {@code /jcr_root/(?:apps|libs)/.+\.jar}.
+ *
+ * The extraction is conservative: regular expressions using flags or top-level alternations have neither prefix
+ * nor suffix, and escape sequences, character classes, quantifiers and groups are never taken as literals.
+ */
+public final class RegexLiterals {
+
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    private static final String OPTIONAL_QUANTIFIERS = "?*{";
+
+    private RegexLiterals() {
+        // this class must not be instantiated from outside
+    }
+
+    public static @NotNull String getPrefix(@NotNull Pattern pattern) {
+        String regex = pattern.pattern();
+        if (!isAnchorable(pattern)) {
+            return "";
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        int i = 0;
+        if (regex.startsWith("^")) {
+            i++;
+        }
+        while (i < regex.length()) {
+            char current = regex.charAt(i);
+            int next;
+            if (current == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    break;
+                }
+                current = regex.charAt(i + 1);
+                next = i + 2;
+            } else if (METACHARACTERS.indexOf(current) != -1) {
+                break;
+            } else {
+                next = i + 1;
+            }
+
+            if (next < regex.length() && OPTIONAL_QUANTIFIERS.indexOf(regex.charAt(next)) != -1) {
+                // the current character may not be there
+                break;
+            }
+            prefix.append(current);
+            if (next < regex.length() && regex.charAt(next) == '+') {
+                break;
+            }
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    public static @NotNull String getSuffix(@NotNull Pattern pattern) {
+        String regex = pattern.pattern();
+        if (!isAnchorable(pattern)) {
+            return "";
+        }
+
+        int end = regex.length();
+        if (end > 0 && regex.charAt(end - 1) == '$' && !isEscaped(regex, end - 1)) {
+            end--;
+        }
+
+        // scan forward so that every construct is skipped as a whole and only the trailing run of literals is kept
+        StringBuilder suffix = new StringBuilder();
+        int i = 0;
+        while (i < end) {
+            char current = regex.charAt(i);
+            if (current == '\\') {
+                if (i + 1 >= end) {
+                    return "";
+                }
+                char escaped = regex.charAt(i + 1);
+                if (Character.isLetterOrDigit(escaped)) {
+                    // \\d, \\u002E, \\x2E, \\0101, \\cJ, \\p{Alpha}, \\k<name>, ... are not literals
+                    suffix.setLength(0);
+                    i = skipEscape(regex, i + 1, end);
+                } else {
+                    suffix.append(escaped);
+                    i += 2;
+                }
+            } else if (current == '[') {
+                suffix.setLength(0);
+                i = skipCharacterClass(regex, i, end);
+            } else if (current == '{') {
+                suffix.setLength(0);
+                i = skipTo(regex, i, end, '}');
+            } else if (current == '(' && i + 2 < end && regex.charAt(i + 1) == '?' && regex.charAt(i + 2) == '<'
+                    && i + 3 < end && Character.isLetter(regex.charAt(i + 3))) {
+                // named group, (?<name>
+                suffix.setLength(0);
+                i = skipTo(regex, i, end, '>');
+            } else if (METACHARACTERS.indexOf(current) != -1) {
+                suffix.setLength(0);
+                i++;
+            } else {
+                suffix.append(current);
+                i++;
+            }
+            if (i < 0) {
+                // unterminated construct
+                return "";
+            }
+        }
+        return suffix.toString();
+    }
+
+    /**
+     * Returns the index right after the escape sequence whose letter or digit is at the given index.
+     */
+    private static int skipEscape(@NotNull String regex, int index, int end) {
+        char escaped = regex.charAt(index);
+        int next = index + 1;
+        switch (escaped) {
+            case 'u':
+                return Math.min(next + 4, end);
+            case 'x':
+                if (next < end && regex.charAt(next) == '{') {
+                    return skipTo(regex, next, end, '}');
+                }
+                return Math.min(next + 2, end);
+            case '0':
+                for (int digits = 0; digits < 3 && next < end && regex.charAt(next) >= '0' && regex.charAt(next) <= '7'; digits++) {
+                    next++;
+                }
+                return next;
+            case 'c':
+                return Math.min(next + 1, end);
+            case 'p':
+            case 'P':
+            case 'N':
+                if (next < end && regex.charAt(next) == '{') {
+                    return skipTo(regex, next, end, '}');
+                }
+                return Math.min(next + 1, end);
+            case 'k':
+                if (next < end && regex.charAt(next) == '<') {
+                    return skipTo(regex, next, end, '>');
+                }
+                return next;
+            default:
+                return next;
+        }
+    }
+
+    /**
+     * Returns the index right after the character class opened at the given index, or -1 if it is not closed.
+     */
+    private static int skipCharacterClass(@NotNull String regex, int index, int end) {
+        int depth = 0;
+        for (int i = index; i < end; i++) {
+            char current = regex.charAt(i);
+            if (current == '\\') {
+                i++;
+            } else if (current == '[') {
+                depth++;
+            } else if (current == ']' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index right after the first occurrence of the closing character, or -1 if there is none.
+     */
+    private static int skipTo(@NotNull String regex, int index, int end, char closing) {
+        int closingIndex = regex.indexOf(closing, index);
+        return closingIndex == -1 || closingIndex >= end ? -1 : closingIndex + 1;
+    }
+
+    private static boolean isAnchorable(@NotNull Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return false;
+        }
+
+        String regex = pattern.pattern();
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char current = regex.charAt(i);
+            if (current == '\\') {
+                // quoted sections are not supported
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    return false;
+                }
+                i++;
+            } else if (inClass) {
+                inClass = current != ']';
+            } else if (current == '[') {
+                inClass = true;
+            } else if (current == '(') {
+                // inline flags, e.g. (?i), change how literals match
+                if (i + 2 < regex.length() && regex.charAt(i + 1) == '?' && "idmsuxU-".indexOf(regex.charAt(i + 2)) != -1) {
+                    return false;
+                }
+                depth++;
+            } else if (current == ')') {
+                depth--;
+            } else if (current == '|' && depth == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEscaped(@NotNull String regex, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+}
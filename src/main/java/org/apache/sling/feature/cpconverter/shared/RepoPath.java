@@ -19,25 +19,32 @@ package org.apache.sling.feature.cpconverter.shared;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
 
 /** 
  * A Repo Path represents a path in the repository, for example when used in
  * a repoinit section.
  *
+ * Instances are immutable: the segments are interned and shared with the parent paths, while the hash code and the
+ * string representation are computed once.
+ *
  * @see
  * <a href="https://github.com/apache/sling-org-apache-sling-repoinit-parser/blob/master/src/main/javacc/RepoInitGrammar.jjt">Repoinit Grammar</a>
  *
  */
 public class RepoPath implements Comparable<RepoPath>{
-    private final List<String> path;
+    private static final String[] NO_SEGMENTS = new String[0];
+
+    private final String[] segments;
+    /** The number of segments of this path, parent paths share the segments of their children. */
+    private final int length;
     private final boolean isRepositoryPath;
 
+    private int hash;
+    private String string;
+
     /**
      * Construct a Repo Path from a string. The string should separate the path
      * segments with forward slashes, e.g. {@code /my/repo/path}.
@@ -52,7 +59,8 @@ public class RepoPath implements Comparable<RepoPath>{
         if (path.startsWith("/"))
             path = path.substring(1);
 
-        this.path = (path.isEmpty()) ? Collections.emptyList() : Arrays.asList(path.split("/"));
+        this.segments = (path.isEmpty()) ? NO_SEGMENTS : intern(path.split("/"));
+        this.length = segments.length;
     }
 
     /**
@@ -62,10 +70,24 @@ public class RepoPath implements Comparable<RepoPath>{
      * any separators.
      */
     public RepoPath(@NotNull List<String> list) {
-        this.path = new ArrayList<>(list);
+        this.segments = intern(list.toArray(new String[0]));
+        this.length = segments.length;
+        this.isRepositoryPath = false;
+    }
+
+    private RepoPath(@NotNull String[] segments, int length) {
+        this.segments = segments;
+        this.length = length;
         this.isRepositoryPath = false;
     }
 
+    private static @NotNull String[] intern(@NotNull String[] segments) {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = segments[i].intern();
+        }
+        return segments;
+    }
+
     @Override
     public int compareTo(@NotNull RepoPath o) {
         String me = toString();
@@ -81,15 +103,14 @@ public class RepoPath implements Comparable<RepoPath>{
      */
     public @Nullable RepoPath getParent() {
         // root path or repository path
-        if (path.isEmpty())
+        if (length == 0)
             return null;
 
-        ArrayList<String> parentPath = new ArrayList<>(path.subList(0, path.size() - 1));
-        return new RepoPath(parentPath);
+        return new RepoPath(segments, length - 1);
     }
     
     public @NotNull List<String> getSegments() {
-        return path;
+        return Collections.unmodifiableList(Arrays.asList(segments).subList(0, length));
     }
 
     /**
@@ -103,21 +124,47 @@ public class RepoPath implements Comparable<RepoPath>{
             return false;
         }
 
-        if (path.size() < otherPath.path.size()) {
+        if (length < otherPath.length) {
             return false;
         }
 
-        List<String> l = new ArrayList<>(path.subList(0, otherPath.path.size()));
-        return l.equals(otherPath.path);
+        return sameSegments(otherPath, otherPath.length);
     }
 
     public boolean isRepositoryPath() {
         return isRepositoryPath;
     }
 
+    private boolean sameSegments(@NotNull RepoPath other, int count) {
+        if (segments == other.segments) {
+            // a parent path or the same path
+            return true;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            // segments are interned, the deepest ones are the most likely to differ
+            String segment = segments[i];
+            String otherSegment = other.segments[i];
+            if (segment != otherSegment && !segment.equals(otherSegment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(path, isRepositoryPath);
+        int h = hash;
+        if (h == 0) {
+            // same value as Objects.hash(segmentsList, isRepositoryPath), the iteration order of hashed collections
+            // of paths ends up in the generated repoinit statements
+            int segmentsHash = 1;
+            for (int i = 0; i < length; i++) {
+                segmentsHash = 31 * segmentsHash + segments[i].hashCode();
+            }
+            h = 31 * (31 + segmentsHash) + Boolean.hashCode(isRepositoryPath);
+            hash = h;
+        }
+        return h;
     }
 
     @Override
@@ -129,11 +176,25 @@ public class RepoPath implements Comparable<RepoPath>{
         if (getClass() != obj.getClass())
             return false;
         RepoPath other = (RepoPath) obj;
-        return Objects.equals(path, other.path) && isRepositoryPath == other.isRepositoryPath;
+        return length == other.length && isRepositoryPath == other.isRepositoryPath && hashCode() == other.hashCode()
+                && sameSegments(other, length);
     }
 
     @Override
     public String toString() {
-        return isRepositoryPath ? "" : "/" + path.stream().collect(Collectors.joining("/"));
+        String s = string;
+        if (s == null) {
+            if (isRepositoryPath) {
+                s = "";
+            } else {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < length; i++) {
+                    builder.append('/').append(segments[i]);
+                }
+                s = builder.length() == 0 ? "/" : builder.toString();
+            }
+            string = s;
+        }
+        return s;
     }
 }
@@ -63,6 +63,26 @@ public abstract class BaseVaultPackageScanner {
         return vaultPackage;
     }
 
+    /**
+     * Opens a content-package out of an archive which is not backed by a file, e.g. a sub content-package read in
+     * memory.
+     *
+     * @param archive the content-package archive
+     * @param name the content-package name, used to report errors only
+     * @return the opened content-package
+     * @throws IOException if the archive can not be read
+     * @throws ConverterException if the content-package is not valid
+     */
+    public @NotNull VaultPackage open(@NotNull Archive archive, @NotNull String name) throws IOException, ConverterException {
+        requireNonNull(archive, "Impossible to process a null vault package");
+        VaultPackage vaultPackage = packageManager.open(archive, strictValidation);
+        if (!vaultPackage.isValid()) {
+            vaultPackage.close();
+            throw new ConverterException("The package " + name + " is not valid (does not contain a mandatory filter).");
+        }
+        return vaultPackage;
+    }
+
     public final void traverse(@NotNull File vaultPackageFile, boolean closeOnTraversed, String runMode) throws IOException, ConverterException {
         VaultPackage vaultPackage = null;
         try {
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.jcr.Session;
+
+import org.apache.jackrabbit.vault.fs.api.VaultFsConfig;
+import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
+import org.apache.jackrabbit.vault.fs.config.MetaInf;
+import org.apache.jackrabbit.vault.fs.config.VaultSettings;
+import org.apache.jackrabbit.vault.fs.io.AccessControlHandling;
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.jackrabbit.vault.fs.io.ImportOptions;
+import org.apache.jackrabbit.vault.fs.spi.NodeTypeSet;
+import org.apache.jackrabbit.vault.fs.spi.PrivilegeDefinitions;
+import org.apache.jackrabbit.vault.packaging.Dependency;
+import org.apache.jackrabbit.vault.packaging.PackageException;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.jackrabbit.vault.packaging.PackageProperties;
+import org.apache.jackrabbit.vault.packaging.PackageType;
+import org.apache.jackrabbit.vault.packaging.SubPackageHandling;
+import org.apache.jackrabbit.vault.packaging.VaultPackage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only copy of the metadata of a {@link VaultPackage}, still available once the original package has been
+ * closed; its archive is not accessible.
+ */
+final class DetachedVaultPackage implements VaultPackage {
+
+    private final PackageId id;
+
+    private final Dependency[] dependencies;
+
+    private final File file;
+
+    private final long size;
+
+    private final PackageType packageType;
+
+    private final Properties properties = new Properties();
+
+    private final MetaInf metaInf;
+
+    DetachedVaultPackage(@NotNull VaultPackage vaultPackage) {
+        id = vaultPackage.getId();
+        dependencies = vaultPackage.getDependencies();
+        file = vaultPackage.getFile();
+        size = vaultPackage.getSize();
+        packageType = vaultPackage.getPackageType();
+        MetaInf originalMetaInf = vaultPackage.getMetaInf();
+        if (originalMetaInf != null && originalMetaInf.getProperties() != null) {
+            properties.putAll(originalMetaInf.getProperties());
+        }
+        metaInf = new DetachedMetaInf(originalMetaInf != null ? originalMetaInf.getFilter() : null);
+    }
+
+    /**
+     * Restores a detached package out of its previously recorded metadata; its filter is not available.
+     */
+    DetachedVaultPackage(@NotNull PackageId id,
+                         @NotNull Dependency[] dependencies,
+                         @Nullable File file,
+                         long size,
+                         @Nullable PackageType packageType,
+                         @NotNull Properties properties) {
+        this.id = id;
+        this.dependencies = dependencies;
+        this.file = file;
+        this.size = size;
+        this.packageType = packageType;
+        this.properties.putAll(properties);
+        metaInf = new DetachedMetaInf(null);
+    }
+
+    @Override
+    public PackageId getId() {
+        return id;
+    }
+
+    @Override
+    public Dependency[] getDependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public PackageType getPackageType() {
+        return packageType;
+    }
+
+    @Override
+    public String getProperty(String name) {
+        return properties.getProperty(name);
+    }
+
+    @Override
+    public String getDescription() {
+        return getProperty(NAME_DESCRIPTION);
+    }
+
+    @Override
+    public String getCreatedBy() {
+        return getProperty(NAME_CREATED_BY);
+    }
+
+    @Override
+    public String getLastModifiedBy() {
+        return getProperty(NAME_LAST_MODIFIED_BY);
+    }
+
+    @Override
+    public String getLastWrappedBy() {
+        return getProperty(NAME_LAST_WRAPPED_BY);
+    }
+
+    /**
+     * Further methods are not available once detached
+     **/
+
+    @Override
+    public Calendar getLastModified() {
+        return null;
+    }
+
+    @Override
+    public Calendar getCreated() {
+        return null;
+    }
+
+    @Override
+    public Calendar getLastWrapped() {
+        return null;
+    }
+
+    @Override
+    public Calendar getDateProperty(String name) {
+        return null;
+    }
+
+    @Override
+    public boolean requiresRoot() {
+        return false;
+    }
+
+    @Override
+    public boolean requiresRestart() {
+        return false;
+    }
+
+    @Override
+    public Map<String, String> getExternalHooks() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public AccessControlHandling getACHandling() {
+        return null;
+    }
+
+    @Override
+    public SubPackageHandling getSubPackageHandling() {
+        return null;
+    }
+
+    @Override
+    public @NotNull Map<PackageId, URI> getDependenciesLocations() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public long getBuildCount() {
+        return 0;
+    }
+
+    @Override
+    public PackageProperties getProperties() {
+        return this;
+    }
+
+    @Override
+    public boolean isValid() {
+        return metaInf.getFilter() != null;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return true;
+    }
+
+    @Override
+    public MetaInf getMetaInf() {
+        return metaInf;
+    }
+
+    @Override
+    public void extract(Session session, ImportOptions opts) throws PackageException {
+        throw new PackageException("Package " + id + " has been detached from its archive and can not be extracted");
+    }
+
+    @Override
+    public Archive getArchive() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        // nothing to close
+    }
+
+    private final class DetachedMetaInf implements MetaInf {
+
+        private final WorkspaceFilter filter;
+
+        DetachedMetaInf(WorkspaceFilter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public int getPackageFormatVersion() {
+            String version = properties.getProperty(PACKAGE_FORMAT_VERSION);
+            return version != null ? Integer.parseInt(version) : FORMAT_VERSION_2;
+        }
+
+        @Override
+        public WorkspaceFilter getFilter() {
+            return filter;
+        }
+
+        @Override
+        public Properties getProperties() {
+            return properties;
+        }
+
+        @Override
+        public PackageProperties getPackageProperties() {
+            return DetachedVaultPackage.this;
+        }
+
+        @Override
+        public Collection<NodeTypeSet> getNodeTypes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean hasDefinition() {
+            return false;
+        }
+
+        @Override
+        public PrivilegeDefinitions getPrivileges() {
+            return null;
+        }
+
+        @Override
+        public VaultSettings getSettings() {
+            return null;
+        }
+
+        @Override
+        public VaultFsConfig getConfig() {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import static java.util.stream.Collectors.toCollection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.jackrabbit.spi.PrivilegeDefinition;
+import org.apache.jackrabbit.vault.fs.spi.PrivilegeDefinitions;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.sling.feature.cpconverter.ConverterException;
+import org.apache.sling.feature.cpconverter.accesscontrol.AccessControlEntry;
+import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
+import org.apache.sling.feature.cpconverter.accesscontrol.Group;
+import org.apache.sling.feature.cpconverter.accesscontrol.Mapping;
+import org.apache.sling.feature.cpconverter.accesscontrol.SystemUser;
+import org.apache.sling.feature.cpconverter.accesscontrol.User;
+import org.apache.sling.feature.cpconverter.features.FeaturesManager;
+import org.apache.sling.feature.cpconverter.handlers.VersionResolverContentPackageEntryHandler;
+import org.apache.sling.feature.cpconverter.shared.RepoPath;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Records what the first pass collects while scanning a single input content-package in isolation, i.e. the
+ * sub content-packages versions and the users/groups, so that it can be replayed in input order on the shared
+ * converter state.
+ *
+ * Since every sub content-package rejected in isolation would be rejected on the shared state as well, replaying
+ * the recorded decisions gives the same result as the sequential first pass: recorded entries which get rejected
+ * on replay simply drop everything that was collected below them.
+ *
+ * Repoinit extensions requested during the first pass are recorded as well and generated on replay, with the
+ * features manager they were requested for, as the sequential first pass would have done in place.
+ */
+public final class FirstPassJournal {
+
+    private static final int TOP_LEVEL = -1;
+
+    private final List<SubPackage> subPackages = new ArrayList<>();
+
+    private final List<AclOperation> aclOperations = new ArrayList<>();
+
+    private final Deque<Integer> current = new ArrayDeque<>();
+
+    private final AclManager aclManager = new RecordingAclManager();
+
+    private boolean[] rejected;
+
+    public void enterSubPackage(@NotNull PackageId id, @NotNull String path) {
+        subPackages.add(new SubPackage(id, path, getCurrent()));
+        current.push(subPackages.size() - 1);
+    }
+
+    public void exitSubPackage() {
+        current.pop();
+    }
+
+    /**
+     * @return the {@link AclManager} recording the collected users and groups in this journal.
+     */
+    public @NotNull AclManager getAclManager() {
+        return aclManager;
+    }
+
+    /**
+     * Resolves the recorded sub content-packages against the given shared ones and replays the users and groups
+     * collected from the accepted content-packages on the given {@link AclManager}.
+     *
+     * @param subContentPackages the shared sub content-packages
+     * @param target the shared {@link AclManager}
+     * @throws IOException if a recorded repoinit extension can not be generated
+     * @throws ConverterException if a recorded repoinit extension can not be generated
+     */
+    public void replay(@NotNull Map<PackageId, String> subContentPackages, @NotNull AclManager target)
+            throws IOException, ConverterException {
+        rejected = new boolean[subPackages.size()];
+        for (int i = 0; i < subPackages.size(); i++) {
+            SubPackage subPackage = subPackages.get(i);
+            rejected[i] = (subPackage.parent != TOP_LEVEL && rejected[subPackage.parent])
+                    || !VersionResolverContentPackageEntryHandler.resolve(subContentPackages, subPackage.id, subPackage.path);
+        }
+
+        replay(target, true);
+    }
+
+    /**
+     * Replays the users and groups collected from the accepted content-packages on the given {@link AclManager},
+     * once the sub content-packages have been resolved by {@link #replay(Map, AclManager)}.
+     *
+     * Recorded repoinit extensions are not generated again: they were already generated by
+     * {@link #replay(Map, AclManager)}, and the second pass does not see them in the sequential conversion either.
+     *
+     * @param target the target {@link AclManager}
+     * @throws IOException never, as repoinit extensions are not generated
+     * @throws ConverterException never, as repoinit extensions are not generated
+     */
+    public void replayAclOperations(@NotNull AclManager target) throws IOException, ConverterException {
+        replay(target, false);
+    }
+
+    private void replay(@NotNull AclManager target, boolean withRepoinitExtensions) throws IOException, ConverterException {
+        if (rejected == null) {
+            throw new IllegalStateException("Sub content-packages have not been resolved yet");
+        }
+
+        for (AclOperation aclOperation : aclOperations) {
+            if ((aclOperation.owner == TOP_LEVEL || !rejected[aclOperation.owner])
+                    && (withRepoinitExtensions || !aclOperation.repoinitExtension)) {
+                aclOperation.operation.accept(target);
+            }
+        }
+    }
+
+    /**
+     * Updates the given digest with everything this journal recorded, so that two journals recording the same
+     * sub content-packages and operations give the same digest.
+     *
+     * @param digest the digest to update
+     */
+    public void update(@NotNull MessageDigest digest) {
+        for (SubPackage subPackage : subPackages) {
+            update(digest, "subPackage " + subPackage.id + ' ' + subPackage.path + ' ' + subPackage.parent);
+        }
+        for (AclOperation aclOperation : aclOperations) {
+            update(digest, aclOperation.owner + " " + aclOperation.description);
+        }
+    }
+
+    private static void update(@NotNull MessageDigest digest, @NotNull String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private int getCurrent() {
+        Integer index = current.peek();
+        return index != null ? index : TOP_LEVEL;
+    }
+
+    private void record(@NotNull String description, @NotNull RecordedOperation operation) {
+        aclOperations.add(new AclOperation(getCurrent(), description, operation, false));
+    }
+
+    private void recordRepoinitExtension(@NotNull String description, @NotNull RecordedOperation operation) {
+        aclOperations.add(new AclOperation(getCurrent(), description, operation, true));
+    }
+
+    private static @NotNull String describe(@NotNull String operation,
+                                            @NotNull String id,
+                                            @NotNull RepoPath path,
+                                            @NotNull RepoPath intermediatePath,
+                                            @Nullable String disabledReason) {
+        return operation + ' ' + id + ' ' + path + ' ' + intermediatePath + ' ' + disabledReason;
+    }
+
+    private static @NotNull String describe(@NotNull PrivilegeDefinitions privilegeDefinitions) {
+        StringBuilder description = new StringBuilder("addPrivilegeDefinitions");
+        for (PrivilegeDefinition definition : privilegeDefinitions.getDefinitions()) {
+            Set<String> aggregateNames = definition.getDeclaredAggregateNames().stream()
+                    .map(Object::toString)
+                    .collect(toCollection(TreeSet::new));
+            description.append(' ').append(definition.getName())
+                       .append(definition.isAbstract() ? " abstract " : " ")
+                       .append(aggregateNames);
+        }
+        description.append(' ').append(new TreeMap<>(privilegeDefinitions.getNamespaceMapping().getPrefixToURIMapping()));
+        return description.toString();
+    }
+
+    private static final class SubPackage {
+
+        private final PackageId id;
+
+        private final String path;
+
+        private final int parent;
+
+        SubPackage(@NotNull PackageId id, @NotNull String path, int parent) {
+            this.id = id;
+            this.path = path;
+            this.parent = parent;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface RecordedOperation {
+
+        void accept(@NotNull AclManager target) throws IOException, ConverterException;
+
+    }
+
+    private static final class AclOperation {
+
+        private final int owner;
+
+        private final String description;
+
+        private final RecordedOperation operation;
+
+        private final boolean repoinitExtension;
+
+        AclOperation(int owner, @NotNull String description, @NotNull RecordedOperation operation, boolean repoinitExtension) {
+            this.owner = owner;
+            this.description = description;
+            this.operation = operation;
+            this.repoinitExtension = repoinitExtension;
+        }
+
+    }
+
+    private final class RecordingAclManager implements AclManager {
+
+        @Override
+        public boolean addUser(@NotNull User user) {
+            record(describe("addUser", user.getId(), user.getPath(), user.getIntermediatePath(), user.getDisabledReason()),
+                   target -> target.addUser(user));
+            return true;
+        }
+
+        @Override
+        public boolean addGroup(@NotNull Group group) {
+            record(describe("addGroup", group.getId(), group.getPath(), group.getIntermediatePath(), group.getDisabledReason()),
+                   target -> target.addGroup(group));
+            return true;
+        }
+
+        @Override
+        public boolean addSystemUser(@NotNull SystemUser systemUser) {
+            record(describe("addSystemUser", systemUser.getId(), systemUser.getPath(), systemUser.getIntermediatePath(), systemUser.getDisabledReason()),
+                   target -> target.addSystemUser(systemUser));
+            return true;
+        }
+
+        @Override
+        public void addMapping(@NotNull Mapping mapping) {
+            record("addMapping " + mapping.asString(), target -> target.addMapping(mapping));
+        }
+
+        @Override
+        public boolean addAccessControlEntry(@NotNull String systemUser, @NotNull AccessControlEntry acl) {
+            record("addAccessControlEntry " + systemUser + ' ' + acl, target -> target.addAccessControlEntry(systemUser, acl));
+            return true;
+        }
+
+        @Override
+        public void addRepoinitExtension(@NotNull List<VaultPackageAssembler> packageAssemblers, @NotNull FeaturesManager featureManager) {
+            recordRepoinitExtension("addRepoinitExtension " + packageAssemblers.size(),
+                    target -> target.addRepoinitExtension(packageAssemblers, featureManager));
+        }
+
+        @Override
+        public void addRepoinitExtention(@NotNull String source, @Nullable String repoInitText, @Nullable String runMode, @NotNull FeaturesManager featuresManager) {
+            recordRepoinitExtension("addRepoinitExtention " + source + ' ' + runMode + ' ' + repoInitText,
+                    target -> target.addRepoinitExtention(source, repoInitText, runMode, featuresManager));
+        }
+
+        @Override
+        public void addNodetypeRegistration(@NotNull String cndStatements) {
+            record("addNodetypeRegistration " + cndStatements, target -> target.addNodetypeRegistration(cndStatements));
+        }
+
+        @Override
+        public void addPrivilegeDefinitions(@NotNull PrivilegeDefinitions privilegeDefinitions) {
+            record(describe(privilegeDefinitions), target -> target.addPrivilegeDefinitions(privilegeDefinitions));
+        }
+
+        @Override
+        public void reset() {
+            record("reset", AclManager::reset);
+        }
+
+    }
+
+}
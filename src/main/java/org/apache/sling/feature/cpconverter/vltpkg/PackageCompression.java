@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.Deflater;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * How the entries of the converted content-packages get compressed: the deflate level, the file extensions of the
+ * entries which are already compressed and just get stored, e.g. {@code jpg}, {@code png} or {@code zip}, and the
+ * number of threads compressing the entries of a package concurrently.
+ */
+public final class PackageCompression {
+
+    public static final PackageCompression DEFAULT = new PackageCompression(Deflater.DEFAULT_COMPRESSION, Collections.emptySet(), 1);
+
+    private final int level;
+
+    private final Set<String> storedExtensions = new TreeSet<>();
+
+    private final int threads;
+
+    /**
+     * @param level the deflate level, from {@code 0} to {@code 9}, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param storedExtensions the file extensions, without the leading dot, of the entries which are stored
+     * @param threads the number of threads compressing the entries of a package
+     */
+    public PackageCompression(int level, @NotNull Collection<String> storedExtensions, int threads) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("The compression level must be between 0 and 9, or -1 for the default one, was " + level);
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of compression threads must be greater than 0, was " + threads);
+        }
+        this.level = level;
+        for (String storedExtension : storedExtensions) {
+            String extension = storedExtension.trim().toLowerCase(Locale.ROOT);
+            this.storedExtensions.add(extension.startsWith(".") ? extension.substring(1) : extension);
+        }
+        this.threads = threads;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public @NotNull Set<String> getStoredExtensions() {
+        return Collections.unmodifiableSet(storedExtensions);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param name an entry name
+     * @return {@code true} if the entry has to be stored rather than deflated
+     */
+    public boolean isStored(@NotNull String name) {
+        if (storedExtensions.isEmpty()) {
+            return false;
+        }
+        int separator = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        return dot > separator && storedExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes files as entries of a {@link RawZipOutputStream}, according to a {@link PackageCompression}: entries are
+ * compressed by a pool of threads, while being written in the same order they were added. Entries are always
+ * compressed upfront and copied raw, so that the resulting zip file does not depend on the number of threads.
+ */
+final class PackageEntriesWriter implements Closeable {
+
+    // compressed data larger than this gets written to a temporary file rather than being kept in memory
+    private static final int IN_MEMORY_THRESHOLD = 8 * 1024 * 1024;
+
+    private final RawZipOutputStream zip;
+
+    private final PackageCompression compression;
+
+    private final File tmpDir;
+
+    private final ExecutorService executor;
+
+    private final Deque<Future<PreparedEntry>> pending = new ArrayDeque<>();
+
+    private final int window;
+
+    PackageEntriesWriter(@NotNull RawZipOutputStream zip, @NotNull PackageCompression compression, @NotNull File tmpDir) {
+        this.zip = zip;
+        this.compression = compression;
+        this.tmpDir = tmpDir;
+        zip.setLevel(compression.getLevel());
+        if (compression.getThreads() > 1) {
+            executor = Executors.newFixedThreadPool(compression.getThreads());
+            // bounds the compressed entries waiting to be written
+            window = compression.getThreads() * 4;
+        } else {
+            executor = null;
+            window = 0;
+        }
+    }
+
+    public void addFile(@NotNull String name, @NotNull File file) throws IOException {
+        boolean stored = compression.isStored(name);
+        if (executor == null) {
+            // same layout as the compressed entries, sizes in the local header and no data descriptor
+            prepare(name, file, stored).writeTo(zip);
+            return;
+        }
+
+        enqueue(CompletableFuture.supplyAsync(() -> {
+            try {
+                return prepare(name, file, stored);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to compress " + file, e);
+            }
+        }, executor));
+    }
+
+    public void addEmptyEntry(@NotNull String name, long time) throws IOException {
+        PreparedEntry entry = new PreparedEntry(
+                new RawZipEntry(name, ZipEntry.STORED, 0, RawZipOutputStream.toDosTime(time), 0, 0, 0, -1), new byte[0], null, false);
+        if (executor == null) {
+            entry.writeTo(zip);
+        } else {
+            enqueue(CompletableFuture.completedFuture(entry));
+        }
+    }
+
+    /**
+     * Writes all the entries added so far.
+     *
+     * @throws IOException if an entry can not be compressed or written
+     */
+    public void flush() throws IOException {
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (executor != null) {
+                for (Future<PreparedEntry> future : pending) {
+                    future.cancel(false);
+                }
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void enqueue(@NotNull Future<PreparedEntry> future) throws IOException {
+        pending.add(future);
+        while (pending.size() > window) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        PreparedEntry entry;
+        try {
+            entry = pending.remove().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing entries", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalStateException && cause.getCause() instanceof IOException) {
+                throw (IOException) cause.getCause();
+            }
+            throw new IOException(cause);
+        }
+        entry.writeTo(zip);
+    }
+
+    private @NotNull PreparedEntry prepare(@NotNull String name, @NotNull File file, boolean stored) throws IOException {
+        long dosTime = RawZipOutputStream.toDosTime(file.lastModified());
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+
+        if (stored) {
+            long size = 0;
+            try (InputStream input = new FileInputStream(file)) {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+            return new PreparedEntry(new RawZipEntry(name, ZipEntry.STORED, 0, dosTime, crc.getValue(), size, size, -1), null, file, false);
+        }
+
+        boolean inMemory = file.length() <= IN_MEMORY_THRESHOLD;
+        File deflatedFile = inMemory ? null : Files.createTempFile(tmpDir.toPath(), "entry", ".deflated").toFile();
+        ByteArrayOutputStream deflatedBytes = inMemory ? new ByteArrayOutputStream((int) Math.max(32, file.length() / 2)) : null;
+        Deflater deflater = new Deflater(compression.getLevel(), true);
+        long size = 0;
+        try (InputStream input = new FileInputStream(file);
+             OutputStream output = new DeflaterOutputStream(inMemory ? deflatedBytes : new FileOutputStream(deflatedFile), deflater, buffer.length)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                output.write(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            if (deflatedFile != null) {
+                Files.deleteIfExists(deflatedFile.toPath());
+            }
+            throw e;
+        } finally {
+            deflater.end();
+        }
+
+        long compressedSize = inMemory ? deflatedBytes.size() : deflatedFile.length();
+        RawZipEntry entry = new RawZipEntry(name, ZipEntry.DEFLATED, 0, dosTime, crc.getValue(), compressedSize, size, -1);
+        return inMemory ? new PreparedEntry(entry, deflatedBytes.toByteArray(), null, false)
+                        : new PreparedEntry(entry, null, deflatedFile, true);
+    }
+
+    private static final class PreparedEntry {
+
+        private final RawZipEntry entry;
+
+        private final byte[] data;
+
+        private final File dataFile;
+
+        private final boolean temporary;
+
+        PreparedEntry(@NotNull RawZipEntry entry, @Nullable byte[] data, @Nullable File dataFile, boolean temporary) {
+            this.entry = entry;
+            this.data = data;
+            this.dataFile = dataFile;
+            this.temporary = temporary;
+        }
+
+        void writeTo(@NotNull RawZipOutputStream zip) throws IOException {
+            try (InputStream input = data != null ? new ByteArrayInputStream(data) : new FileInputStream(dataFile)) {
+                zip.copyRawEntry(entry, input);
+            } finally {
+                if (temporary) {
+                    Files.deleteIfExists(dataFile.toPath());
+                }
+            }
+        }
+
+    }
+
+}
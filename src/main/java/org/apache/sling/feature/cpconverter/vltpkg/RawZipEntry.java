@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import java.util.zip.ZipEntry;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A zip entry as described by the central directory, along with what is needed to copy its compressed data as is.
+ */
+final class RawZipEntry {
+
+    private final String name;
+
+    private final int method;
+
+    private final int flags;
+
+    private final long dosTime;
+
+    private final long crc;
+
+    private final long compressedSize;
+
+    private final long size;
+
+    private final long localHeaderOffset;
+
+    RawZipEntry(@NotNull String name, int method, int flags, long dosTime, long crc, long compressedSize, long size, long localHeaderOffset) {
+        this.name = name;
+        this.method = method;
+        this.flags = flags;
+        this.dosTime = dosTime;
+        this.crc = crc;
+        this.compressedSize = compressedSize;
+        this.size = size;
+        this.localHeaderOffset = localHeaderOffset;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    int getFlags() {
+        return flags;
+    }
+
+    public long getDosTime() {
+        return dosTime;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    long getLocalHeaderOffset() {
+        return localHeaderOffset;
+    }
+
+    public boolean isDirectory() {
+        return name.endsWith("/");
+    }
+
+    /**
+     * @return {@code true} if the compressed data can be copied as is, i.e. it is neither encrypted nor compressed
+     * with a method other than {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+     */
+    public boolean isCopyable() {
+        return (flags & 1) == 0 && (method == ZipEntry.STORED || method == ZipEntry.DEFLATED);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
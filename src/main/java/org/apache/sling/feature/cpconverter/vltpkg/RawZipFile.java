@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the central directory of a zip file and gives access to the compressed data of its entries, so that they can
+ * be copied to another zip file without being inflated and deflated again.
+ */
+final class RawZipFile implements Closeable {
+
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    static final int END_SIGNATURE = 0x06054b50;
+
+    static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    static final int ZIP64_EXTRA_ID = 0x0001;
+
+    static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+    private static final int END_LENGTH = 22;
+
+    private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final Map<String, RawZipEntry> entries = new LinkedHashMap<>();
+
+    RawZipFile(@NotNull File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            for (RawZipEntry entry : readCentralDirectory(this::read, channel.size(), file.toString())) {
+                entries.put(entry.getName(), entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public @NotNull File getFile() {
+        return file;
+    }
+
+    public @NotNull List<RawZipEntry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    public @Nullable RawZipEntry getEntry(@NotNull String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Opens the compressed data of the given entry, as stored in the zip file.
+     *
+     * @param entry an entry of this zip file
+     * @return the compressed data of the entry
+     * @throws IOException if the local header of the entry is not valid
+     */
+    public @NotNull InputStream openRawInputStream(@NotNull RawZipEntry entry) throws IOException {
+        ByteBuffer localHeader = read(entry.getLocalHeaderOffset(), 30);
+        if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry " + entry.getName() + " in " + file);
+        }
+        long dataOffset = entry.getLocalHeaderOffset() + 30 + unsignedShort(localHeader, 26) + unsignedShort(localHeader, 28);
+        return new ChannelInputStream(channel, dataOffset, entry.getCompressedSize());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the central directory of a zip file held in memory.
+     *
+     * @param zip the zip file content
+     * @return the entries of the zip file, in the central directory order
+     * @throws IOException if the zip file is not valid
+     */
+    static @NotNull List<RawZipEntry> readEntries(@NotNull byte[] zip) throws IOException {
+        try {
+            return readCentralDirectory((offset, length) -> {
+                if (offset < 0 || offset + length > zip.length) {
+                    throw new EOFException("Unexpected end of in-memory zip file");
+                }
+                return ByteBuffer.wrap(zip, (int) offset, length).slice().order(ByteOrder.LITTLE_ENDIAN);
+            }, zip.length, "in-memory zip file");
+        } catch (IndexOutOfBoundsException e) {
+            throw new ZipException("Invalid central directory in in-memory zip file");
+        }
+    }
+
+    private static @NotNull List<RawZipEntry> readCentralDirectory(@NotNull PositionalReader reader, long fileSize, @NotNull String file)
+            throws IOException {
+        if (fileSize < END_LENGTH) {
+            throw new ZipException("Not a zip file: " + file);
+        }
+
+        // the end of central directory record is followed by a comment of variable length
+        int tailLength = (int) Math.min(fileSize, END_LENGTH + MAX_COMMENT_LENGTH);
+        long tailOffset = fileSize - tailLength;
+        ByteBuffer tail = reader.read(tailOffset, tailLength);
+        int end = -1;
+        for (int position = tailLength - END_LENGTH; position >= 0; position--) {
+            if (tail.getInt(position) == END_SIGNATURE) {
+                end = position;
+                break;
+            }
+        }
+        if (end == -1) {
+            throw new ZipException("End of central directory not found in " + file);
+        }
+
+        long count = unsignedShort(tail, end + 10);
+        long centralDirectorySize = unsignedInt(tail, end + 12);
+        long centralDirectoryOffset = unsignedInt(tail, end + 16);
+
+        long endOffset = tailOffset + end;
+        if (endOffset >= ZIP64_LOCATOR_LENGTH) {
+            ByteBuffer locator = reader.read(endOffset - ZIP64_LOCATOR_LENGTH, ZIP64_LOCATOR_LENGTH);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer zip64End = reader.read(locator.getLong(8), 56);
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new ZipException("Invalid Zip64 end of central directory in " + file);
+                }
+                count = zip64End.getLong(32);
+                centralDirectorySize = zip64End.getLong(40);
+                centralDirectoryOffset = zip64End.getLong(48);
+            }
+        }
+
+        if (centralDirectorySize > Integer.MAX_VALUE) {
+            throw new ZipException("Central directory too large in " + file);
+        }
+
+        ByteBuffer centralDirectory = reader.read(centralDirectoryOffset, (int) centralDirectorySize);
+        List<RawZipEntry> entries = new ArrayList<>();
+        int position = 0;
+        for (long i = 0; i < count; i++) {
+            if (centralDirectory.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory header in " + file);
+            }
+
+            int flags = unsignedShort(centralDirectory, position + 8);
+            int method = unsignedShort(centralDirectory, position + 10);
+            long dosTime = unsignedInt(centralDirectory, position + 12);
+            long crc = unsignedInt(centralDirectory, position + 16);
+            long compressedSize = unsignedInt(centralDirectory, position + 20);
+            long size = unsignedInt(centralDirectory, position + 24);
+            int nameLength = unsignedShort(centralDirectory, position + 28);
+            int extraLength = unsignedShort(centralDirectory, position + 30);
+            int commentLength = unsignedShort(centralDirectory, position + 32);
+            long localHeaderOffset = unsignedInt(centralDirectory, position + 42);
+
+            byte[] nameBytes = new byte[nameLength];
+            centralDirectory.position(position + 46);
+            centralDirectory.get(nameBytes);
+            // older archives may not set the UTF-8 flag, but the entry names of content-packages are plain ASCII anyway
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            // the Zip64 extended information contains only the values which did not fit, in this order
+            int extra = position + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = unsignedShort(centralDirectory, extra);
+                int length = unsignedShort(centralDirectory, extra + 2);
+                if (id == ZIP64_EXTRA_ID) {
+                    int value = extra + 4;
+                    if (size == ZIP64_MAGIC) {
+                        size = centralDirectory.getLong(value);
+                        value += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = centralDirectory.getLong(value);
+                        value += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) {
+                        localHeaderOffset = centralDirectory.getLong(value);
+                    }
+                }
+                extra += 4 + length;
+            }
+
+            entries.add(new RawZipEntry(name, method, flags, dosTime, crc, compressedSize, size, localHeaderOffset));
+
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private @NotNull ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + file);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int unsignedShort(@NotNull ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long unsignedInt(@NotNull ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    @FunctionalInterface
+    private interface PositionalReader {
+
+        @NotNull ByteBuffer read(long offset, int length) throws IOException;
+
+    }
+
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private long position;
+
+        private long remaining;
+
+        ChannelInputStream(@NotNull FileChannel channel, long position, long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of zip entry data");
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+
+    }
+
+}
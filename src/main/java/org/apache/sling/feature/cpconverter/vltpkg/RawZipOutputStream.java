@@ -0,0 +1,509 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.CENTRAL_HEADER_SIGNATURE;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.END_SIGNATURE;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.LOCAL_HEADER_SIGNATURE;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.ZIP64_END_SIGNATURE;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.ZIP64_EXTRA_ID;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.ZIP64_LOCATOR_SIGNATURE;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.ZIP64_MAGIC;
+import static org.apache.sling.feature.cpconverter.vltpkg.RawZipFile.ZIP64_MAGIC_COUNT;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A minimal zip writer which, unlike {@link java.util.zip.ZipOutputStream}, is able to copy the compressed data of
+ * entries read via {@link RawZipFile} as is, next to regular entries deflated while being written.
+ */
+final class RawZipOutputStream extends OutputStream {
+
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    private static final int VERSION_STORED = 10;
+
+    private static final int VERSION_DEFLATED = 20;
+
+    private static final int VERSION_ZIP64 = 45;
+
+    static final long UNKNOWN_SIZE = -1;
+
+    private final CountingOutputStream out;
+
+    private final List<CentralEntry> centralEntries = new ArrayList<>();
+
+    private final Set<String> names = new HashSet<>();
+
+    private final byte[] buffer = new byte[8192];
+
+    private final CRC32 crc = new CRC32();
+
+    private Deflater deflater;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private CentralEntry current;
+
+    private boolean closed;
+
+    RawZipOutputStream(@NotNull OutputStream out) {
+        this(out, 0, Collections.emptyList());
+    }
+
+    /**
+     * Creates a zip writer which appends entries to the given ones, already written before the current position of
+     * the given stream, e.g. to replace the last entries of an existing zip file truncated at the given offset.
+     *
+     * @param out the stream where the entries are appended
+     * @param offset the number of bytes already written
+     * @param entries the entries already written
+     */
+    RawZipOutputStream(@NotNull OutputStream out, long offset, @NotNull List<RawZipEntry> entries) {
+        this.out = new CountingOutputStream(new BufferedOutputStream(out));
+        this.out.count = offset;
+        for (RawZipEntry entry : entries) {
+            names.add(entry.getName());
+            CentralEntry centralEntry = new CentralEntry(entry.getName().getBytes(StandardCharsets.UTF_8),
+                    entry.getMethod(), entry.getFlags(), entry.getDosTime(), entry.getLocalHeaderOffset());
+            centralEntry.crc = entry.getCrc();
+            centralEntry.compressedSize = entry.getCompressedSize();
+            centralEntry.size = entry.getSize();
+            centralEntries.add(centralEntry);
+        }
+    }
+
+    public void setLevel(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+    }
+
+    /**
+     * Begins writing a new entry of unknown size, deflated while being written.
+     *
+     * @param name the entry name
+     * @param time the entry modification time, in milliseconds
+     * @throws IOException if an I/O error occurs
+     */
+    public void putNextEntry(@NotNull String name, long time) throws IOException {
+        putNextEntry(name, time, UNKNOWN_SIZE);
+    }
+
+    /**
+     * Begins writing a new entry, deflated while being written. Since the sizes follow the data, the local header
+     * of an entry which may need the Zip64 format, i.e. whose size is unknown or too large, carries a Zip64 extra
+     * field, so that readers expect the sizes of its data descriptor to be 8 bytes long; the other entries keep
+     * 4 bytes long sizes, as expected by {@link java.util.zip.ZipInputStream}.
+     *
+     * @param name the entry name
+     * @param time the entry modification time, in milliseconds
+     * @param size the number of bytes which are going to be written, {@link #UNKNOWN_SIZE} if unknown
+     * @throws IOException if an I/O error occurs
+     */
+    public void putNextEntry(@NotNull String name, long time, long size) throws IOException {
+        ensureOpen();
+        closeEntry();
+
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        } else {
+            deflater.reset();
+            deflater.setLevel(level);
+        }
+        crc.reset();
+
+        current = newEntry(name, ZipEntry.DEFLATED, FLAG_DATA_DESCRIPTOR, toDosTime(time));
+        current.expectedSize = size;
+        current.zip64Descriptor = size == UNKNOWN_SIZE || requiresZip64(size);
+        // sizes and checksum are not known yet, they follow the data in the data descriptor
+        writeLocalHeader(current, 0, 0, 0, current.zip64Descriptor);
+    }
+
+    /**
+     * Tells whether an entry of the given size may need the Zip64 format once deflated, which may slightly expand
+     * incompressible data, see zlib's {@code deflateBound}.
+     */
+    static boolean requiresZip64(long size) {
+        return size + (size >> 12) + (size >> 14) + (size >> 25) + 13 >= ZIP64_MAGIC;
+    }
+
+    /**
+     * Copies an entry with its already compressed data, keeping its compression method, checksum and time.
+     *
+     * @param entry the entry to copy
+     * @param rawData the compressed data of the entry, as returned by {@link RawZipFile#openRawInputStream(RawZipEntry)}
+     * @throws IOException if an I/O error occurs
+     */
+    public void copyRawEntry(@NotNull RawZipEntry entry, @NotNull InputStream rawData) throws IOException {
+        ensureOpen();
+        closeEntry();
+
+        if (!entry.isCopyable()) {
+            throw new ZipException("Entry " + entry.getName() + " can not be copied");
+        }
+
+        CentralEntry copy = newEntry(entry.getName(), entry.getMethod(), 0, entry.getDosTime());
+        copy.crc = entry.getCrc();
+        copy.compressedSize = entry.getCompressedSize();
+        copy.size = entry.getSize();
+        writeLocalHeader(copy, copy.crc, copy.compressedSize, copy.size, isZip64(copy));
+
+        long copied = 0;
+        int read;
+        while ((read = rawData.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        if (copied != entry.getCompressedSize()) {
+            throw new ZipException("Entry " + entry.getName() + " has " + copied + " bytes of compressed data, "
+                    + entry.getCompressedSize() + " expected");
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (current == null) {
+            throw new ZipException("No current zip entry");
+        }
+        if (len == 0) {
+            return;
+        }
+
+        crc.update(b, off, len);
+        current.size += len;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    public void closeEntry() throws IOException {
+        ensureOpen();
+        if (current == null) {
+            return;
+        }
+
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+
+        CentralEntry entry = current;
+        current = null;
+        entry.crc = crc.getValue();
+        entry.compressedSize = deflater.getBytesWritten();
+
+        writeInt(DATA_DESCRIPTOR_SIGNATURE);
+        writeInt(entry.crc);
+        if (entry.zip64Descriptor || isZip64(entry)) {
+            writeLong(entry.compressedSize);
+            writeLong(entry.size);
+        } else {
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+        }
+
+        if (entry.expectedSize != UNKNOWN_SIZE && entry.expectedSize != entry.size) {
+            throw new ZipException("Entry " + new String(entry.name, StandardCharsets.UTF_8) + " has " + entry.size
+                    + " bytes, " + entry.expectedSize + " expected");
+        }
+    }
+
+    public void finish() throws IOException {
+        ensureOpen();
+        closeEntry();
+
+        long centralDirectoryOffset = out.getCount();
+        for (CentralEntry entry : centralEntries) {
+            writeCentralHeader(entry);
+        }
+        long centralDirectorySize = out.getCount() - centralDirectoryOffset;
+
+        int count = centralEntries.size();
+        boolean zip64 = count >= ZIP64_MAGIC_COUNT
+                || centralDirectoryOffset >= ZIP64_MAGIC
+                || centralDirectorySize >= ZIP64_MAGIC;
+        if (zip64) {
+            long zip64EndOffset = out.getCount();
+            writeInt(ZIP64_END_SIGNATURE);
+            writeLong(44);
+            writeShort(VERSION_ZIP64);
+            writeShort(VERSION_ZIP64);
+            writeInt(0);
+            writeInt(0);
+            writeLong(count);
+            writeLong(count);
+            writeLong(centralDirectorySize);
+            writeLong(centralDirectoryOffset);
+
+            writeInt(ZIP64_LOCATOR_SIGNATURE);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+        }
+
+        writeInt(END_SIGNATURE);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        writeShort(Math.min(count, ZIP64_MAGIC_COUNT));
+        writeInt(Math.min(centralDirectorySize, ZIP64_MAGIC));
+        writeInt(Math.min(centralDirectoryOffset, ZIP64_MAGIC));
+        writeShort(0);
+
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            finish();
+        } finally {
+            closed = true;
+            if (deflater != null) {
+                deflater.end();
+            }
+            out.close();
+        }
+    }
+
+    private @NotNull CentralEntry newEntry(@NotNull String name, int method, int flags, long dosTime) throws ZipException {
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        CentralEntry entry = new CentralEntry(name.getBytes(StandardCharsets.UTF_8), method, flags | FLAG_UTF8, dosTime, out.getCount());
+        centralEntries.add(entry);
+        return entry;
+    }
+
+    private void deflate() throws IOException {
+        int length = deflater.deflate(buffer, 0, buffer.length);
+        if (length > 0) {
+            out.write(buffer, 0, length);
+        }
+    }
+
+    private void writeLocalHeader(@NotNull CentralEntry entry, long crc, long compressedSize, long size, boolean zip64) throws IOException {
+        writeInt(LOCAL_HEADER_SIGNATURE);
+        writeShort(zip64 ? VERSION_ZIP64 : versionNeeded(entry.method));
+        writeShort(entry.flags);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(crc);
+        writeInt(zip64 ? ZIP64_MAGIC : compressedSize);
+        writeInt(zip64 ? ZIP64_MAGIC : size);
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 20 : 0);
+        out.write(entry.name);
+        if (zip64) {
+            writeShort(ZIP64_EXTRA_ID);
+            writeShort(16);
+            writeLong(size);
+            writeLong(compressedSize);
+        }
+    }
+
+    private void writeCentralHeader(@NotNull CentralEntry entry) throws IOException {
+        boolean zip64Size = entry.size >= ZIP64_MAGIC;
+        boolean zip64CompressedSize = entry.compressedSize >= ZIP64_MAGIC;
+        boolean zip64Offset = entry.localHeaderOffset >= ZIP64_MAGIC;
+        int extraLength = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+        int version = extraLength > 0 ? VERSION_ZIP64 : versionNeeded(entry.method);
+
+        writeInt(CENTRAL_HEADER_SIGNATURE);
+        writeShort(version);
+        writeShort(version);
+        writeShort(entry.flags);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(zip64CompressedSize ? ZIP64_MAGIC : entry.compressedSize);
+        writeInt(zip64Size ? ZIP64_MAGIC : entry.size);
+        writeShort(entry.name.length);
+        writeShort(extraLength > 0 ? extraLength + 4 : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(0);
+        writeInt(zip64Offset ? ZIP64_MAGIC : entry.localHeaderOffset);
+        out.write(entry.name);
+        if (extraLength > 0) {
+            writeShort(ZIP64_EXTRA_ID);
+            writeShort(extraLength);
+            if (zip64Size) {
+                writeLong(entry.size);
+            }
+            if (zip64CompressedSize) {
+                writeLong(entry.compressedSize);
+            }
+            if (zip64Offset) {
+                writeLong(entry.localHeaderOffset);
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private static boolean isZip64(@NotNull CentralEntry entry) {
+        return entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+    }
+
+    private static int versionNeeded(int method) {
+        return method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED;
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & 0xFFFFFFFFL);
+        writeInt(value >>> 32);
+    }
+
+    static long toDosTime(long time) {
+        LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (dateTime.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (long) (dateTime.getYear() - 1980) << 25
+                | dateTime.getMonthValue() << 21
+                | dateTime.getDayOfMonth() << 16
+                | dateTime.getHour() << 11
+                | dateTime.getMinute() << 5
+                | dateTime.getSecond() >> 1;
+    }
+
+    private static final class CentralEntry {
+
+        private final byte[] name;
+
+        private final int method;
+
+        private final int flags;
+
+        private final long dosTime;
+
+        private final long localHeaderOffset;
+
+        private long crc;
+
+        private long compressedSize;
+
+        private long size;
+
+        private long expectedSize = UNKNOWN_SIZE;
+
+        private boolean zip64Descriptor;
+
+        CentralEntry(byte[] name, int method, int flags, long dosTime, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.dosTime = dosTime;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private long count;
+
+        CountingOutputStream(@NotNull OutputStream out) {
+            this.out = out;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+    }
+
+}
@@ -26,11 +26,13 @@ import org.apache.jackrabbit.vault.packaging.PackageManager;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.ConverterException;
 import org.apache.sling.feature.cpconverter.handlers.EntryHandler;
+import org.apache.sling.feature.cpconverter.handlers.EntryMatch;
 import org.apache.sling.feature.cpconverter.handlers.GroupEntryHandler;
 import org.apache.sling.feature.cpconverter.handlers.SlingInitialContentBundleHandler;
 import org.apache.sling.feature.cpconverter.handlers.UsersEntryHandler;
 import org.apache.sling.feature.cpconverter.handlers.VersionResolverContentPackageEntryHandler;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class RecollectorVaultPackageScanner extends BaseVaultPackageScanner {
 
@@ -38,13 +40,29 @@ public final class RecollectorVaultPackageScanner extends BaseVaultPackageScanne
 
     private final EntryHandler[] handlers;
 
+    private final FirstPassJournal journal;
+
     public RecollectorVaultPackageScanner(@NotNull ContentPackage2FeatureModelConverter converter,
                                           @NotNull PackageManager packageManager,
                                           boolean strictValidation,
                                           @NotNull Map<PackageId, String> subContentPackages,
                                           @NotNull ContentPackage2FeatureModelConverter.SlingInitialContentPolicy slingInitialContentPolicy) {
+        this(converter, packageManager, strictValidation, subContentPackages, slingInitialContentPolicy, null);
+    }
+
+    /**
+     * @param journal - if not {@code null}, the journal recording the sub content-packages traversed by this scanner,
+     * in order to replay them later on a shared state.
+     */
+    public RecollectorVaultPackageScanner(@NotNull ContentPackage2FeatureModelConverter converter,
+                                          @NotNull PackageManager packageManager,
+                                          boolean strictValidation,
+                                          @NotNull Map<PackageId, String> subContentPackages,
+                                          @NotNull ContentPackage2FeatureModelConverter.SlingInitialContentPolicy slingInitialContentPolicy,
+                                          @Nullable FirstPassJournal journal) {
         super(packageManager, strictValidation);
         this.converter = converter;
+        this.journal = journal;
         VersionResolverContentPackageEntryHandler versionResolverContentPackageEntryHandler = new VersionResolverContentPackageEntryHandler(this, subContentPackages);
         handlers = new EntryHandler[] {
                 new UsersEntryHandler(),
@@ -54,11 +72,20 @@ public final class RecollectorVaultPackageScanner extends BaseVaultPackageScanne
         };
     }
 
+    public @Nullable FirstPassJournal getJournal() {
+        return journal;
+    }
+
     @Override
     protected void onFile(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, String runMode) throws IOException, ConverterException {
         for (EntryHandler handler : handlers) {
-            if (handler.matches(path)) {
-                handler.handle(path, archive, entry, converter, runMode);
+            // in single-pass mode, the Sling-Initial-Content gets extracted by the conversion only
+            if (converter.isSinglePass() && handler instanceof SlingInitialContentBundleHandler) {
+                continue;
+            }
+            EntryMatch match = handler.match(path);
+            if (match != null) {
+                match.handle(archive, entry, converter, runMode);
             }
         }
     }
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.jackrabbit.vault.packaging.Dependency;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.jackrabbit.vault.packaging.PackageType;
+import org.apache.jackrabbit.vault.packaging.VaultPackage;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+/**
+ * Records the package events, to be replayed later on other emitters.
+ *
+ * The packages passed along with the events are recorded as detached copies, since the original ones are usually
+ * closed right after the event has been emitted. The recorded events can be stored as JSON and restored later on,
+ * in which case the packages only provide their id, dependencies, file, size, detected type and properties.
+ */
+public final class RecordingPackagesEventsEmitter implements PackagesEventsEmitter {
+
+    private static final String START = "start";
+
+    private static final String END = "end";
+
+    private static final String START_PACKAGE = "startPackage";
+
+    private static final String END_PACKAGE = "endPackage";
+
+    private static final String START_SUB_PACKAGE = "startSubPackage";
+
+    private static final String END_SUB_PACKAGE = "endSubPackage";
+
+    private final List<Event> events = new ArrayList<>();
+
+    @Override
+    public void start() {
+        events.add(new Event(START, null, null, null));
+    }
+
+    @Override
+    public void end() {
+        events.add(new Event(END, null, null, null));
+    }
+
+    @Override
+    public void startPackage(@NotNull VaultPackage originalPackage) {
+        events.add(new Event(START_PACKAGE, null, null, new DetachedVaultPackage(originalPackage)));
+    }
+
+    @Override
+    public void endPackage(@NotNull PackageId originalPackageId, @NotNull VaultPackage convertedPackage) {
+        events.add(new Event(END_PACKAGE, null, originalPackageId, new DetachedVaultPackage(convertedPackage)));
+    }
+
+    @Override
+    public void startSubPackage(@NotNull String path, @NotNull VaultPackage originalPackage) {
+        events.add(new Event(START_SUB_PACKAGE, path, null, new DetachedVaultPackage(originalPackage)));
+    }
+
+    @Override
+    public void endSubPackage(@NotNull String path, @NotNull PackageId originalPackageId, @NotNull VaultPackage convertedPackage) {
+        events.add(new Event(END_SUB_PACKAGE, path, originalPackageId, new DetachedVaultPackage(convertedPackage)));
+    }
+
+    /**
+     * Emits all the recorded events, in the same order they were recorded, to the given emitters.
+     *
+     * @param emitters the target emitters
+     */
+    public void replay(@NotNull Collection<PackagesEventsEmitter> emitters) {
+        for (Event event : events) {
+            emitters.forEach(event::emit);
+        }
+    }
+
+    /**
+     * @return the recorded events, as JSON
+     */
+    public @NotNull JsonArray toJson() {
+        JsonArrayBuilder array = Json.createArrayBuilder();
+        for (Event event : events) {
+            JsonObjectBuilder object = Json.createObjectBuilder().add("type", event.type);
+            if (event.path != null) {
+                object.add("path", event.path);
+            }
+            if (event.originalPackageId != null) {
+                object.add("originalPackageId", event.originalPackageId.toString());
+            }
+            if (event.vaultPackage != null) {
+                object.add("package", toJson(event.vaultPackage));
+            }
+            array.add(object);
+        }
+        return array.build();
+    }
+
+    /**
+     * Restores the events previously stored by {@link #toJson()}.
+     *
+     * @param events the stored events
+     * @param startedPackageFile if not {@code null}, the file of the packages started by {@code startPackage}
+     * events, replacing the recorded one, since the same package may be read from another location
+     * @return the restored events
+     */
+    public static @NotNull RecordingPackagesEventsEmitter fromJson(@NotNull JsonArray events, @Nullable File startedPackageFile) {
+        RecordingPackagesEventsEmitter emitter = new RecordingPackagesEventsEmitter();
+        for (JsonObject event : events.getValuesAs(JsonObject.class)) {
+            String type = event.getString("type");
+            String originalPackageId = event.getString("originalPackageId", null);
+            JsonObject vaultPackage = event.getJsonObject("package");
+            emitter.events.add(new Event(type,
+                    event.getString("path", null),
+                    originalPackageId != null ? PackageId.fromString(originalPackageId) : null,
+                    vaultPackage != null ? fromJson(vaultPackage, START_PACKAGE.equals(type) ? startedPackageFile : null) : null));
+        }
+        return emitter;
+    }
+
+    private static @NotNull JsonObject toJson(@NotNull VaultPackage vaultPackage) {
+        JsonArrayBuilder dependencies = Json.createArrayBuilder();
+        for (Dependency dependency : vaultPackage.getDependencies()) {
+            dependencies.add(dependency.toString());
+        }
+        JsonObjectBuilder properties = Json.createObjectBuilder();
+        Properties packageProperties = vaultPackage.getMetaInf().getProperties();
+        for (String name : packageProperties.stringPropertyNames()) {
+            properties.add(name, packageProperties.getProperty(name));
+        }
+        JsonObjectBuilder object = Json.createObjectBuilder()
+                .add("id", vaultPackage.getId().toString())
+                .add("dependencies", dependencies)
+                .add("size", vaultPackage.getSize())
+                // the filter is not stored, the type gets detected while it is still available
+                .add("packageType", VaultPackageUtils.detectPackageType(vaultPackage).name())
+                .add("properties", properties);
+        if (vaultPackage.getFile() != null) {
+            object.add("file", vaultPackage.getFile().getAbsolutePath());
+        }
+        return object.build();
+    }
+
+    private static @NotNull VaultPackage fromJson(@NotNull JsonObject object, @Nullable File file) {
+        List<Dependency> dependencies = new ArrayList<>();
+        for (JsonString dependency : object.getJsonArray("dependencies").getValuesAs(JsonString.class)) {
+            dependencies.add(Dependency.fromString(dependency.getString()));
+        }
+        Properties properties = new Properties();
+        for (Map.Entry<String, JsonValue> property : object.getJsonObject("properties").entrySet()) {
+            properties.setProperty(property.getKey(), ((JsonString) property.getValue()).getString());
+        }
+        if (file == null && object.containsKey("file")) {
+            file = new File(object.getString("file"));
+        }
+        return new DetachedVaultPackage(PackageId.fromString(object.getString("id")),
+                dependencies.toArray(new Dependency[0]),
+                file,
+                object.getJsonNumber("size").longValue(),
+                PackageType.valueOf(object.getString("packageType")),
+                properties);
+    }
+
+    private static final class Event {
+
+        private final String type;
+
+        private final String path;
+
+        private final PackageId originalPackageId;
+
+        private final VaultPackage vaultPackage;
+
+        Event(@NotNull String type, @Nullable String path, @Nullable PackageId originalPackageId, @Nullable VaultPackage vaultPackage) {
+            this.type = type;
+            this.path = path;
+            this.originalPackageId = originalPackageId;
+            this.vaultPackage = vaultPackage;
+        }
+
+        void emit(@NotNull PackagesEventsEmitter emitter) {
+            switch (type) {
+                case START:
+                    emitter.start();
+                    break;
+                case END:
+                    emitter.end();
+                    break;
+                case START_PACKAGE:
+                    emitter.startPackage(vaultPackage);
+                    break;
+                case END_PACKAGE:
+                    emitter.endPackage(originalPackageId, vaultPackage);
+                    break;
+                case START_SUB_PACKAGE:
+                    emitter.startSubPackage(path, vaultPackage);
+                    break;
+                case END_SUB_PACKAGE:
+                    emitter.endSubPackage(path, originalPackageId, vaultPackage);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown package event " + type);
+            }
+        }
+
+    }
+
+}
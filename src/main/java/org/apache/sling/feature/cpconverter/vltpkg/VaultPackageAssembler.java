@@ -18,11 +18,15 @@ package org.apache.sling.feature.cpconverter.vltpkg;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.function.IOSupplier;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
 import org.apache.jackrabbit.vault.fs.api.PathFilterSet;
 import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.io.Archive;
 import org.apache.jackrabbit.vault.fs.io.Archive.Entry;
+import org.apache.jackrabbit.vault.fs.io.ZipArchive;
 import org.apache.jackrabbit.vault.packaging.Dependency;
 import org.apache.jackrabbit.vault.packaging.PackageId;
 import org.apache.jackrabbit.vault.packaging.PackageProperties;
@@ -31,31 +35,48 @@ import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
 import org.apache.sling.feature.cpconverter.handlers.DefaultEntryParser;
 import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
+import org.apache.sling.feature.cpconverter.shared.NodeTypes;
+import org.apache.sling.feature.cpconverter.shared.NodeTypesParser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import static org.apache.jackrabbit.vault.util.Constants.DOT_CONTENT_XML;
 import static org.apache.jackrabbit.vault.util.Constants.FILTER_XML;
 import static org.apache.jackrabbit.vault.util.Constants.META_DIR;
 import static org.apache.jackrabbit.vault.util.Constants.PROPERTIES_XML;
@@ -72,6 +93,8 @@ public class VaultPackageAssembler {
     public static final String VERSION_SUFFIX = '-' + PACKAGE_CLASSIFIER;
 
     private static final Logger log = LoggerFactory.getLogger(VaultPackageAssembler.class);
+
+    private static final String PACKAGE_PROPERTIES_ENTRY = META_DIR + '/' + PROPERTIES_XML;
     
     private final Set<String> convertedCpPaths = new HashSet<>();
     private final Set<String> extractedConvertedRepoPaths = new HashSet<>();
@@ -82,6 +105,20 @@ public class VaultPackageAssembler {
     private final Properties properties;
     private final File tmpDir;
     private final boolean disablePackageTypeRecalculation;
+    private final Set<String> streamedPaths = new HashSet<>();
+    private final Set<String> streamedDirectories = new HashSet<>();
+    private boolean streaming;
+    private File streamedEntriesFile;
+    private RawZipOutputStream streamedEntries;
+    private boolean streamedEntryOpen;
+    private RawZipFile rawSource;
+    private Archive rawSourceArchive;
+    private final Map<Entry, String> rawSourceEntryNames = new IdentityHashMap<>();
+    private PackageCompression compression = PackageCompression.DEFAULT;
+    private boolean modifiedSinceBuild = true;
+    private byte[] builtFilter;
+    private final Map<String, NodeTypes> nodeTypes = new HashMap<>();
+    private final Map<String, IOException> unparsableNodeTypes = new HashMap<>();
 
     /**
      * This class can not be instantiated from outside
@@ -188,6 +225,7 @@ public class VaultPackageAssembler {
     }
 
     public void mergeFilters(@NotNull WorkspaceFilter filter) {
+        modifiedSinceBuild = true;
         Map<String, PathFilterSet> propFilterSets = WorkspaceFilterBuilder.extractPropertyFilters(filter);
         // copy over node-filters together with the corresponding property-filters
         for (PathFilterSet pathFilterSet : filter.getFilterSets()) {
@@ -203,24 +241,69 @@ public class VaultPackageAssembler {
     }
 
     public DefaultWorkspaceFilter getFilter() {
+        // the filter may be modified by the caller
+        modifiedSinceBuild = true;
         return filter;
     }
 
     public void addEntry(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry) throws IOException {
-        try (InputStream input = Objects.requireNonNull(archive.openInputStream(entry))) {
-            addEntry(path, input);
+        addEntry(path, archive, entry, () -> archive.openInputStream(entry));
+    }
+
+    /**
+     * Same as {@link #addEntry(String, Archive, Entry)}, for an entry whose content has already been read: it is
+     * taken from the given supplier instead of being read from the archive again, unless the compressed data of the
+     * entry can be copied as is.
+     *
+     * @param path the entry path
+     * @param archive the archive the entry belongs to
+     * @param entry the entry
+     * @param content supplies the uncompressed content of the entry, at most once
+     * @throws IOException if the entry can not be stored
+     */
+    public void addEntry(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, @NotNull IOSupplier<InputStream> content)
+            throws IOException {
+        if (copyRawEntry(path, archive, entry)) {
+            return;
         }
         String repoPath = toRepositoryPath(path);
-        if (!filter.covers(repoPath) && VaultPackageUtils.isContentEntry(path)) {
-            try (InputStream input = Objects.requireNonNull(archive.openInputStream(entry))) {
+        try (InputStream input = Objects.requireNonNull(content.get())) {
+            if (!filter.covers(repoPath) && VaultPackageUtils.isContentEntry(path)) {
                 // need to inspect .content.xml to collect the complete set of converted paths (see SLING-10754)
-                DefaultEntryParser parser = new DefaultEntryParser(repoPath);
-                parser.parse(input);
-                extractedConvertedRepoPaths.addAll(parser.getParsingResult());
+                addParsedContentEntry(path, repoPath, input);
+            } else {
+                addEntry(path, input);
             }
         }
     }
 
+    /**
+     * Stores a {@code .content.xml} entry while parsing it, so that it is read only once.
+     */
+    private void addParsedContentEntry(@NotNull String path, @NotNull String repoPath, @NotNull InputStream input) throws IOException {
+        DefaultEntryParser parser = new DefaultEntryParser(repoPath);
+        IOException parsingFailure = null;
+        try (OutputStream output = createEntry(path, false)) {
+            try {
+                // the parser closes its input once done
+                parser.parse(CloseShieldInputStream.wrap(new TeeInputStream(input, output)));
+            } catch (IOException e) {
+                parsingFailure = e;
+            }
+            // whatever the parser did not consume
+            IOUtils.copy(input, output);
+        }
+
+        String repositoryPath = getContentXmlRepositoryPath(toEntryName(path));
+        if (repositoryPath != null) {
+            recordNodeTypes(repositoryPath, parsingFailure == null ? parser.getNodeTypes() : null, parsingFailure);
+        }
+        if (parsingFailure != null) {
+            throw parsingFailure;
+        }
+        extractedConvertedRepoPaths.addAll(parser.getParsingResult());
+    }
+
     public void addEntry(@NotNull String path, @NotNull File file) throws IOException {
         try (InputStream input = new FileInputStream(file)) {
             addEntry(path, input);
@@ -234,12 +317,290 @@ public class VaultPackageAssembler {
     }
 
     public @NotNull OutputStream createEntry(@NotNull String path) throws IOException {
+        return createEntry(path, true);
+    }
+
+    private @NotNull OutputStream createEntry(@NotNull String path, boolean indexNodeTypes) throws IOException {
+        String entryName = toEntryName(path);
+        if (streamedPaths.contains(entryName)) {
+            // streamed entries can not be overwritten
+            unstream();
+        }
+
+        convertedCpPaths.add(path);
+        modifiedSinceBuild = true;
+
+        if (isStreamable(entryName)) {
+            return streamEntry(entryName);
+        }
+
         File target = new File(storingDirectory, path);
         if (!target.getParentFile().mkdirs() && !target.getParentFile().isDirectory()) {
             throw new IOException("Could not create parent directory: " + target.getParentFile());
         }
+        String repositoryPath = indexNodeTypes ? getContentXmlRepositoryPath(entryName) : null;
+        if (repositoryPath == null) {
+            return new FileOutputStream(target);
+        }
+
+        return new FilterOutputStream(new FileOutputStream(target)) {
+
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    super.close();
+                    indexNodeTypes(repositoryPath, target);
+                }
+            }
+
+        };
+    }
+
+    /**
+     * @return the platform repository path of the node described by a {@code .content.xml} entry, {@code null} if the
+     * entry is not a {@code .content.xml} below {@code jcr_root}
+     */
+    private static @Nullable String getContentXmlRepositoryPath(@NotNull String entryName) {
+        String prefix = ROOT_DIR + '/';
+        String suffix = '/' + DOT_CONTENT_XML;
+        if (!entryName.startsWith(prefix) || !entryName.endsWith(suffix) || entryName.length() < prefix.length() + suffix.length()) {
+            return null;
+        }
+        return entryName.substring(ROOT_DIR.length(), entryName.length() - suffix.length());
+    }
+
+    private void indexNodeTypes(@NotNull String repositoryPath, @NotNull File contentXml) {
+        try (InputStream input = new FileInputStream(contentXml)) {
+            recordNodeTypes(repositoryPath, new NodeTypesParser().parse(input), null);
+        } catch (IOException e) {
+            recordNodeTypes(repositoryPath, null, e);
+        }
+    }
+
+    private void recordNodeTypes(@NotNull String repositoryPath, @Nullable NodeTypes parsed, @Nullable IOException parsingFailure) {
+        nodeTypes.remove(repositoryPath);
+        unparsableNodeTypes.remove(repositoryPath);
+        if (parsed != null) {
+            nodeTypes.put(repositoryPath, parsed);
+        } else if (parsingFailure != null) {
+            // only fatal if the types are asked for
+            unparsableNodeTypes.put(repositoryPath, parsingFailure);
+        }
+    }
+
+    /**
+     * Returns the types of a node as declared by the {@code .content.xml} entry added to this assembler, captured when
+     * the entry was written, so that no file needs to be read.
+     *
+     * @param repositoryPath the repository path, using the platform names as in {@link #getFileEntry(String)}
+     * @return the types of the node, {@code null} if no {@code .content.xml} declaring a primary type was added for it
+     * @throws IOException if the {@code .content.xml} entry could not be parsed
+     */
+    public @Nullable NodeTypes getNodeTypes(@NotNull String repositoryPath) throws IOException {
+        IOException failure = unparsableNodeTypes.get(repositoryPath);
+        if (failure != null) {
+            throw new IOException("Unable to parse the '" + getFileEntry(repositoryPath + '/' + DOT_CONTENT_XML) + "' file", failure);
+        }
+        return nodeTypes.get(repositoryPath);
+    }
+
+    /**
+     * Enables the streaming storage, which has to be done before adding any entry: entries which are not accessed
+     * again while converting are written straight into a zip file rather than into the storing directory; the
+     * package metadata and the {@code .content.xml} files, available via {@link #getFileEntry(String)}, are still
+     * stored in the storing directory, which is used for all entries as a fallback whenever an entry gets
+     * overwritten.
+     *
+     * @param streaming {@code true} to enable the streaming storage, {@code false} otherwise
+     */
+    public void setStreaming(boolean streaming) {
+        if (!convertedCpPaths.isEmpty()) {
+            throw new IllegalStateException("The storage can not be changed once entries have been added");
+        }
+        this.streaming = streaming;
+    }
+
+    /**
+     * Sets how the entries of the package get compressed, see {@link PackageCompression}.
+     *
+     * @param compression the package compression
+     */
+    public void setCompression(@NotNull PackageCompression compression) {
+        this.compression = compression;
+        modifiedSinceBuild = true;
+    }
+
+    private boolean isStreamable(@NotNull String entryName) {
+        return streaming
+                && !streamedEntryOpen
+                && !compression.isStored(entryName)
+                && !entryName.startsWith(META_DIR + '/')
+                && !entryName.endsWith('/' + DOT_CONTENT_XML);
+    }
+
+    /**
+     * Copies the compressed data of an unchanged entry as is, when both the source package is a zip file and the
+     * entry is streamed to the same path it has in the source package, so that it does not need to be inflated and
+     * deflated again.
+     */
+    private boolean copyRawEntry(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry) throws IOException {
+        String entryName = toEntryName(path);
+        if (!(archive instanceof ZipArchive) || streamedPaths.contains(entryName) || !isStreamable(entryName)) {
+            return false;
+        }
+
+        RawZipFile source = getRawSource(((ZipArchive) archive).getFile());
+        if (source == null || !entryName.equals(getRawSourceEntryName(archive, entry))) {
+            return false;
+        }
+        RawZipEntry rawEntry = source.getEntry(entryName);
+        if (rawEntry == null || rawEntry.isDirectory() || !rawEntry.isCopyable()) {
+            return false;
+        }
+
         convertedCpPaths.add(path);
-        return new FileOutputStream(target);
+        modifiedSinceBuild = true;
+        openStreamedEntries(entryName);
+        try (InputStream rawData = source.openRawInputStream(rawEntry)) {
+            streamedEntries.copyRawEntry(rawEntry, rawData);
+        }
+        return true;
+    }
+
+    private @Nullable RawZipFile getRawSource(@Nullable File file) throws IOException {
+        if (file == null) {
+            return null;
+        }
+        if (rawSource != null && !rawSource.getFile().equals(file)) {
+            closeRawSource();
+        }
+        if (rawSource == null) {
+            try {
+                rawSource = new RawZipFile(file);
+            } catch (IOException e) {
+                log.debug("Unable to read the central directory of {}, its entries will be recompressed", file, e);
+                return null;
+            }
+        }
+        return rawSource;
+    }
+
+    /**
+     * Entries only know their own name, their zip entry names are collected once per source archive.
+     */
+    private @Nullable String getRawSourceEntryName(@NotNull Archive archive, @NotNull Entry entry) throws IOException {
+        if (rawSourceArchive != archive) {
+            rawSourceEntryNames.clear();
+            collectRawSourceEntryNames(archive.getRoot(), "");
+            rawSourceArchive = archive;
+        }
+        return rawSourceEntryNames.get(entry);
+    }
+
+    private void collectRawSourceEntryNames(@NotNull Entry directory, @NotNull String directoryName) {
+        for (Entry child : directory.getChildren()) {
+            String childName = directoryName.isEmpty() ? child.getName() : directoryName + '/' + child.getName();
+            if (child.isDirectory()) {
+                collectRawSourceEntryNames(child, childName);
+            } else {
+                rawSourceEntryNames.put(child, childName);
+            }
+        }
+    }
+
+    private void closeRawSource() throws IOException {
+        if (rawSource != null) {
+            rawSource.close();
+            rawSource = null;
+        }
+        rawSourceArchive = null;
+        rawSourceEntryNames.clear();
+    }
+
+    private void openStreamedEntries(@NotNull String entryName) throws IOException {
+        if (streamedEntries == null) {
+            streamedEntriesFile = new File(tmpDir, storingDirectory.getName() + "-streamed.zip");
+            streamedEntries = new RawZipOutputStream(new FileOutputStream(streamedEntriesFile));
+            streamedEntries.setLevel(compression.getLevel());
+        }
+
+        streamedPaths.add(entryName);
+        for (int separator = entryName.lastIndexOf('/'); separator > 0; separator = entryName.lastIndexOf('/', separator - 1)) {
+            streamedDirectories.add(entryName.substring(0, separator));
+        }
+    }
+
+    private @NotNull OutputStream streamEntry(@NotNull String entryName) throws IOException {
+        openStreamedEntries(entryName);
+        streamedEntries.putNextEntry(entryName, System.currentTimeMillis());
+        streamedEntryOpen = true;
+
+        return new FilterOutputStream(streamedEntries) {
+
+            private boolean closed;
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    streamedEntryOpen = false;
+                    streamedEntries.closeEntry();
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Moves the streamed entries to the storing directory and disables the streaming storage.
+     */
+    private void unstream() throws IOException {
+        if (streamedEntryOpen) {
+            throw new IOException("Entries can not be overwritten while another entry is being written");
+        }
+
+        log.debug("Moving the entries streamed to {} to {}", streamedEntriesFile, storingDirectory);
+
+        closeStreamedEntries();
+        try (ZipFile zipFile = new ZipFile(streamedEntriesFile)) {
+            for (ZipEntry zipEntry : Collections.list(zipFile.entries())) {
+                File target = new File(storingDirectory, zipEntry.getName());
+                FileUtils.copyInputStreamToFile(zipFile.getInputStream(zipEntry), target);
+            }
+        }
+        Files.delete(streamedEntriesFile.toPath());
+
+        streamedEntriesFile = null;
+        streamedPaths.clear();
+        streamedDirectories.clear();
+        streaming = false;
+    }
+
+    private void closeStreamedEntries() throws IOException {
+        if (streamedEntries != null) {
+            streamedEntries.close();
+            streamedEntries = null;
+            // any further entry gets stored in the storing directory
+            streaming = false;
+        }
+        closeRawSource();
+    }
+
+    private static @NotNull String toEntryName(@NotNull String path) {
+        return path.startsWith("/") ? path.substring(1) : path;
     }
 
     /**
@@ -263,10 +624,16 @@ public class VaultPackageAssembler {
      * @return {@code true} if the given path was successfully added to the internal set, {@code false} otherwise.
      */
     public boolean recordEntryPath(@NotNull String entryPath) {
-        return allPaths.add(entryPath);
+        boolean added = allPaths.add(entryPath);
+        modifiedSinceBuild |= added;
+        return added;
     }
 
     public void updateDependencies(@NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) {
+        updateDependencies(dependencies, mutableContentsIds);
+    }
+
+    private static boolean updateDependencies(@NotNull Set<Dependency> dependencies, @NotNull Map<PackageId, Set<Dependency>> mutableContentsIds) {
         Map<Dependency, Set<Dependency>> matches = new HashMap<>();
         for (Dependency dependency : dependencies) {
             for (java.util.Map.Entry<PackageId, Set<Dependency>> mutableContentId : mutableContentsIds.entrySet()) {
@@ -279,12 +646,71 @@ public class VaultPackageAssembler {
             dependencies.remove(match.getKey());
             dependencies.addAll(match.getValue());
         }
+        return !matches.isEmpty();
+    }
+
+    /**
+     * Copies a content-package archive previously created by {@link #createPackage()}, replacing its dependencies
+     * on the given mutable content-packages the same way {@link #updateDependencies(Map)} does.
+     *
+     * @param contentPackage the content-package archive
+     * @param mutableContentsIds the mutable content-packages, along with the dependencies replacing them
+     * @param compression how the updated package properties get compressed
+     * @param target the updated content-package archive
+     * @throws IOException if the content-package archive can not be copied or updated
+     */
+    public static void updateDependencies(@NotNull File contentPackage,
+                                          @NotNull Map<PackageId, Set<Dependency>> mutableContentsIds,
+                                          @NotNull PackageCompression compression,
+                                          @NotNull File target) throws IOException {
+        Files.copy(contentPackage.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        Properties properties = new Properties();
+        try (RawZipFile zipFile = new RawZipFile(target)) {
+            RawZipEntry entry = zipFile.getEntry(PACKAGE_PROPERTIES_ENTRY);
+            if (entry == null) {
+                throw new IOException("Content-package " + contentPackage + " does not contain " + PACKAGE_PROPERTIES_ENTRY);
+            }
+            InputStream raw = zipFile.openRawInputStream(entry);
+            try (InputStream input = entry.getMethod() == ZipEntry.DEFLATED ? new InflaterInputStream(raw, new Inflater(true)) : raw) {
+                properties.loadFromXML(input);
+            }
+        }
+
+        Set<Dependency> dependencies = new HashSet<>();
+        String dependenciesString = properties.getProperty(PackageProperties.NAME_DEPENDENCIES);
+        if (dependenciesString != null) {
+            dependencies.addAll(Arrays.asList(Dependency.parse(dependenciesString)));
+        }
+        if (!updateDependencies(dependencies, mutableContentsIds)) {
+            return;
+        }
+        setDependencies(dependencies, properties);
+
+        File xmlProperties = Files.createTempFile(target.getParentFile().toPath(), "properties", ".xml").toFile();
+        try {
+            try (FileOutputStream fos = new FileOutputStream(xmlProperties)) {
+                properties.storeToXML(fos, null);
+            }
+            if (!replacePackageProperties(target, xmlProperties, compression.getLevel())) {
+                throw new IOException("The package properties of " + contentPackage + " are not the last entry, they can not be replaced");
+            }
+        } finally {
+            Files.deleteIfExists(xmlProperties.toPath());
+        }
     }
 
     public void addDependency(@NotNull Dependency dependency) {
         dependencies.add(dependency);
     }
 
+    /**
+     * Creates the content-package archive. Once created, as long as only the dependencies have been changed, further
+     * invocations just replace the package properties at the end of the same archive, rather than creating it again.
+     *
+     * @return the content-package archive
+     * @throws IOException if the archive can not be created
+     */
     public @NotNull File createPackage() throws IOException {
         // generate the Vault properties XML file
 
@@ -300,7 +726,13 @@ public class VaultPackageAssembler {
         } else {
             sourcePackageType = null;
         }
-        PackageType newPackageType = VaultPackageUtils.recalculatePackageType(sourcePackageType, storingDirectory, disablePackageTypeRecalculation);
+        Set<String> streamedRootDirectories = new HashSet<>();
+        for (String streamedDirectory : streamedDirectories) {
+            if (streamedDirectory.startsWith(ROOT_DIR + '/') && streamedDirectory.indexOf('/', ROOT_DIR.length() + 1) == -1) {
+                streamedRootDirectories.add(streamedDirectory.substring(ROOT_DIR.length() + 1));
+            }
+        }
+        PackageType newPackageType = VaultPackageUtils.recalculatePackageType(sourcePackageType, storingDirectory, streamedRootDirectories, disablePackageTypeRecalculation);
         if (newPackageType != null) {
             properties.setProperty(PackageProperties.NAME_PACKAGE_TYPE, newPackageType.name().toLowerCase());
         }
@@ -313,61 +745,131 @@ public class VaultPackageAssembler {
             properties.storeToXML(fos, null);
         }
         
+        // filter.xml only depends on the entries and the filter, it is reused when neither changed since the last build
+        boolean unchanged = !modifiedSinceBuild && builtFilter != null;
+        byte[] filterBytes = unchanged ? builtFilter : buildFilter(new File(metaDir, FILTER_XML));
+
+        // create the target archiver
+        final String destFileName = storingDirectory.getName().substring(0, storingDirectory.getName().lastIndexOf('-'));
+        final File destFile = new File(this.tmpDir, destFileName);
+
+        if (unchanged && destFile.isFile() && replacePackageProperties(destFile, xmlProperties, compression.getLevel())) {
+            return destFile;
+        }
+
+        final File manifestFile = new File(storingDirectory, JarFile.MANIFEST_NAME.replace('/', File.separatorChar));
+        Manifest manifest = null;
+        if (manifestFile.exists()) {
+            try (final InputStream r = new FileInputStream(manifestFile)) {
+                manifest = new Manifest(r);
+            }
+        }
+        try (final RawZipOutputStream jos = new RawZipOutputStream(new FileOutputStream(destFile))) {
+            jos.setLevel(compression.getLevel());
+            if (manifest != null) {
+                ByteArrayOutputStream manifestBytes = new ByteArrayOutputStream();
+                manifest.write(manifestBytes);
+                jos.putNextEntry(JarFile.MANIFEST_NAME, System.currentTimeMillis(), manifestBytes.size());
+                manifestBytes.writeTo(jos);
+                jos.closeEntry();
+            }
+            try (PackageEntriesWriter writer = new PackageEntriesWriter(jos, compression, tmpDir)) {
+                addDirectory(writer, storingDirectory, storingDirectory.getAbsolutePath().length() + 1);
+            }
+            addStreamedEntries(jos);
+            // the package properties come last, so that they can be replaced without writing the archive again
+            addPackageProperties(jos, xmlProperties);
+        }
+
+        modifiedSinceBuild = false;
+        builtFilter = filterBytes;
+        return destFile;
+    }
+
+    private byte[] buildFilter(@NotNull File xmlFilter) throws IOException {
         Set<String> allRepoPaths = VaultPackageUtils.toRepositoryPaths(allPaths);
         Set<String> convertedCpRepoPaths = VaultPackageUtils.toRepositoryPaths(convertedCpPaths);
         Set<String> filteredPaths = new HashSet<>(allRepoPaths);
         filteredPaths.removeAll(convertedCpRepoPaths);
-        
+
         WorkspaceFilterBuilder filterBuilder = new WorkspaceFilterBuilder(filter, filteredPaths, convertedCpRepoPaths, extractedConvertedRepoPaths);
         WorkspaceFilter adjustedFilter = filterBuilder.build();
 
-        File xmlFilter = new File(metaDir, FILTER_XML);
         try (InputStream input = adjustedFilter.getSource();
              FileOutputStream output = new FileOutputStream(xmlFilter)) {
             IOUtils.copy(input, output);
         }
+        return Files.readAllBytes(xmlFilter.toPath());
+    }
 
-        // create the target archiver
-        final String destFileName = storingDirectory.getName().substring(0, storingDirectory.getName().lastIndexOf('-'));
-        final File destFile = new File(this.tmpDir, destFileName);
-        final File manifestFile = new File(storingDirectory, JarFile.MANIFEST_NAME.replace('/', File.separatorChar));
-        Manifest manifest = null;
-        if (manifestFile.exists()) {
-            try (final InputStream r = new FileInputStream(manifestFile)) {
-                manifest = new Manifest(r);
+    private static void addPackageProperties(@NotNull RawZipOutputStream jos, @NotNull File xmlProperties) throws IOException {
+        jos.putNextEntry(PACKAGE_PROPERTIES_ENTRY, xmlProperties.lastModified(), xmlProperties.length());
+        try (InputStream in = new FileInputStream(xmlProperties)) {
+            IOUtils.copy(in, jos);
+        }
+        jos.closeEntry();
+    }
+
+    private static boolean replacePackageProperties(@NotNull File destFile, @NotNull File xmlProperties, int level) throws IOException {
+        List<RawZipEntry> entries = new ArrayList<>();
+        long offset;
+        try (RawZipFile zipFile = new RawZipFile(destFile)) {
+            RawZipEntry properties = zipFile.getEntry(PACKAGE_PROPERTIES_ENTRY);
+            if (properties == null) {
+                return false;
+            }
+            offset = properties.getLocalHeaderOffset();
+            for (RawZipEntry entry : zipFile.getEntries()) {
+                if (entry != properties) {
+                    if (entry.getLocalHeaderOffset() > offset) {
+                        return false;
+                    }
+                    entries.add(entry);
+                }
+            }
+        }
+
+        log.debug("Replacing the package properties of {}", destFile);
+
+        try (FileChannel channel = FileChannel.open(destFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(offset);
+            channel.position(offset);
+            try (RawZipOutputStream jos = new RawZipOutputStream(Channels.newOutputStream(channel), offset, entries)) {
+                jos.setLevel(level);
+                addPackageProperties(jos, xmlProperties);
             }
         }
-        try (final JarOutputStream jos = manifest == null ? new JarOutputStream(new FileOutputStream(destFile)) 
-                                                          : new JarOutputStream(new FileOutputStream(destFile), manifest)) {            
-            jos.setLevel(Deflater.DEFAULT_COMPRESSION);
-            addDirectory(jos, storingDirectory, storingDirectory.getAbsolutePath().length() + 1);
+        return true;
+    }
+
+    private void addStreamedEntries(@NotNull final RawZipOutputStream jos) throws IOException {
+        if (streamedEntriesFile == null) {
+            return;
         }
 
-        return destFile;
+        closeStreamedEntries();
+        // the streamed entries are already compressed, they are copied as they are
+        try (RawZipFile zipFile = new RawZipFile(streamedEntriesFile)) {
+            for (RawZipEntry zipEntry : zipFile.getEntries()) {
+                try (InputStream in = zipFile.openRawInputStream(zipEntry)) {
+                    jos.copyRawEntry(zipEntry, in);
+                }
+            }
+        }
     }
 
-    private static void addDirectory(@NotNull final JarOutputStream jos, @NotNull final File dir, final int prefixLength) throws IOException {
-        if (dir.getAbsolutePath().length() > prefixLength && dir.listFiles().length == 0) {
+    private void addDirectory(@NotNull final PackageEntriesWriter writer, @NotNull final File dir, final int prefixLength) throws IOException {
+        if (dir.getAbsolutePath().length() > prefixLength && dir.listFiles().length == 0
+                && !streamedDirectories.contains(dir.getAbsolutePath().substring(prefixLength).replace(File.separatorChar, '/'))) {
             final String dirName = dir.getAbsolutePath().substring(prefixLength).replace(File.separatorChar, '/');
-            final JarEntry entry = new JarEntry(dirName);
-            entry.setTime(dir.lastModified());
-            entry.setSize(0);
-            jos.putNextEntry(entry);
-            jos.closeEntry();
+            writer.addEmptyEntry(dirName, dir.lastModified());
         }
         for (final File f : dir.listFiles()) {
             final String name = f.getAbsolutePath().substring(prefixLength).replace(File.separatorChar, '/');
-            if (f.isFile() && !JarFile.MANIFEST_NAME.equals(name)) {
-                final JarEntry entry = new JarEntry(name);
-                entry.setTime(f.lastModified());
-                jos.putNextEntry(entry);
-
-                try (final FileInputStream in = new FileInputStream(f)) {
-                    IOUtils.copy(in, jos);
-                }
-                jos.closeEntry();
+            if (f.isFile() && !JarFile.MANIFEST_NAME.equals(name) && !PACKAGE_PROPERTIES_ENTRY.equals(name)) {
+                writer.addFile(name, f);
             } else if (f.isDirectory()) {
-                addDirectory(jos, f, prefixLength);
+                addDirectory(writer, f, prefixLength);
             }
         }
     }
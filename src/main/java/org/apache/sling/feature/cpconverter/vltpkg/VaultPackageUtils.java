@@ -18,7 +18,9 @@ package org.apache.sling.feature.cpconverter.vltpkg;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
@@ -91,20 +93,34 @@ public class VaultPackageUtils {
     static @Nullable PackageType recalculatePackageType(PackageType sourcePackageType, 
                                                         @NotNull File outputDirectory, 
                                                         boolean disablePackageTypeRecalculation) {
-        
+        return recalculatePackageType(sourcePackageType, outputDirectory, Collections.emptySet(), disablePackageTypeRecalculation);
+    }
+
+    /**
+     * @param rootDirectories the names of further directories below {@code jcr_root}, which are not stored in the
+     * output directory.
+     */
+    static @Nullable PackageType recalculatePackageType(PackageType sourcePackageType,
+                                                        @NotNull File outputDirectory,
+                                                        @NotNull Set<String> rootDirectories,
+                                                        boolean disablePackageTypeRecalculation) {
+
         if (sourcePackageType != null && (sourcePackageType != PackageType.MIXED || disablePackageTypeRecalculation)) {
             return null;
         }
-        
+
+        Set<String> names = new HashSet<>(rootDirectories);
+        forEachDirectoryBelowJcrRoot(outputDirectory, (child, base) -> names.add(child.getName()));
+
         AtomicBoolean foundMutableFiles = new AtomicBoolean();
         AtomicBoolean foundImmutableFiles = new AtomicBoolean();
-        forEachDirectoryBelowJcrRoot(outputDirectory, (child, base) -> {
-            if (child.getName().equals("apps") || child.getName().equals("libs")) {
+        for (String name : names) {
+            if (name.equals("apps") || name.equals("libs")) {
                 foundImmutableFiles.weakCompareAndSet(false, true);
             } else {
                 foundMutableFiles.weakCompareAndSet(false, true);
             }
-        });
+        }
         if (foundImmutableFiles.get() && !foundMutableFiles.get()) {
             return PackageType.APPLICATION;
         } else if (!foundImmutableFiles.get() && foundMutableFiles.get()) {
@@ -168,4 +184,17 @@ public class VaultPackageUtils {
     public static boolean isContentEntry(@NotNull String entryPath) {
         return entryPath.startsWith(ENTRY_ROOT_PATH) && entryPath.endsWith(DOT_CONTENT_XML);
     }
+
+    /**
+     * @param zip the content of a zip file, e.g. a sub content-package read in memory
+     * @return the sum of the uncompressed sizes of the zip file entries, as declared in its central directory
+     * @throws IOException if the central directory of the zip file can not be read
+     */
+    public static long getUncompressedSize(@NotNull byte[] zip) throws IOException {
+        long size = 0;
+        for (RawZipEntry entry : RawZipFile.readEntries(zip)) {
+            size += entry.getSize();
+        }
+        return size;
+    }
 }
@@ -24,10 +24,12 @@ import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.config.ConfigurationException;
 import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.filter.DefaultPathFilter;
+import org.apache.sling.feature.cpconverter.shared.PathTrie;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
@@ -39,9 +41,10 @@ import java.util.Set;
 class WorkspaceFilterBuilder {
     
     private final WorkspaceFilter baseFilter;
-    private final Set<String> filteredPaths;
-    private final Set<String> cpPaths;
+    private final PathTrie filteredPaths;
+    private final PathTrie cpPaths;
     private final Set<String> extractedPaths;
+    private final Set<String> extractedParentPaths = new HashSet<>();
 
     /**
      * Create a new {@link WorkspaceFilterBuilder}
@@ -58,10 +61,16 @@ class WorkspaceFilterBuilder {
                            @NotNull Set<String> convertedRepositoryPaths,
                            @NotNull Set<String> extractedRepositoryPaths) {
         this.baseFilter = baseFilter;
-        this.filteredPaths = filteredRepositoryPaths;
-        this.cpPaths = convertedRepositoryPaths;
+        // indexed once, so that each filter set only looks at the paths below its root
+        this.filteredPaths = new PathTrie(filteredRepositoryPaths);
+        this.cpPaths = new PathTrie(convertedRepositoryPaths);
         this.extractedPaths = extractedRepositoryPaths;
-        
+        for (String extractedPath : extractedRepositoryPaths) {
+            String parentPath = getSiblingsKey(extractedPath);
+            if (parentPath != null) {
+                extractedParentPaths.add(parentPath);
+            }
+        }
     }
 
     /**
@@ -104,7 +113,7 @@ class WorkspaceFilterBuilder {
     }
     
     private boolean coversFilteredPath(@NotNull PathFilterSet pfs) {
-        return filteredPaths.stream().anyMatch(pfs::covers);
+        return filteredPaths.containsDescendantsOrSelf(pfs.getRoot());
     }
 
     /**
@@ -120,9 +129,18 @@ class WorkspaceFilterBuilder {
      * the new content of the converted package as reflected by the recorded paths.
      */
     private boolean coversConvertedPath(@NotNull PathFilterSet pfs) {
-        return cpPaths.stream().anyMatch(pfs::covers) ||
+        return cpPaths.containsDescendantsOrSelf(pfs.getRoot()) ||
                 // test if a extracted path matches or is a sibling of the filter root (see discussion in SLING-10760)
-                extractedPaths.stream().anyMatch(path -> path.equals(pfs.getRoot()) || Text.isSibling(path, pfs.getRoot()));
+                extractedPaths.contains(pfs.getRoot()) || extractedParentPaths.contains(getSiblingsKey(pfs.getRoot()));
+    }
+
+    /**
+     * @return the part shared by the sibling paths, as in {@link Text#isSibling(String, String)}, {@code null} if the
+     * path has no siblings
+     */
+    private static @Nullable String getSiblingsKey(@NotNull String path) {
+        int index = path.lastIndexOf('/');
+        return index >= 0 ? path.substring(0, index) : null;
     }
 
     /**
@@ -140,7 +158,7 @@ class WorkspaceFilterBuilder {
         PathFilterSet propPfs = propFilters.remove(pfs.getRoot());
         if (propPfs != null) {
             // note: no need to add additional exclude entries for property-filters
-            PathFilterSet propFilterSet = copyPathFilterSet(propPfs, Collections.emptySet());
+            PathFilterSet propFilterSet = copyPathFilterSet(propPfs, new PathTrie());
             newFilter.add(nodeFilterSet, propFilterSet);
         } else {
             newFilter.add(nodeFilterSet);
@@ -152,12 +170,12 @@ class WorkspaceFilterBuilder {
      * covered by the given {@link PathFilterSet}.
      * 
      * @param pfs The original {@link PathFilterSet} as present on the original base {@link WorkspaceFilter}.
-     * @param filteredPaths A set of paths that have been moved from the original content package to repo-init.
+     * @param filteredPaths The index of the paths that have been moved from the original content package to repo-init.
      * @return A copy of the given {@link PathFilterSet} plus additional exclude rules for covered filtered paths.
      * @throws ConfigurationException If an error occurs while constructing the new {@link PathFilterSet}
      */
     @NotNull
-    private static PathFilterSet copyPathFilterSet(@NotNull PathFilterSet pfs, @NotNull Set<String> filteredPaths) throws ConfigurationException {
+    private static PathFilterSet copyPathFilterSet(@NotNull PathFilterSet pfs, @NotNull PathTrie filteredPaths) throws ConfigurationException {
         // create a new path-filter-set
         PathFilterSet filterSet = new PathFilterSet(pfs.getRoot());
         filterSet.setType(pfs.getType());
@@ -173,10 +191,8 @@ class WorkspaceFilterBuilder {
         }
 
         // for all paths that got filtered out and moved to repo-init make sure they get explicitly excluded
-        for (String path : filteredPaths) {
-            if (pfs.covers(path)) {
-                filterSet.addExclude(new DefaultPathFilter(path));
-            }
+        for (String path : filteredPaths.getDescendantsOrSelf(pfs.getRoot())) {
+            filterSet.addExclude(new DefaultPathFilter(path));
         }
         return filterSet;
     }
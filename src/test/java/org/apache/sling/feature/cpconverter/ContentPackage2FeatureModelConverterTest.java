@@ -22,6 +22,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -31,12 +32,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.net.URL;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -44,6 +49,8 @@ import jakarta.json.JsonObject;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.jackrabbit.vault.fs.io.Archive.Entry;
 import org.apache.jackrabbit.vault.fs.spi.PrivilegeDefinitions;
 import org.apache.jackrabbit.vault.packaging.PackageId;
 import org.apache.jackrabbit.vault.packaging.PackageProperties;
@@ -56,18 +63,24 @@ import org.apache.sling.feature.Bundles;
 import org.apache.sling.feature.Configuration;
 import org.apache.sling.feature.Configurations;
 import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionState;
 import org.apache.sling.feature.ExtensionType;
 import org.apache.sling.feature.Feature;
 import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter.PackagePolicy;
 import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter.RunModePolicy;
+import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter.SlingInitialContentPolicy;
 import org.apache.sling.feature.cpconverter.accesscontrol.DefaultAclManager;
 import org.apache.sling.feature.cpconverter.artifacts.LocalMavenRepositoryArtifactsDeployer;
 import org.apache.sling.feature.cpconverter.artifacts.SimpleFolderArtifactsDeployer;
+import org.apache.sling.feature.cpconverter.cache.ConversionCache;
 import org.apache.sling.feature.cpconverter.features.DefaultFeaturesManager;
 import org.apache.sling.feature.cpconverter.filtering.RegexBasedResourceFilter;
 import org.apache.sling.feature.cpconverter.handlers.DefaultEntryHandlersManager;
+import org.apache.sling.feature.cpconverter.handlers.EntryHandler;
 import org.apache.sling.feature.cpconverter.handlers.EntryHandlersManager;
+import org.apache.sling.feature.cpconverter.handlers.slinginitialcontent.BundleSlingInitialContentExtractor;
+import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
 import org.apache.sling.feature.cpconverter.vltpkg.DefaultPackagesEventsEmitter;
 import org.apache.sling.feature.io.json.FeatureJSONReader;
 import org.junit.After;
@@ -856,6 +869,214 @@ public class ContentPackage2FeatureModelConverterTest extends AbstractConverterT
         }
     }
 
+    /**
+     * Converts the given content-packages sequentially, then with the given variant, and asserts that both
+     * conversions produce the same output.
+     */
+    private void assertSameOutput(String variantName, ConversionVariant variant, String... contentPackages) throws Exception {
+        assertSameOutput(variantName, ContentPackage2FeatureModelConverterTest::newConfiguredConverter, variant, load(contentPackages));
+    }
+
+    private void assertSameOutput(String variantName, ConverterBuilder builder, ConversionVariant variant, File... contentPackages) throws Exception {
+        File tmpDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + '_' + variantName + '_' + System.currentTimeMillis());
+        File sequentialOutputDirectory = new File(tmpDirectory, "sequential");
+        File variantOutputDirectory = new File(tmpDirectory, variantName);
+
+        try {
+            try (ContentPackage2FeatureModelConverter sequential = builder.newConverter(sequentialOutputDirectory)) {
+                sequential.setEmitter(DefaultPackagesEventsEmitter.open(sequentialOutputDirectory))
+                          .convert(contentPackages);
+            }
+            try (ContentPackage2FeatureModelConverter converter = builder.newConverter(variantOutputDirectory)) {
+                converter.setEmitter(DefaultPackagesEventsEmitter.open(variantOutputDirectory));
+                variant.convert(converter, variantOutputDirectory, contentPackages);
+            }
+
+            assertSameOutput(sequentialOutputDirectory, variantOutputDirectory);
+        } finally {
+            deleteDirTree(tmpDirectory);
+        }
+    }
+
+    /**
+     * The Sling-Initial-Content parent folders are collected in an order which depends on the temporary files the
+     * bundle is extracted to, so consecutive create path statements are compared regardless of their order.
+     */
+    private static String sortCreatePathStatements(String featureJson) {
+        List<String> lines = new ArrayList<>();
+        List<String> statements = new ArrayList<>();
+        for (String line : featureJson.split("\\R")) {
+            if (line.trim().startsWith("\"create path ")) {
+                statements.add(line.endsWith(",") ? line.substring(0, line.length() - 1) : line);
+                continue;
+            }
+            Collections.sort(statements);
+            lines.addAll(statements);
+            statements.clear();
+            lines.add(line);
+        }
+        Collections.sort(statements);
+        lines.addAll(statements);
+        return String.join("\n", lines);
+    }
+
+    private static void assertSameOutput(File expectedDirectory, File actualDirectory) throws IOException {
+        File[] featureFiles = expectedDirectory.listFiles((directory, name) -> name.endsWith(".json"));
+        assertNotNull(featureFiles);
+        assertTrue(featureFiles.length > 0);
+        for (File featureFile : featureFiles) {
+            assertEquals(featureFile.getName(),
+                    sortCreatePathStatements(FileUtils.readFileToString(featureFile, "UTF-8")),
+                    sortCreatePathStatements(FileUtils.readFileToString(new File(actualDirectory, featureFile.getName()), "UTF-8")));
+        }
+
+        Properties expectedRunmodes = new Properties();
+        Properties actualRunmodes = new Properties();
+        try (Reader expectedReader = new FileReader(new File(expectedDirectory, "runmode.mapping"));
+             Reader actualReader = new FileReader(new File(actualDirectory, "runmode.mapping"))) {
+            expectedRunmodes.load(expectedReader);
+            actualRunmodes.load(actualReader);
+        }
+        assertEquals(expectedRunmodes, actualRunmodes);
+
+        assertSameDeployedPackages(expectedDirectory, actualDirectory);
+
+        List<String> expectedPackages = Files.readAllLines(new File(expectedDirectory, "content-packages.csv").toPath());
+        List<String> actualPackages = Files.readAllLines(new File(actualDirectory, "content-packages.csv").toPath());
+        // skip the header line, which contains the creation date
+        assertEquals(expectedPackages.subList(1, expectedPackages.size()), actualPackages.subList(1, actualPackages.size()));
+    }
+
+    private static void assertSameDeployedPackages(File expectedDirectory, File actualDirectory) throws IOException {
+        Set<String> deployedPackages = listDeployedPackages(expectedDirectory);
+        assertFalse(deployedPackages.isEmpty());
+        assertEquals(deployedPackages, listDeployedPackages(actualDirectory));
+        for (String deployedPackage : deployedPackages) {
+            assertEquals(deployedPackage,
+                    readEntries(new File(expectedDirectory, deployedPackage)),
+                    readEntries(new File(actualDirectory, deployedPackage)));
+        }
+    }
+
+    private static Map<String, String> readEntries(File zip) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                entries.put(entry.getName(), IOUtils.toString(zipFile.getInputStream(entry), "UTF-8"));
+            }
+        }
+        return entries;
+    }
+
+    private static Set<String> listDeployedPackages(File outputDirectory) {
+        Set<String> deployedPackages = new TreeSet<>();
+        for (File deployedPackage : FileUtils.listFiles(outputDirectory, new String[] { "zip" }, true)) {
+            deployedPackages.add(outputDirectory.toPath().relativize(deployedPackage.toPath()).toString());
+        }
+        return deployedPackages;
+    }
+
+    private static ContentPackage2FeatureModelConverter newConfiguredConverter(File outputDirectory) throws IOException {
+        DefaultAclManager aclManager = new DefaultAclManager();
+        return new ContentPackage2FeatureModelConverter()
+                .setEntryHandlersManager(new DefaultEntryHandlersManager())
+                .setAclManager(aclManager)
+                .setFeaturesManager(new DefaultFeaturesManager(true, 5, outputDirectory, null, null, new HashMap<>(), aclManager))
+                .setBundlesDeployer(new LocalMavenRepositoryArtifactsDeployer(outputDirectory));
+    }
+
+    private File embedBundle(File tmpDirectory, String bundle, boolean truncated) throws IOException {
+        File contentPackage = new File(tmpDirectory, "test_a-sling-initial-content-1.0.zip");
+        try (ZipFile source = new ZipFile(FileUtils.toFile(getClass().getResource("test_a-1.0.zip")));
+             ZipOutputStream target = new ZipOutputStream(FileUtils.openOutputStream(contentPackage))) {
+            for (ZipEntry entry : Collections.list(source.entries())) {
+                target.putNextEntry(new ZipEntry(entry.getName()));
+                IOUtils.copy(source.getInputStream(entry), target);
+                target.closeEntry();
+            }
+            target.putNextEntry(new ZipEntry("jcr_root/apps/gav/install/" + new File(bundle).getName()));
+            byte[] bundleBytes = IOUtils.toByteArray(getClass().getResource(bundle));
+            target.write(bundleBytes, 0, truncated ? bundleBytes.length / 2 : bundleBytes.length);
+            target.closeEntry();
+        }
+        return contentPackage;
+    }
+
+    private ContentPackage2FeatureModelConverter newSlingInitialContentConverter(File outputDirectory) throws IOException, ConverterException {
+        BundleSlingInitialContentExtractor extractor = new BundleSlingInitialContentExtractor();
+        DefaultAclManager aclManager = new DefaultAclManager();
+        DefaultFeaturesManager featuresManager = new DefaultFeaturesManager(true, 5, outputDirectory, null, null, new HashMap<>(), aclManager);
+        // the bundle initial content requires the granite namespace
+        Feature seed = new Feature(ArtifactId.fromMvnId("org.apache.sling:seed:1.0.0"));
+        Extension repoinit = new Extension(ExtensionType.TEXT, Extension.EXTENSION_NAME_REPOINIT, ExtensionState.REQUIRED);
+        repoinit.setText("register namespace (granite) http://www.adobe.com/jcr/granite/1.0");
+        seed.getExtensions().add(repoinit);
+        featuresManager.addSeed(seed);
+
+        return new ContentPackage2FeatureModelConverter(false, SlingInitialContentPolicy.EXTRACT_AND_REMOVE)
+                .setEntryHandlersManager(new DefaultEntryHandlersManager(Collections.emptyMap(), false, SlingInitialContentPolicy.EXTRACT_AND_REMOVE, extractor, ConverterConstants.SYSTEM_USER_REL_PATH_DEFAULT))
+                .setBundleSlingInitialContentExtractor(extractor)
+                .setAclManager(aclManager)
+                .setFeaturesManager(featuresManager)
+                .setBundlesDeployer(new LocalMavenRepositoryArtifactsDeployer(outputDirectory));
+    }
+
+    private void assertCachedConversions(String run, ConversionCache cache, int expectedConversions) throws Exception {
+        AtomicInteger conversions = new AtomicInteger();
+        assertSameOutput(run, (cached, outputDirectory, contentPackages) ->
+                cached.setConversionCache(cache)
+                      .setConverterFactory(() -> {
+                          conversions.incrementAndGet();
+                          return newConfiguredConverter(outputDirectory);
+                      })
+                      .convert(contentPackages),
+                TEST_PACKAGES_INPUT);
+        assertEquals(run, expectedConversions, conversions.get());
+    }
+
+    @FunctionalInterface
+    private interface ConverterBuilder {
+
+        ContentPackage2FeatureModelConverter newConverter(File outputDirectory) throws IOException, ConverterException;
+
+    }
+
+    @FunctionalInterface
+    private interface ConversionVariant {
+
+        void convert(ContentPackage2FeatureModelConverter converter, File outputDirectory, File[] contentPackages) throws Exception;
+
+    }
+
+    private static final class FailingEntryHandlersManager implements EntryHandlersManager {
+
+        static final String MESSAGE = "Entries can not be handled";
+
+        @Override
+        public EntryHandler getEntryHandlerByEntryPath(String path) {
+            return new EntryHandler() {
+
+                @Override
+                public boolean matches(String path) {
+                    return true;
+                }
+
+                @Override
+                public void handle(String path, Archive archive, Entry entry, ContentPackage2FeatureModelConverter converter, String runMode)
+                        throws ConverterException {
+                    throw new ConverterException(MESSAGE);
+                }
+
+            };
+        }
+
+        @Override
+        public void addEntryHandler(EntryHandler handler) {
+            // every entry fails anyway
+        }
+
+    }
+
     @Test
     public void overrideFeatureId() throws Exception {
         URL packageUrl = getClass().getResource("test-content-package.zip");
@@ -916,12 +1137,30 @@ public class ContentPackage2FeatureModelConverterTest extends AbstractConverterT
         }
     }
 
+    @Test
+    public void testParallelPackageOrdering() throws Exception {
+        File[] contentPackages = load(TEST_PACKAGES_INPUT);
+
+        Collection<VaultPackage> ordered = converter.setFirstPassThreads(3).firstPass(contentPackages);
+
+        Iterator<VaultPackage> fileIt = ordered.iterator();
+        for (String expected : TEST_PACKAGES_OUTPUT) {
+            VaultPackage next = fileIt.next();
+            assertEquals(expected, next.getId().toString());
+        }
+    }
+
     @Test(expected = ConverterException.class)
     public void testDependencyCycle() throws Exception {
         File[] contentPackages = load(TEST_PACKAGES_CYCLIC_DEPENDENCY);
         converter.firstPass(contentPackages);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void firstPassThreadsMustBePositive() {
+        converter.setFirstPassThreads(0);
+    }
+
     @Test
     public void includeLatestUpdatedContentPackagesOnly() throws Exception {
         File[] contentPackages = load("test-content-package.zip", "test-content-package-2.zip");
@@ -931,6 +1170,255 @@ public class ContentPackage2FeatureModelConverterTest extends AbstractConverterT
         assertFalse(converter.isSubContentPackageIncluded("/jcr_root/etc/packages/asd/test-content.zip"));
     }
 
+    @Test
+    public void includeLatestUpdatedContentPackagesOnlyInParallel() throws Exception {
+        File[] contentPackages = load("test-content-package.zip", "test-content-package-2.zip");
+        converter.setFirstPassThreads(2).firstPass(contentPackages);
+
+        assertTrue(converter.isSubContentPackageIncluded("/jcr_root/etc/packages/asd/test-content-0.2.zip"));
+        assertFalse(converter.isSubContentPackageIncluded("/jcr_root/etc/packages/asd/test-content.zip"));
+    }
+
+    @Test
+    public void parallelSecondPassProducesTheSameOutput() throws Exception {
+        assertSameOutput("parallel", (parallel, outputDirectory, contentPackages) ->
+                parallel.setSecondPassThreads(3)
+                        .setDeployThreads(3)
+                        .setConverterFactory(() -> newConfiguredConverter(outputDirectory))
+                        .convert(contentPackages),
+                TEST_PACKAGES_INPUT);
+    }
+
+    @Test
+    public void parallelSecondPassReportsFailingWorkers() throws Exception {
+        File outputDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_failingworker_" + System.currentTimeMillis());
+
+        try (ContentPackage2FeatureModelConverter parallel = newConfiguredConverter(outputDirectory)) {
+            parallel.setSecondPassThreads(3)
+                    .setConverterFactory(() -> newConfiguredConverter(outputDirectory).setEntryHandlersManager(new FailingEntryHandlersManager()))
+                    .convert(load(TEST_PACKAGES_INPUT));
+            fail("The workers failure has not been reported");
+        } catch (ConverterException e) {
+            assertTrue(e.getMessage().endsWith(FailingEntryHandlersManager.MESSAGE));
+            // nothing gets deployed when a content-package can not be converted
+            assertTrue(listDeployedPackages(outputDirectory).isEmpty());
+        } finally {
+            deleteDirTree(outputDirectory);
+        }
+    }
+
+    @Test
+    public void singlePassProducesTheSameOutput() throws Exception {
+        File tmpDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_singlepass_" + System.currentTimeMillis());
+
+        try {
+            // embed a bundle with Sling-Initial-Content in a content-package
+            File contentPackage = embedBundle(tmpDirectory, "handlers/io.wcm.handler.media-1.11.6.jar", false);
+
+            assertSameOutput("single-pass", this::newSlingInitialContentConverter,
+                    (singlePass, outputDirectory, contentPackages) -> singlePass.setSinglePass(true).convert(contentPackages),
+                    contentPackage);
+        } finally {
+            deleteDirTree(tmpDirectory);
+        }
+    }
+
+    @Test
+    public void singlePassReportsBrokenBundles() throws Exception {
+        File tmpDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_singlepass_broken_" + System.currentTimeMillis());
+
+        try {
+            File contentPackage = embedBundle(tmpDirectory, "handlers/io.wcm.handler.media-1.11.6.jar", true);
+
+            for (boolean singlePass : new boolean[] { false, true }) {
+                File outputDirectory = new File(tmpDirectory, String.valueOf(singlePass));
+                try (ContentPackage2FeatureModelConverter converter = newSlingInitialContentConverter(outputDirectory)) {
+                    converter.setSinglePass(singlePass).convert(contentPackage);
+                    fail("The truncated bundle has not been reported");
+                } catch (IOException | ConverterException e) {
+                    // expected, in both modes
+                }
+            }
+        } finally {
+            deleteDirTree(tmpDirectory);
+        }
+    }
+
+    @Test
+    public void includeLatestUpdatedContentPackagesOnlyInSinglePass() throws Exception {
+        File[] contentPackages = load("test-content-package.zip", "test-content-package-2.zip");
+        converter.setSinglePass(true).firstPass(contentPackages);
+
+        assertTrue(converter.isSubContentPackageIncluded("/jcr_root/etc/packages/asd/test-content-0.2.zip"));
+        assertFalse(converter.isSubContentPackageIncluded("/jcr_root/etc/packages/asd/test-content.zip"));
+    }
+
+    @Test
+    public void streamingPackageAssemblyProducesTheSamePackages() throws Exception {
+        assertSameOutput("streaming", (streaming, outputDirectory, contentPackages) ->
+                streaming.setStreamingPackageAssembly(true).convert(contentPackages),
+                "test-content-package.zip");
+    }
+
+    @Test
+    public void streamingPackageAssemblyDeploysNothingOnFailure() throws Exception {
+        File outputDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_failingstreaming_" + System.currentTimeMillis());
+
+        try (ContentPackage2FeatureModelConverter streaming = newConfiguredConverter(outputDirectory)) {
+            streaming.setStreamingPackageAssembly(true)
+                     .setEntryHandlersManager(new FailingEntryHandlersManager())
+                     .convert(load("test-content-package.zip"));
+            fail("The failing entries have not been reported");
+        } catch (ConverterException e) {
+            assertTrue(e.getMessage().endsWith(FailingEntryHandlersManager.MESSAGE));
+            assertTrue(listDeployedPackages(outputDirectory).isEmpty());
+        } finally {
+            deleteDirTree(outputDirectory);
+        }
+    }
+
+    @Test
+    public void subContentPackagesReadInMemoryProduceTheSamePackages() throws Exception {
+        assertSameOutput("in-memory", (inMemory, outputDirectory, contentPackages) -> {
+            inMemory.setSubContentPackageMemoryThreshold(1024 * 1024)
+                    .convert(contentPackages);
+            // no sub content-package has been extracted
+            File[] extracted = new File(inMemory.getTempDirectory(), "sub-content-packages").listFiles();
+            assertTrue(extracted == null || extracted.length == 0);
+        }, "test-content-package.zip");
+    }
+
+    @Test
+    public void truncatedSubContentPackagesReadInMemoryAreReported() throws Exception {
+        File tmpDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_truncated_" + System.currentTimeMillis());
+
+        try {
+            // truncate the sub content-packages
+            File contentPackage = new File(tmpDirectory, "test-content-package.zip");
+            try (ZipFile source = new ZipFile(FileUtils.toFile(getClass().getResource("test-content-package.zip")));
+                 ZipOutputStream target = new ZipOutputStream(FileUtils.openOutputStream(contentPackage))) {
+                for (ZipEntry entry : Collections.list(source.entries())) {
+                    byte[] content = IOUtils.toByteArray(source.getInputStream(entry));
+                    target.putNextEntry(new ZipEntry(entry.getName()));
+                    target.write(content, 0, entry.getName().startsWith("jcr_root/etc/packages/") ? content.length / 2 : content.length);
+                    target.closeEntry();
+                }
+            }
+
+            for (int threshold : new int[] { 0, 1024 * 1024 }) {
+                File outputDirectory = new File(tmpDirectory, String.valueOf(threshold));
+                try (ContentPackage2FeatureModelConverter converter = newConfiguredConverter(outputDirectory)) {
+                    converter.setSubContentPackageMemoryThreshold(threshold).convert(contentPackage);
+                    fail("The truncated sub content-packages have not been reported");
+                } catch (IOException | ConverterException e) {
+                    // expected, whether they are extracted or not
+                }
+            }
+        } finally {
+            deleteDirTree(tmpDirectory);
+        }
+    }
+
+    @Test
+    public void cachedConversionsProduceTheSameOutput() throws Exception {
+        File cacheDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_cache_" + System.currentTimeMillis());
+
+        try {
+            // the second run does not convert any content-package
+            assertCachedConversions("cold", new ConversionCache(cacheDirectory, Long.MAX_VALUE, "test"), TEST_PACKAGES_INPUT.length);
+            assertCachedConversions("warm", new ConversionCache(cacheDirectory, Long.MAX_VALUE, "test"), 0);
+            // until the converters configuration changes
+            assertCachedConversions("reconfigured", new ConversionCache(cacheDirectory, Long.MAX_VALUE, "reconfigured"), TEST_PACKAGES_INPUT.length);
+        } finally {
+            deleteDirTree(cacheDirectory);
+        }
+    }
+
+    @Test
+    public void failedConversionsAreNotCached() throws Exception {
+        File tmpDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_failedcache_" + System.currentTimeMillis());
+        File cacheDirectory = new File(tmpDirectory, "cache");
+
+        try {
+            try (ContentPackage2FeatureModelConverter failing = newConfiguredConverter(new File(tmpDirectory, "failing"))) {
+                failing.setConversionCache(new ConversionCache(cacheDirectory, Long.MAX_VALUE, "test"))
+                       .setConverterFactory(() -> newConfiguredConverter(new File(tmpDirectory, "failing")).setEntryHandlersManager(new FailingEntryHandlersManager()))
+                       .convert(load(TEST_PACKAGES_INPUT));
+                fail("The workers failure has not been reported");
+            } catch (ConverterException e) {
+                assertTrue(e.getMessage().endsWith(FailingEntryHandlersManager.MESSAGE));
+            }
+
+            assertCachedConversions("retried", new ConversionCache(cacheDirectory, Long.MAX_VALUE, "test"), TEST_PACKAGES_INPUT.length);
+        } finally {
+            deleteDirTree(tmpDirectory);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void conversionCacheRequiresConverterFactory() throws Exception {
+        File cacheDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_cache_" + System.currentTimeMillis());
+        try {
+            converter.setConversionCache(new ConversionCache(cacheDirectory, 1024, "test")).convert(load(TEST_PACKAGES_INPUT));
+        } finally {
+            deleteDirTree(cacheDirectory);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deployThreadsMustBePositive() {
+        converter.setDeployThreads(0);
+    }
+
+    @Test
+    public void parallelDeployReportsAllFailures() throws Exception {
+        File outputDirectory = new File(System.getProperty("java.io.tmpdir"), getClass().getName() + "_faileddeploy_" + System.currentTimeMillis());
+        AtomicInteger failedDeployments = new AtomicInteger();
+        Set<Thread> deployThreads = Collections.synchronizedSet(new HashSet<>());
+        LocalMavenRepositoryArtifactsDeployer deployer = new LocalMavenRepositoryArtifactsDeployer(outputDirectory);
+
+        try {
+            converter.setFeaturesManager(new DefaultFeaturesManager(true, 5, outputDirectory, null, null, new HashMap<>(), new DefaultAclManager()))
+                     .setBundlesDeployer((artifactWriter, runMode, id) -> {
+                         if (!"zip".equals(id.getType())) {
+                             return deployer.deploy(artifactWriter, runMode, id);
+                         }
+                         deployThreads.add(Thread.currentThread());
+                         failedDeployments.incrementAndGet();
+                         throw new IOException("Content-package " + id + " can not be deployed");
+                     })
+                     .setDeployThreads(3);
+
+            try {
+                converter.convert(load(TEST_PACKAGES_INPUT));
+                fail("The deploy failures have not been reported");
+            } catch (RuntimeException e) {
+                assertTrue(failedDeployments.get() > 1);
+                assertEquals(failedDeployments.get(), 1 + e.getSuppressed().length);
+            }
+
+            for (Thread deployThread : deployThreads) {
+                deployThread.join(10000);
+                assertFalse(deployThread.isAlive());
+            }
+        } finally {
+            deleteDirTree(outputDirectory);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parallelSecondPassRequiresConverterFactory() throws Exception {
+        converter.setSecondPassThreads(2).convert(load(TEST_PACKAGES_INPUT));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void parallelSecondPassRejectsEnforcedPrincipalBasedAccessControl() throws Exception {
+        converter.setAclManager(new DefaultAclManager("/home/users/system/cq:services", "system"))
+                 .setConverterFactory(ContentPackage2FeatureModelConverter::new)
+                 .setSecondPassThreads(2)
+                 .convert(load(TEST_PACKAGES_INPUT));
+    }
+
     @Test
     public void verifyRepoinitContainsNodetypesRegistration() throws Exception {
         File[] contentPackages = load(TEST_PACKAGES_INPUT[1]);
@@ -28,6 +28,8 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -46,6 +48,8 @@ import org.apache.sling.feature.cpconverter.Util;
 import org.apache.sling.feature.cpconverter.features.DefaultFeaturesManager;
 import org.apache.sling.feature.cpconverter.features.FeaturesManager;
 import org.apache.sling.feature.cpconverter.shared.ConverterConstants;
+import org.apache.sling.feature.cpconverter.shared.NodeTypes;
+import org.apache.sling.feature.cpconverter.shared.NodeTypesParser;
 import org.apache.sling.feature.cpconverter.shared.RepoPath;
 import org.apache.sling.feature.cpconverter.vltpkg.VaultPackageAssembler;
 import org.apache.sling.repoinit.parser.RepoInitParser;
@@ -105,7 +109,7 @@ public class AclManagerTest {
 
         VaultPackageAssembler assembler = mock(VaultPackageAssembler.class);
         when(assembler.getFileEntry(anyString())).thenReturn(tempDir.toFile());
-        when(assembler.getFileEntry("/_sling_tests/not/.content.xml")).thenReturn(new File(getClass().getResource("_sling_tests/not/.content.xml").getFile()));
+        when(assembler.getNodeTypes("/_sling_tests/not")).thenReturn(parseNodeTypes("_sling_tests/not/.content.xml"));
 
 
         Feature feature = new Feature(new ArtifactId("org.apache.sling", "org.apache.sling.cp2fm", "0.0.1", null, null));
@@ -148,7 +152,7 @@ public class AclManagerTest {
 
         VaultPackageAssembler assembler = mock(VaultPackageAssembler.class);
         when(assembler.getFileEntry(anyString())).thenReturn(tempDir.toFile());
-        when(assembler.getFileEntry("/_sling_tests/not/.content.xml")).thenReturn(new File(getClass().getResource("_sling_tests/not/.content.xml").getFile()));
+        when(assembler.getNodeTypes("/_sling_tests/not")).thenReturn(parseNodeTypes("_sling_tests/not/.content.xml"));
 
         Feature feature = new Feature(new ArtifactId("org.apache.sling", "org.apache.sling.cp2fm", "0.0.1", null, null));
 
@@ -390,6 +394,12 @@ public class AclManagerTest {
         verifyNoInteractions(fm);
     }
 
+    private NodeTypes parseNodeTypes(String contentXml) throws IOException {
+        try (InputStream input = getClass().getResourceAsStream(contentXml)) {
+            return new NodeTypesParser().parse(input);
+        }
+    }
+
     private static AccessControlEntry newAccessControlEntry(boolean isAllow, String privileges, String path) {
         return new AccessControlEntry(isAllow, Arrays.asList(privileges.split(",")), new RepoPath(PlatformNameFormat.getRepositoryPath(path)));
     }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConversionCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void committedEntriesAreFound() throws Exception {
+        ConversionCache cache = new ConversionCache(tempFolder.newFolder(), 1024 * 1024, "test");
+        assertNull(cache.get("missing"));
+
+        File staging = cache.newEntry();
+        Files.write(new File(staging, "content").toPath(), new byte[] { 1, 2, 3 });
+        File entry = cache.commit("key", staging);
+
+        assertFalse(staging.exists());
+        assertEquals(entry, cache.get("key"));
+        assertEquals(3, cache.getSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws Exception {
+        ConversionCache cache = new ConversionCache(tempFolder.newFolder(), 2500, "test");
+        long now = System.currentTimeMillis();
+
+        File a = commit(cache, "a", 1000);
+        assertTrue(a.setLastModified(now - 30000));
+        File b = commit(cache, "b", 1000);
+        assertTrue(b.setLastModified(now - 20000));
+
+        // a is used again, so b becomes the least recently used entry
+        assertNotNull(cache.get("a"));
+        cache.release("a");
+
+        File c = commit(cache, "c", 1000);
+
+        assertTrue(a.exists());
+        assertFalse(b.exists());
+        assertTrue(c.exists());
+        assertEquals(2000, cache.getSize());
+    }
+
+    @Test
+    public void entriesInUseAreNotEvicted() throws Exception {
+        ConversionCache cache = new ConversionCache(tempFolder.newFolder(), 1500, "test");
+
+        File a = commit(cache, "a", 1000);
+        assertTrue(a.setLastModified(System.currentTimeMillis() - 30000));
+        // still in use
+        assertNotNull(cache.get("a"));
+        File b = commit(cache, "b", 1000);
+
+        assertTrue(a.exists());
+        assertTrue(b.exists());
+    }
+
+    @Test
+    public void keysDependOnTheDigestedValues() {
+        MessageDigest first = ConversionCache.newDigest();
+        ConversionCache.update(first, "value");
+        MessageDigest second = ConversionCache.newDigest();
+        ConversionCache.update(second, "value");
+        MessageDigest third = ConversionCache.newDigest();
+        ConversionCache.update(third, "other value");
+
+        String key = ConversionCache.toKey(first);
+        assertEquals(64, key.length());
+        assertEquals(key, ConversionCache.toKey(second));
+        assertFalse(key.equals(ConversionCache.toKey(third)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() throws Exception {
+        new ConversionCache(tempFolder.newFolder(), 0, "test");
+    }
+
+    private static File commit(ConversionCache cache, String key, int size) throws Exception {
+        File staging = cache.newEntry();
+        Files.write(new File(staging, "content").toPath(), new byte[size]);
+        File entry = cache.commit(key, staging);
+        cache.release(key);
+        return entry;
+    }
+
+}
@@ -17,6 +17,9 @@
 package org.apache.sling.feature.cpconverter.features;
 
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.cpconverter.accesscontrol.DefaultAclManager;
+import org.apache.sling.feature.cpconverter.index.IndexManager;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -30,6 +33,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -38,6 +42,8 @@ import jakarta.json.JsonString;
 import jakarta.json.stream.JsonParser;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class FeaturesManagerTest {
@@ -193,4 +199,44 @@ public class FeaturesManagerTest {
             assertTrue(are2 == null || are2.isEmpty());
         }
     }
+
+    @Test
+    public void extensionFragmentsAreJoinedInOrder() throws Exception {
+        featuresManager.init(ArtifactId.parse("g:a:1"));
+        featuresManager.addOrAppendRepoInitExtension("a.config", "create path /a", null);
+        featuresManager.addOrAppendRepoInitExtension("b.config", "create path /b", "rm1");
+        featuresManager.addOrAppendRepoInitExtension("c.config", "create path /c", null);
+
+        String nl = System.lineSeparator();
+        Extension repoinit = featuresManager.getRunMode(null).getExtensions().getByName(Extension.EXTENSION_NAME_REPOINIT);
+        assertEquals("# origin= source=a.config" + nl + "create path /a" + nl + "# origin= source=c.config" + nl + "create path /c",
+                repoinit.getText());
+
+        // fragments appended after a read are joined as well
+        featuresManager.addOrAppendRepoInitExtension("d.config", "create path /d", null);
+        assertTrue(repoinit.getText().endsWith("create path /c" + nl + "# origin= source=d.config" + nl + "create path /d"));
+        assertEquals(repoinit.getText(), repoinit.copy().getText());
+
+        assertEquals("# origin= source=b.config" + nl + "create path /b",
+                featuresManager.getRunMode("rm1").getExtensions().getByName(Extension.EXTENSION_NAME_REPOINIT).getText());
+
+        featuresManager.addOrAppendOakIndexDefinitionsExtension("content-package", "{\"/oak:index/foo\":{}}");
+        Extension indexes = featuresManager.getRunMode(null).getExtensions().getByName(IndexManager.EXTENSION_NAME);
+        assertTrue(((JsonObject) indexes.getJSONStructure()).containsKey("/oak:index/foo"));
+
+        featuresManager.serialize();
+        assertTrue(new File(tempDir.toFile(), "a.json").exists());
+    }
+
+    @Test
+    public void repoInitOperationsAreCachedPerFeaturesManager() {
+        DefaultAclManager aclManager = new DefaultAclManager();
+        DefaultFeaturesManager first = new DefaultFeaturesManager(true, 20, tempDir.toFile(), null, null, new HashMap<>(), aclManager);
+        assertSame(first.getRepoInitOperationsCache(), aclManager.getRepoInitOperationsCache());
+
+        DefaultFeaturesManager second = (DefaultFeaturesManager) featuresManager;
+        assertNotSame(first.getRepoInitOperationsCache(), second.getRepoInitOperationsCache());
+        second.setAclManager(aclManager);
+        assertSame(second.getRepoInitOperationsCache(), aclManager.getRepoInitOperationsCache());
+    }
 }
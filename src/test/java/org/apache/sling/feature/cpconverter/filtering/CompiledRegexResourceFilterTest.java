@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.filtering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class CompiledRegexResourceFilterTest {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            ".*\\/myEnvironment(?!(\\.runMode1\\/|\\.runMode2\\/|\\/))(.*)(?=\\.zip$).*",
+            ".*\\/myEnvironment(?!(\\.runMode1\\/|\\.runMode2\\/|\\/))(.*)(?=\\.config$).*",
+            "/jcr_root/apps/legacy/.*",
+            "/jcr_root/content/(?<site>[^/]+)/(?:en|fr)/.+\\.html",
+            "/jcr_root/var/(\\w+)/\\1\\.json");
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/apps/myapp/myEnvironment/something.zip",
+            "/apps/myapp/myEnvironment.runMode1/something.zip",
+            "/apps/myapp/myEnvironment.subRunMode/something.zip",
+            "/apps/myapp/myEnvironment.runMode1.subRunMode/something.config",
+            "/apps/myapp/myEnvironment.xyz/something.zip",
+            "/jcr_root/apps/legacy/component/.content.xml",
+            "/jcr_root/apps/legacy",
+            "/jcr_root/apps/current/component/.content.xml",
+            "/jcr_root/content/site/en/page.html",
+            "/jcr_root/content/site/de/page.html",
+            "/jcr_root/content/site/en/page.json",
+            "/jcr_root/var/data/data.json",
+            "/jcr_root/var/data/other.json",
+            "/jcr_root/etc/clientlibs/all.js");
+
+    @Test
+    public void sameOutcomeAsTheRegexBasedFilter() {
+        RegexBasedResourceFilter expected = new RegexBasedResourceFilter();
+        CompiledRegexResourceFilter actual = new CompiledRegexResourceFilter();
+        for (String pattern : PATTERNS) {
+            expected.addFilteringPattern(pattern);
+            actual.addFilteringPattern(pattern);
+        }
+
+        // twice, so that the memoised directories are used as well
+        for (int i = 0; i < 2; i++) {
+            for (String path : PATHS) {
+                assertEquals(path, expected.isFilteredOut(path), actual.isFilteredOut(path));
+            }
+        }
+    }
+
+    @Test
+    public void literalPrefixesAndDirectoriesPruneTheMatching() {
+        CompiledRegexResourceFilter filter = new CompiledRegexResourceFilter();
+        filter.addFilteringPattern("/jcr_root/apps/legacy/.*");
+        filter.addFilteringPattern("/jcr_root/content/[^/]+/(?:en|fr)/.+\\.html");
+
+        assertFalse(filter.isFilteredOut("/META-INF/vault/filter.xml"));
+        assertFalse(filter.isFilteredOut("/jcr_root/content/site/de/page.html"));
+        assertFalse(filter.isFilteredOut("/jcr_root/content/site/de/other.html"));
+        assertTrue(filter.isFilteredOut("/jcr_root/content/site/fr/page.html"));
+        assertTrue(filter.isFilteredOut("/jcr_root/apps/legacy/component/.content.xml"));
+    }
+
+    @Test
+    public void patternsAddedLaterAreConsidered() {
+        CompiledRegexResourceFilter filter = new CompiledRegexResourceFilter();
+        filter.addFilteringPattern("/jcr_root/apps/legacy/.*");
+        assertFalse(filter.isFilteredOut("/jcr_root/apps/current/component/.content.xml"));
+
+        filter.addFilteringPattern("/jcr_root/apps/current/.*");
+        assertTrue(filter.isFilteredOut("/jcr_root/apps/current/component/.content.xml"));
+    }
+
+    @Test
+    public void sameGroupNamesInDifferentPatterns() {
+        CompiledRegexResourceFilter filter = new CompiledRegexResourceFilter();
+        filter.addFilteringPattern("/jcr_root/apps/(?<name>[^/]+)/legacy/.*");
+        filter.addFilteringPattern("/jcr_root/libs/(?<name>[^/]+)/legacy/.*");
+
+        assertTrue(filter.isFilteredOut("/jcr_root/libs/core/legacy/.content.xml"));
+        assertFalse(filter.isFilteredOut("/jcr_root/libs/core/current/.content.xml"));
+    }
+
+    @Test
+    public void onlyPatternsBehavingTheSameAreCombined() {
+        assertTrue(CompiledRegexResourceFilter.isCombinable(Pattern.compile("/jcr_root/apps/\\.content\\.xml")));
+        assertFalse(CompiledRegexResourceFilter.isCombinable(Pattern.compile("/jcr_root/var/(\\w+)/\\1\\.json")));
+        assertFalse(CompiledRegexResourceFilter.isCombinable(Pattern.compile("/jcr_root/var/(?<n>\\w+)/\\k<n>\\.json")));
+        assertFalse(CompiledRegexResourceFilter.isCombinable(Pattern.compile("\\Q/jcr_root/apps/\\E.*")));
+        assertFalse(CompiledRegexResourceFilter.isCombinable(Pattern.compile("/jcr_root/apps/.*", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPatternsAreNotAllowed() {
+        new CompiledRegexResourceFilter().addFilteringPattern("");
+    }
+
+}
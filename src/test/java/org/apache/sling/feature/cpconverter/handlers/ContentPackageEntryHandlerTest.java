@@ -16,9 +16,25 @@
  */
 package org.apache.sling.feature.cpconverter.handlers;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.jackrabbit.vault.fs.io.Archive.Entry;
+import org.apache.jackrabbit.vault.fs.io.ZipStreamArchive;
+import org.apache.jackrabbit.vault.packaging.VaultPackage;
+import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,4 +69,44 @@ public final class ContentPackageEntryHandlerTest {
         assertTrue(contentPackageEntryhandler.matches("/jcr_root/apps/showcase/install.staging/sample/asd.content-1.0.zip"));
     }
 
+    @Test
+    public void smallSubContentPackagesAreBufferedInMemory() throws Exception {
+        String name = "embedded.package.test-0.0.1.zip";
+        Archive archive = mock(Archive.class);
+        Entry entry = mock(Entry.class);
+        when(entry.getName()).thenReturn(name);
+        when(archive.openInputStream(entry)).thenAnswer(invocation -> getClass().getResourceAsStream("../" + name));
+
+        File systemTmpDirectory = new File(System.getProperty("java.io.tmpdir"));
+        String[] bufferFilesBefore = listBufferFiles(systemTmpDirectory);
+        AtomicReference<Archive> opened = new AtomicReference<>();
+        AbstractContentPackageHandler handler = new AbstractContentPackageHandler() {
+            @Override
+            protected void processSubPackage(@NotNull String path, @Nullable String runMode, @NotNull VaultPackage contentPackage,
+                    @NotNull ContentPackage2FeatureModelConverter converter, boolean isEmbeddedPackage) throws IOException {
+                opened.set(contentPackage.getArchive());
+                // the inflated entries are neither spilled to the system temporary directory...
+                assertArrayEquals(bufferFilesBefore, listBufferFiles(systemTmpDirectory));
+            }
+        };
+
+        try (ContentPackage2FeatureModelConverter converter = new ContentPackage2FeatureModelConverter()) {
+            converter.setSubContentPackageMemoryThreshold(1024 * 1024);
+            handler.handle("/jcr_root/etc/packages/asd/" + name, archive, entry, converter, null);
+
+            assertTrue(opened.get() instanceof ZipStreamArchive);
+            assertTrue(((ZipStreamArchive) opened.get()).isBuffered());
+            // ...nor extracted to the converter one
+            String[] extracted = new File(converter.getTempDirectory(), "sub-content-packages").list();
+            assertNotNull(extracted);
+            assertArrayEquals(new String[0], extracted);
+        }
+    }
+
+    private static String[] listBufferFiles(File directory) {
+        String[] bufferFiles = directory.list((dir, fileName) -> fileName.startsWith("__vlttmpbuffer"));
+        Arrays.sort(bufferFiles);
+        return bufferFiles;
+    }
+
 }
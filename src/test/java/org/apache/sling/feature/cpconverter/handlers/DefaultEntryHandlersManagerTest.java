@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.sling.feature.cpconverter.ContentPackage2FeatureModelConverter;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+public class DefaultEntryHandlersManagerTest {
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/jcr_root/apps/asd/install/test-framework-2.0.0.jar",
+            "/jcr_root/apps/asd/install.author/test-framework-2.0.0.jar",
+            "/jcr_root/apps/asd/config/org.apache.sling.commons.log.LogManager.cfg.json",
+            "/jcr_root/apps/asd/config.publish/org.apache.sling.commons.log.LogManager.config",
+            "/jcr_root/apps/asd/config/org.apache.sling.commons.log.LogManager.xml",
+            "/jcr_root/apps/asd/config/org.apache.sling.commons.log.LogManager.xml.dir/.content.xml",
+            "/jcr_root/libs/asd/config/org.apache.sling.commons.log.LogManager.properties",
+            "/jcr_root/etc/packages/asd/sub-content.zip",
+            "/jcr_root/apps/asd/install/sub-content.zip",
+            "/jcr_root/home/users/system/asd/.content.xml",
+            "/jcr_root/home/groups/a/.content.xml",
+            "/jcr_root/content/asd/_rep_policy.xml",
+            "/jcr_root/home/users/system/asd/_rep_principalPolicy.xml",
+            "/jcr_root/_rep_repoPolicy.xml",
+            "/META-INF/vault/privileges.xml",
+            "/META-INF/vault/nodetypes.cnd",
+            "/META-INF/vault/filter.xml",
+            "/jcr_root/_oak_index/.content.xml",
+            "/jcr_root/_oak_index/lucene/tika/config.xml",
+            "/jcr_root/content/asd/.content.xml",
+            "/jcr_root/content/asd/image.png",
+            "/jcr_root/content/asd/README",
+            "/jcr_root/content/asd.dir/README");
+
+    @Test
+    public void extensionsPruneIncompatibleSuffixes() {
+        assertEquals(".xml", DefaultEntryHandlersManager.getExtension("/jcr_root/a/.content.xml"));
+        assertEquals("", DefaultEntryHandlersManager.getExtension("/jcr_root/a.dir/README"));
+
+        assertTrue(DefaultEntryHandlersManager.isCompatible(".xml", ""));
+        assertTrue(DefaultEntryHandlersManager.isCompatible(".xml", "xml"));
+        assertTrue(DefaultEntryHandlersManager.isCompatible(".xml", "privileges.xml"));
+        assertFalse(DefaultEntryHandlersManager.isCompatible(".xml", ".jar"));
+        assertTrue(DefaultEntryHandlersManager.isCompatible("", "/README"));
+        assertFalse(DefaultEntryHandlersManager.isCompatible("", ".jar"));
+    }
+
+    @Test
+    public void indexedDispatchMatchesTheFirstMatchingHandler() {
+        DefaultEntryHandlersManager manager = new DefaultEntryHandlersManager();
+        List<EntryHandler> handlers = new ArrayList<>();
+        for (EntryHandler handler : ServiceLoader.load(EntryHandler.class)) {
+            handlers.add(handler);
+        }
+
+        for (String path : PATHS) {
+            EntryHandler expected = null;
+            for (EntryHandler handler : handlers) {
+                if (handler.matches(path)) {
+                    expected = handler;
+                    break;
+                }
+            }
+
+            EntryHandler actual = manager.getEntryHandlerByEntryPath(path);
+            if (expected == null) {
+                assertNull(path, actual);
+            } else {
+                assertEquals(path, expected.getClass(), actual.getClass());
+                assertTrue(path, path.startsWith(actual.getPathPrefix()));
+                assertTrue(path, path.endsWith(actual.getPathSuffix()));
+            }
+        }
+    }
+
+    @Test
+    public void handlersAreNotAskedAboutPathsOutsideTheirAnchors() {
+        DefaultEntryHandlersManager manager = new DefaultEntryHandlersManager();
+        RecordingEntryHandler anchored = new RecordingEntryHandler("/jcr_root/custom/", ".bin");
+        RecordingEntryHandler unanchored = new RecordingEntryHandler("", "");
+        manager.addEntryHandler(anchored);
+        manager.addEntryHandler(unanchored);
+
+        for (String path : PATHS) {
+            manager.getEntryHandlerByEntryPath(path);
+        }
+        assertTrue(anchored.askedPaths.isEmpty());
+        assertFalse(unanchored.askedPaths.isEmpty());
+
+        assertSame(anchored, manager.getEntryHandlerByEntryPath("/jcr_root/custom/data.bin"));
+    }
+
+    @Test
+    public void matchesCarryTheCapturedGroups() {
+        DefaultEntryHandlersManager manager = new DefaultEntryHandlersManager();
+
+        EntryMatch bundle = manager.getEntryMatchByEntryPath("/jcr_root/apps/asd/install.author/20/test-framework-2.0.0.jar");
+        assertTrue(bundle.getHandler() instanceof BundleEntryHandler);
+        assertEquals("install", bundle.group("foldername"));
+        assertEquals("author", bundle.group("runmode"));
+        assertEquals("20", bundle.group("startlevel"));
+
+        EntryMatch configuration = manager.getEntryMatchByEntryPath("/jcr_root/apps/asd/config.publish/org.apache.sling.commons.log.LogManager.config");
+        assertEquals("publish", configuration.group("runmode"));
+        assertEquals("org.apache.sling.commons.log.LogManager", configuration.group("pid"));
+        assertNull(configuration.group("dir"));
+
+        assertNull(manager.getEntryMatchByEntryPath("/jcr_root/content/asd/image.png"));
+    }
+
+    @Test
+    public void handlersWithoutMatchSupportAreHandledAsBefore() throws Exception {
+        DefaultEntryHandlersManager manager = new DefaultEntryHandlersManager();
+        RecordingEntryHandler handler = new RecordingEntryHandler("/jcr_root/custom/", ".bin");
+        manager.addEntryHandler(handler);
+
+        EntryMatch match = manager.getEntryMatchByEntryPath("/jcr_root/custom/data.bin");
+        assertSame(handler, match.getHandler());
+        assertNull(match.group(1));
+
+        match.handle(mock(Archive.class), mock(Archive.Entry.class), mock(ContentPackage2FeatureModelConverter.class), null);
+        assertEquals(Arrays.asList("/jcr_root/custom/data.bin"), handler.handledPaths);
+    }
+
+    private static final class RecordingEntryHandler implements EntryHandler {
+
+        private final List<String> askedPaths = new ArrayList<>();
+
+        private final List<String> handledPaths = new ArrayList<>();
+
+        private final String pathPrefix;
+
+        private final String pathSuffix;
+
+        RecordingEntryHandler(@NotNull String pathPrefix, @NotNull String pathSuffix) {
+            this.pathPrefix = pathPrefix;
+            this.pathSuffix = pathSuffix;
+        }
+
+        @Override
+        public boolean matches(@NotNull String path) {
+            askedPaths.add(path);
+            return path.startsWith(pathPrefix) && path.endsWith(pathSuffix);
+        }
+
+        @Override
+        public @NotNull String getPathPrefix() {
+            return pathPrefix;
+        }
+
+        @Override
+        public @NotNull String getPathSuffix() {
+            return pathSuffix;
+        }
+
+        @Override
+        public void handle(@NotNull String path, @NotNull Archive archive, @NotNull Archive.Entry entry, @NotNull ContentPackage2FeatureModelConverter converter, String runMode) {
+            handledPaths.add(path);
+        }
+
+    }
+
+}
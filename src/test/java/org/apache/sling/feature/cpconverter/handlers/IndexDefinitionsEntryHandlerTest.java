@@ -21,6 +21,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -279,6 +280,44 @@ public class IndexDefinitionsEntryHandlerTest {
                 .has( Conditions.childWithLocalName("/oak:index/jcrCreated", "indexRules", defs));
     }
 
+    @Test
+    public void entriesAreReadOnce() throws IOException, ConverterException {
+        try ( Archive archive = new FileArchive(TestUtils.getPackageRelativeFile(getClass(), "index", "index_nested_tika")) ) {
+            archive.open(true);
+            Archive spiedArchive = Mockito.spy(archive);
+            List<Entry> handledEntries = new ArrayList<>();
+
+            try ( ContentPackage2FeatureModelConverter converter = new ContentPackage2FeatureModelConverter() ) {
+                converter.setMainPackageAssembler(Mockito.mock(VaultPackageAssembler.class))
+                    .setIndexManager(new DefaultIndexManager());
+                IndexDefinitionsEntryHandler handler = new IndexDefinitionsEntryHandler();
+
+                new BaseVaultPackageScanner(true) {
+                    @Override
+                    protected void onFile(@NotNull String path, @NotNull Archive archive, @NotNull Entry entry, String runMode)
+                            throws IOException, ConverterException {
+                        if ( handler.matches(path) ) {
+                            handler.handle(path, archive, entry, converter);
+                            handledEntries.add(entry);
+                        }
+                    }
+                }.traverse(new ZipVaultPackage(spiedArchive, true), null);
+            }
+
+            assertThat(handledEntries).isNotEmpty();
+            for (Entry entry : handledEntries) {
+                Mockito.verify(spiedArchive, Mockito.times(1)).openInputStream(entry);
+            }
+        }
+    }
+
+    @Test
+    public void platformPaths() {
+        assertThat(IndexDefinitionsEntryHandler.toPlatformPath("/jcr_root/_oak_index/.content.xml")).isEqualTo("/_oak_index");
+        assertThat(IndexDefinitionsEntryHandler.toPlatformPath("/jcr_root/_oak_index/lucene/tika/config.xml")).isEqualTo("/_oak_index/lucene/tika/config.xml");
+        assertThat(IndexDefinitionsEntryHandler.toPlatformPath("/jcr_root/_oak_index/lucene/stopwords.txt.dir/.content.xml")).isEqualTo("/_oak_index/lucene/stopwords.txt");
+    }
+
     private void assertIsValidXml(byte[] tikeConfig) throws ParserConfigurationException, SAXException, IOException {
 
         DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
@@ -288,6 +288,60 @@ public class IndexDefinitionsJsonWriterTest {
                 .doesNotContainKey("/oak:index/mai");
     }
 
+    @Test
+    public void spilledBinariesAreWrittenLikeHeapOnes() throws IOException {
+        // not valid UTF-8, replaced while encoding as before the binaries were streamed
+        byte[] configXml = "<properties>\u00e9</properties>\uFFFF".getBytes(StandardCharsets.UTF_8);
+        configXml[configXml.length - 1] = (byte) 0xC3;
+
+        IndexDefinitions spilling = new IndexDefinitions(0, null);
+        try {
+            for (IndexDefinitions current : Arrays.asList(definitions, spilling)) {
+                current.registerPrefixMapping(NamespaceRegistry.PREFIX_JCR, NamespaceRegistry.NAMESPACE_JCR);
+                current.addNode("/oak:index", new DocViewNode2(nameFactory.create("{}lucene"),
+                        Collections.singletonList(new DocViewProperty2(nameFactory.create("{}type"), "lucene"))));
+                current.addNode("/oak:index/lucene", new DocViewNode2(nameFactory.create("{}config.xml"),
+                        Collections.singletonList(new DocViewProperty2(nameFactory.create(NamespaceRegistry.NAMESPACE_JCR, "primaryType"), "nt:file"))));
+                current.registerBinary("/oak:index/lucene/config.xml", new ByteArrayInputStream(configXml));
+            }
+
+            JsonObject root = generateAndParse(spilling);
+            assertThat(root).isEqualTo(generateAndParse(definitions));
+
+            JsonString binaryEntry = root.getJsonObject("/oak:index/lucene").getJsonObject("config.xml")
+                    .getJsonObject(JcrConstants.JCR_CONTENT).getJsonString(JcrConstants.JCR_DATA);
+            assertThat(binaryEntry.getString())
+                .isEqualTo(":blobId:" + Base64.encode(new String(configXml, StandardCharsets.UTF_8)));
+            assertThat(spilling.getBinary("/oak:index/lucene/config.xml").get()).isEqualTo(configXml);
+        } finally {
+            spilling.close();
+        }
+    }
+
+    @Test
+    public void binariesAreStreamedAmongOtherProperties() throws IOException {
+        definitions.registerPrefixMapping(NamespaceRegistry.PREFIX_JCR, NamespaceRegistry.NAMESPACE_JCR);
+        definitions.addNode("/oak:index", new DocViewNode2(nameFactory.create("{}lucene"),
+                Collections.singletonList(new DocViewProperty2(nameFactory.create("{}type"), "lucene"))));
+        char[] large = new char[100_000];
+        Arrays.fill(large, 'x');
+        String[] contents = { "<properties/>", new String(large) };
+        for (int i = 0; i < contents.length; i++) {
+            definitions.addNode("/oak:index/lucene", new DocViewNode2(nameFactory.create("{}config" + i + ".xml"),
+                    Collections.singletonList(new DocViewProperty2(nameFactory.create(NamespaceRegistry.NAMESPACE_JCR, "primaryType"), "nt:file"))));
+            definitions.registerBinary("/oak:index/lucene/config" + i + ".xml", new ByteArrayInputStream(contents[i].getBytes(StandardCharsets.UTF_8)));
+        }
+        definitions.addNode("/oak:index/lucene", new DocViewNode2(nameFactory.create("{}sibling"),
+                Collections.singletonList(new DocViewProperty2(nameFactory.create("{}value"), "__blob__"))));
+
+        JsonObject lucene = generateAndParse(definitions).getJsonObject("/oak:index/lucene");
+        for (int i = 0; i < contents.length; i++) {
+            assertThat(lucene.getJsonObject("config" + i + ".xml").getJsonObject(JcrConstants.JCR_CONTENT).getString(JcrConstants.JCR_DATA))
+                .isEqualTo(":blobId:" + Base64.encode(contents[i]));
+        }
+        assertThat(lucene.getJsonObject("sibling").getString("value")).isEqualTo("__blob__");
+    }
+
     private JsonObject generateAndParse(IndexDefinitions definitions) throws IOException {
 
         IndexDefinitionsJsonWriter writer = new IndexDefinitionsJsonWriter(definitions);
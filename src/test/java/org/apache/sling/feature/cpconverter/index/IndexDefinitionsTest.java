@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.jcr.NamespaceRegistry;
+
+import org.apache.jackrabbit.spi.NameFactory;
+import org.apache.jackrabbit.spi.commons.name.NameFactoryImpl;
+import org.apache.jackrabbit.vault.util.DocViewNode2;
+import org.apache.jackrabbit.vault.util.DocViewProperty2;
+import org.junit.Test;
+
+public class IndexDefinitionsTest {
+
+    private final NameFactory nameFactory = NameFactoryImpl.getInstance();
+
+    @Test
+    public void duplicatesAreReplacedOnlyByRicherNodes() {
+        IndexDefinitions definitions = new IndexDefinitions();
+        definitions.addNode("/oak:index", node("foo", 1));
+        definitions.addNode("/oak:index", node("bar", 1));
+        definitions.addNode("/oak:index", node("foo", 1));
+        assertThat(names(definitions.getChildren("/oak:index"))).containsExactly("foo", "bar");
+
+        // the placeholder is replaced, and the replacement is added last
+        definitions.addNode("/oak:index", node("foo", 2));
+        List<DocViewNode2> children = definitions.getChildren("/oak:index");
+        assertThat(names(children)).containsExactly("bar", "foo");
+        assertThat(children.get(1).getProperties()).hasSize(2);
+    }
+
+    @Test
+    public void indexesAreTheChildrenOfOakIndexNodes() {
+        IndexDefinitions definitions = new IndexDefinitions();
+        definitions.addNode("/oak:index", node("foo", 1));
+        definitions.addNode("/oak:index/foo", node("indexRules", 1));
+        definitions.addNode("/content/oak:index", node("bar", 1));
+
+        assertThat(definitions.getIndexes()).containsOnlyKeys("/oak:index", "/content/oak:index");
+        assertThat(names(definitions.getIndexes().get("/content/oak:index"))).containsExactly("bar");
+        assertThat(definitions.getChildren("/content")).isEmpty();
+    }
+
+    private DocViewNode2 node(String name, int propertiesCount) {
+        DocViewProperty2[] properties = new DocViewProperty2[propertiesCount];
+        properties[0] = new DocViewProperty2(nameFactory.create(NamespaceRegistry.NAMESPACE_JCR, "primaryType"), "nt:unstructured");
+        for (int i = 1; i < propertiesCount; i++) {
+            properties[i] = new DocViewProperty2(nameFactory.create("{}property" + i), "value");
+        }
+        return new DocViewNode2(nameFactory.create("{}" + name), Arrays.asList(properties));
+    }
+
+    private static List<String> names(List<DocViewNode2> nodes) {
+        return nodes.stream().map(node -> node.getName().getLocalName()).collect(Collectors.toList());
+    }
+
+}
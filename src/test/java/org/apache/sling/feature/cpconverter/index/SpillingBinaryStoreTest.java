@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillingBinaryStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void binariesExceedingTheBudgetAreSpilled() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        try (SpillingBinaryStore store = new SpillingBinaryStore(10, directory)) {
+            store.put("/oak:index/a/small.txt", new ByteArrayInputStream(new byte[6]));
+            store.put("/oak:index/a/large.txt", new ByteArrayInputStream(new byte[6]));
+
+            assertEquals(6, store.getHeapUsage());
+            assertEquals(1, directory.list().length);
+            assertRead(new byte[6], store, "/oak:index/a/small.txt");
+            assertRead(new byte[6], store, "/oak:index/a/large.txt");
+
+            // replacing a binary gives its budget back
+            store.put("/oak:index/a/small.txt", new ByteArrayInputStream(new byte[2]));
+            store.put("/oak:index/a/other.txt", new ByteArrayInputStream(new byte[8]));
+            assertEquals(10, store.getHeapUsage());
+
+            assertTrue(store.contains("/oak:index/a/other.txt"));
+            assertFalse(store.contains("/oak:index/a/missing.txt"));
+            assertNull(store.open("/oak:index/a/missing.txt"));
+        }
+        assertEquals(0, directory.list().length);
+    }
+
+    private static void assertRead(byte[] expected, SpillingBinaryStore store, String path) throws IOException {
+        try (InputStream is = store.open(path)) {
+            assertArrayEquals(expected, IOUtils.toByteArray(is));
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.repoinit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.apache.sling.repoinit.parser.RepoInitParsingException;
+import org.apache.sling.repoinit.parser.operations.Operation;
+import org.junit.Test;
+
+public class RepoInitOperationsCacheTest {
+
+    private static final String SCRIPT = "create service user a\ncreate path /content/a\n";
+
+    @Test
+    public void scriptsAreParsedOncePerSource() throws RepoInitParsingException {
+        RepoInitOperationsCache cache = new RepoInitOperationsCache(2);
+
+        List<Operation> operations = cache.parse("seed", SCRIPT);
+        assertEquals(2, operations.size());
+        // an equal text, not the same instance
+        assertSame(operations, cache.parse("seed", new String(SCRIPT.toCharArray())));
+
+        assertNotSame(operations, cache.parse("org.apache.sling.jcr.repoinit.RepositoryInitializer~a", SCRIPT));
+        assertEquals(1, cache.parse("seed", "create path /content/b").size());
+    }
+
+    @Test
+    public void leastRecentlyUsedScriptsAreEvicted() throws RepoInitParsingException {
+        RepoInitOperationsCache cache = new RepoInitOperationsCache(2);
+
+        List<Operation> operations = cache.parse("a", SCRIPT);
+        cache.parse("b", SCRIPT);
+        assertSame(operations, cache.parse("a", SCRIPT));
+
+        cache.parse("c", SCRIPT);
+        assertSame(operations, cache.parse("a", SCRIPT));
+
+        cache.clear();
+        assertNotSame(operations, cache.parse("a", SCRIPT));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void operationsAreUnmodifiable() throws RepoInitParsingException {
+        new RepoInitOperationsCache(1).parse("seed", SCRIPT).clear();
+    }
+
+    @Test(expected = RepoInitParsingException.class)
+    public void invalidScriptsAreRejected() throws RepoInitParsingException {
+        new RepoInitOperationsCache(1).parse("seed", "create nothing");
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.junit.Test;
+
+public class NodeTypesParserTest {
+
+    private static final String ROOT = "<jcr:root xmlns:jcr=\"http://www.jcp.org/jcr/1.0\" jcr:primaryType=\"cq:Page\" "
+            + "jcr:mixinTypes=\"[mix:versionable,  rep:AccessControllable]\">";
+
+    @Test
+    public void parsingStopsAfterTheRootElement() throws IOException {
+        StringBuilder docView = new StringBuilder(ROOT);
+        for (int i = 0; i < 100000; i++) {
+            docView.append("<child").append(i).append(" jcr:primaryType=\"nt:unstructured\"/>");
+        }
+        // never reached
+        docView.append("<unclosed>");
+        byte[] bytes = docView.toString().getBytes(StandardCharsets.UTF_8);
+
+        try (CountingInputStream input = new CountingInputStream(new ByteArrayInputStream(bytes))) {
+            NodeTypes nodeTypes = new NodeTypesParser().parse(input);
+
+            assertEquals("cq:Page", nodeTypes.getPrimaryType());
+            assertEquals(Arrays.asList("mix:versionable", "rep:AccessControllable"), nodeTypes.getMixinTypes());
+            assertTrue(input.getByteCount() < bytes.length / 10);
+        }
+    }
+
+    @Test
+    public void parsersAreReusable() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            assertEquals("cq:Page", parse(ROOT + "</jcr:root>").getPrimaryType());
+            assertNull(parse("<jcr:root xmlns:jcr=\"http://www.jcp.org/jcr/1.0\"/>"));
+            try {
+                parse("<jcr:root");
+            } catch (IOException e) {
+                // a failed parsing does not affect the next ones
+            }
+        }
+    }
+
+    private static NodeTypes parse(String docView) throws IOException {
+        try (InputStream input = new ByteArrayInputStream(docView.getBytes(StandardCharsets.UTF_8))) {
+            return new NodeTypesParser().parse(input);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.shared;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jackrabbit.vault.fs.api.PathFilterSet;
+import org.junit.Test;
+
+public class PathTrieTest {
+
+    private static final List<String> PATHS = Arrays.asList(
+            "/apps/a/b",
+            "/apps/ab",
+            "/apps",
+            "/content/site/en",
+            "/apps/a/",
+            "/apps/a",
+            "/conf");
+
+    @Test
+    public void descendantsAreTheCoveredPaths() {
+        PathTrie trie = new PathTrie(PATHS);
+        assertEquals(PATHS.size(), trie.size());
+
+        for (String root : Arrays.asList("/", "/apps", "/apps/", "/apps/a", "/apps/a/b", "/apps/b", "/content/site", "/con", "/etc")) {
+            PathFilterSet filterSet = new PathFilterSet(root);
+            List<String> covered = new ArrayList<>();
+            for (String path : PATHS) {
+                if (filterSet.covers(path)) {
+                    covered.add(path);
+                }
+            }
+
+            assertEquals(root, covered, trie.getDescendantsOrSelf(filterSet.getRoot()));
+            assertEquals(root, !covered.isEmpty(), trie.containsDescendantsOrSelf(filterSet.getRoot()));
+        }
+    }
+
+    @Test
+    public void repositoryPathsMatchRepoPathStartsWith() {
+        List<RepoPath> paths = Arrays.asList(
+                new RepoPath("/content/site/en"),
+                new RepoPath("/content/site"),
+                new RepoPath("/home/users/system/a"),
+                new RepoPath(""));
+        PathTrie trie = new PathTrie();
+        paths.forEach(trie::add);
+
+        for (RepoPath root : Arrays.asList(new RepoPath("/"), new RepoPath("/content"), new RepoPath("/content/site"),
+                new RepoPath("/content/site/en"), new RepoPath("/home/users/system/a"), new RepoPath("/home/groups"), new RepoPath(""))) {
+            boolean descendantsOrSelf = false;
+            boolean descendants = false;
+            for (RepoPath path : paths) {
+                if (path.startsWith(root)) {
+                    descendantsOrSelf = true;
+                    descendants |= !path.equals(root);
+                }
+            }
+
+            assertEquals(root.toString(), descendantsOrSelf, trie.containsDescendantsOrSelf(root));
+            assertEquals(root.toString(), descendants, trie.containsDescendants(root));
+        }
+
+        assertFalse(new PathTrie().containsDescendantsOrSelf(new RepoPath("/")));
+    }
+
+    @Test
+    public void pathsAreIndexedOnce() {
+        PathTrie trie = new PathTrie();
+        assertFalse(trie.containsDescendantsOrSelf("/apps"));
+
+        assertTrue(trie.add("/apps/a"));
+        assertFalse(trie.add("/apps/a"));
+        assertEquals(1, trie.size());
+        assertEquals(Arrays.asList("/apps/a"), trie.getDescendantsOrSelf("/apps"));
+    }
+
+}
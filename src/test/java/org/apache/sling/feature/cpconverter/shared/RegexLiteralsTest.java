@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.shared;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class RegexLiteralsTest {
+
+    @Test
+    public void literalsAreExtractedFromRegularExpressions() {
+        assertEquals("/jcr_root/", RegexLiterals.getPrefix(Pattern.compile("/jcr_root/(?:apps|libs)/.+\\.jar")));
+        assertEquals(".jar", RegexLiterals.getSuffix(Pattern.compile("/jcr_root/(?:apps|libs)/.+\\.jar")));
+        assertEquals("/jcr_root", RegexLiterals.getPrefix(Pattern.compile("/jcr_root(/home/users/.*/)\\.content.xml")));
+        assertEquals("xml", RegexLiterals.getSuffix(Pattern.compile("/jcr_root(/home/users/.*/)\\.content.xml")));
+        assertEquals("/META-INF/vault/privileges.xml", RegexLiterals.getPrefix(Pattern.compile("^/META-INF/vault/privileges\\.xml$")));
+        assertEquals("/META-INF/vault/privileges.xml", RegexLiterals.getSuffix(Pattern.compile("^/META-INF/vault/privileges\\.xml$")));
+        // optional or escaped alphanumeric characters are not literals
+        assertEquals("/app", RegexLiterals.getPrefix(Pattern.compile("/apps?/")));
+        assertEquals("/a", RegexLiterals.getPrefix(Pattern.compile("/a\\d")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/a\\d")));
+        assertEquals("/a", RegexLiterals.getPrefix(Pattern.compile("/a+b")));
+        // constructs are skipped as a whole, only the literals following them are kept
+        assertEquals("jar", RegexLiterals.getSuffix(Pattern.compile(".*\\u002Ejar")));
+        assertEquals("jar", RegexLiterals.getSuffix(Pattern.compile(".*\\x2Ejar")));
+        assertEquals("jar", RegexLiterals.getSuffix(Pattern.compile(".*\\x{2E}jar")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile(".*\\0101")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile(".*\\cJ")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile(".*\\p{Alpha}")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile(".*\\pL")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/apps/(?<n>x)\\k<n>")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/apps/[a-z]")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/apps/[\\]a]")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/apps/a{2}")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/apps/(?<n>x)")));
+        assertEquals(".jar", RegexLiterals.getSuffix(Pattern.compile(".*\\u002E\\.jar")));
+        assertEquals("b.jar", RegexLiterals.getSuffix(Pattern.compile("/apps/[a-z]b\\.jar")));
+        assertEquals("->", RegexLiterals.getSuffix(Pattern.compile("/apps/.*->")));
+        // flags and top-level alternations prevent any extraction
+        assertEquals("", RegexLiterals.getPrefix(Pattern.compile("/apps/.+\\.jar|/libs/.+\\.jar")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("(?i)/apps/.+\\.jar")));
+        assertEquals("", RegexLiterals.getSuffix(Pattern.compile("/apps/.+\\.jar", Pattern.CASE_INSENSITIVE)));
+    }
+
+}
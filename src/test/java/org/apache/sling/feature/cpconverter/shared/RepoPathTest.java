@@ -135,4 +135,24 @@ public class RepoPathTest {
         assertEquals(new RepoPath(""), path);
         assertNotEquals(new RepoPath(Collections.emptyList()), path);
     }
+
+    @Test
+    public void testParentViews() {
+        RepoPath path = new RepoPath("/a/b/c");
+        RepoPath parent = path.getParent();
+
+        assertEquals(new RepoPath("/a/b"), parent);
+        assertEquals(new RepoPath("/a/b").hashCode(), parent.hashCode());
+        assertEquals("/a/b", parent.toString());
+        assertEquals(Arrays.asList("a", "b"), parent.getSegments());
+        assertTrue(path.startsWith(parent));
+        assertFalse(parent.startsWith(path));
+        assertEquals(new RepoPath("/"), parent.getParent().getParent());
+        assertNotEquals(new RepoPath("/a/c"), parent);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSegmentsAreUnmodifiable() {
+        new RepoPath("/a/b").getSegments().set(0, "c");
+    }
 }
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashMap;
+
+import org.apache.sling.feature.cpconverter.accesscontrol.AclManager;
+import org.apache.sling.feature.cpconverter.accesscontrol.SystemUser;
+import org.apache.sling.feature.cpconverter.features.FeaturesManager;
+import org.apache.sling.feature.cpconverter.shared.RepoPath;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class FirstPassJournalTest {
+
+    @Test
+    public void repoinitExtensionsAreRecordedAndGeneratedOnFirstPassReplayOnly() throws Exception {
+        FirstPassJournal journal = new FirstPassJournal();
+        FeaturesManager featuresManager = mock(FeaturesManager.class);
+        SystemUser systemUser = new SystemUser("service", new RepoPath("/home/users/system/service"), new RepoPath("/home/users/system"));
+
+        journal.getAclManager().addSystemUser(systemUser);
+        journal.getAclManager().addRepoinitExtention("repoinit.config", "create path /content/a", null, featuresManager);
+
+        AclManager firstPassTarget = mock(AclManager.class);
+        journal.replay(new HashMap<>(), firstPassTarget);
+        InOrder inOrder = inOrder(firstPassTarget);
+        inOrder.verify(firstPassTarget).addSystemUser(systemUser);
+        inOrder.verify(firstPassTarget).addRepoinitExtention("repoinit.config", "create path /content/a", null, featuresManager);
+
+        AclManager secondPassTarget = mock(AclManager.class);
+        journal.replayAclOperations(secondPassTarget);
+        verify(secondPassTarget).addSystemUser(systemUser);
+        verify(secondPassTarget, never()).addRepoinitExtention(any(), any(), any(), any());
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.cpconverter.vltpkg;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RawZipOutputStreamTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void copiesRawEntries() throws Exception {
+        byte[] content = "Apache Sling Content Package to Sling Feature converter".getBytes(StandardCharsets.UTF_8);
+
+        File source = tempFolder.newFile("source.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(source))) {
+            zos.putNextEntry(new ZipEntry("jcr_root/deflated.txt"));
+            zos.write(content);
+            zos.closeEntry();
+        }
+
+        File target = tempFolder.newFile("target.zip");
+        try (RawZipFile rawZipFile = new RawZipFile(source);
+             RawZipOutputStream rzos = new RawZipOutputStream(new FileOutputStream(target))) {
+            RawZipEntry entry = rawZipFile.getEntry("jcr_root/deflated.txt");
+            try (InputStream rawData = rawZipFile.openRawInputStream(entry)) {
+                rzos.copyRawEntry(entry, rawData);
+            }
+            rzos.putNextEntry("jcr_root/new.txt", System.currentTimeMillis(), content.length);
+            rzos.write(content);
+            rzos.closeEntry();
+        }
+
+        try (ZipFile sourceZipFile = new ZipFile(source);
+             ZipFile targetZipFile = new ZipFile(target)) {
+            ZipEntry expected = sourceZipFile.getEntry("jcr_root/deflated.txt");
+            ZipEntry copied = targetZipFile.getEntry("jcr_root/deflated.txt");
+            assertEquals(expected.getCrc(), copied.getCrc());
+            assertEquals(expected.getCompressedSize(), copied.getCompressedSize());
+            assertEquals(expected.getTime(), copied.getTime());
+            assertArrayEquals(content, IOUtils.toByteArray(targetZipFile.getInputStream(copied)));
+            assertArrayEquals(content, IOUtils.toByteArray(targetZipFile.getInputStream(targetZipFile.getEntry("jcr_root/new.txt"))));
+        }
+
+        // the written entries can be read sequentially as well
+        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(target))) {
+            assertEquals("jcr_root/deflated.txt", zis.getNextEntry().getName());
+            assertArrayEquals(content, IOUtils.toByteArray(zis));
+            assertEquals("jcr_root/new.txt", zis.getNextEntry().getName());
+            assertArrayEquals(content, IOUtils.toByteArray(zis));
+            assertNull(zis.getNextEntry());
+        }
+    }
+
+    @Test
+    public void writesZip64LocalHeadersForEntriesOfUnknownSize() throws Exception {
+        byte[] content = "Apache Sling Content Package to Sling Feature converter".getBytes(StandardCharsets.UTF_8);
+
+        File target = tempFolder.newFile("unknown.zip");
+        try (RawZipOutputStream rzos = new RawZipOutputStream(new FileOutputStream(target))) {
+            rzos.putNextEntry("jcr_root/unknown.txt", System.currentTimeMillis());
+            rzos.write(content);
+            rzos.closeEntry();
+            rzos.putNextEntry("jcr_root/known.txt", System.currentTimeMillis(), content.length);
+            rzos.write(content);
+            rzos.closeEntry();
+        }
+
+        ByteBuffer zip = ByteBuffer.wrap(Files.readAllBytes(target.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        // the local header of the entry of unknown size carries a Zip64 extra field
+        assertEquals(RawZipFile.LOCAL_HEADER_SIGNATURE, zip.getInt(0));
+        assertEquals(45, zip.getShort(4));
+        int nameLength = zip.getShort(26);
+        assertEquals(20, zip.getShort(28));
+        assertEquals(RawZipFile.ZIP64_EXTRA_ID, zip.getShort(30 + nameLength));
+        // then its data descriptor has 8 bytes long sizes
+        int descriptorOffset = indexOf(zip, 0x08074b50, 30 + nameLength + 20);
+        assertEquals(content.length, zip.getLong(descriptorOffset + 16));
+        // while the entry of known size keeps 4 bytes long sizes
+        int knownOffset = descriptorOffset + 24;
+        assertEquals(RawZipFile.LOCAL_HEADER_SIGNATURE, zip.getInt(knownOffset));
+        assertEquals(0, zip.getShort(knownOffset + 28));
+
+        try (ZipFile zipFile = new ZipFile(target)) {
+            assertArrayEquals(content, IOUtils.toByteArray(zipFile.getInputStream(zipFile.getEntry("jcr_root/unknown.txt"))));
+            assertArrayEquals(content, IOUtils.toByteArray(zipFile.getInputStream(zipFile.getEntry("jcr_root/known.txt"))));
+        }
+    }
+
+    @Test
+    public void requiresZip64AtTheDeflatedSizeBoundary() {
+        assertFalse(RawZipOutputStream.requiresZip64(0));
+        assertFalse(RawZipOutputStream.requiresZip64(RawZipFile.ZIP64_MAGIC - RawZipFile.ZIP64_MAGIC / 1024));
+        // deflating may expand the data past the boundary
+        assertTrue(RawZipOutputStream.requiresZip64(RawZipFile.ZIP64_MAGIC - 1));
+        assertTrue(RawZipOutputStream.requiresZip64(RawZipFile.ZIP64_MAGIC));
+        assertTrue(RawZipOutputStream.requiresZip64(RawZipFile.ZIP64_MAGIC + 1));
+    }
+
+    @Test
+    public void writesZip64LocalHeadersForLargeEntries() throws Exception {
+        File target = tempFolder.newFile("large.zip");
+        try (RawZipOutputStream rzos = new RawZipOutputStream(new FileOutputStream(target))) {
+            // the size is only announced, the entry is then reported as not matching it
+            rzos.putNextEntry("jcr_root/large.bin", System.currentTimeMillis(), RawZipFile.ZIP64_MAGIC);
+            rzos.write(new byte[16]);
+            try {
+                rzos.closeEntry();
+                fail("The entry size mismatch has not been reported");
+            } catch (ZipException expected) {
+                // expected
+            }
+        }
+
+        ByteBuffer zip = ByteBuffer.wrap(Files.readAllBytes(target.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(45, zip.getShort(4));
+        assertEquals(RawZipFile.ZIP64_MAGIC, zip.getInt(18) & 0xFFFFFFFFL);
+        assertEquals(RawZipFile.ZIP64_MAGIC, zip.getInt(22) & 0xFFFFFFFFL);
+        assertEquals(RawZipFile.ZIP64_EXTRA_ID, zip.getShort(30 + zip.getShort(26)));
+    }
+
+    private static int indexOf(ByteBuffer buffer, int signature, int from) {
+        for (int i = from; i <= buffer.limit() - 4; i++) {
+            if (buffer.getInt(i) == signature) {
+                return i;
+            }
+        }
+        throw new AssertionError("Signature not found");
+    }
+
+    @Test
+    public void writesZip64EndOfCentralDirectory() throws Exception {
+        int count = 0x10000 + 1;
+
+        File target = tempFolder.newFile("zip64.zip");
+        try (RawZipOutputStream rzos = new RawZipOutputStream(new FileOutputStream(target))) {
+            for (int i = 0; i < count; i++) {
+                rzos.putNextEntry("jcr_root/" + i, 0);
+                rzos.closeEntry();
+            }
+        }
+
+        try (ZipFile zipFile = new ZipFile(target)) {
+            assertEquals(count, zipFile.size());
+        }
+        try (RawZipFile rawZipFile = new RawZipFile(target)) {
+            assertEquals(count, rawZipFile.getEntries().size());
+        }
+    }
+
+}
@@ -16,16 +16,46 @@
  */
 package org.apache.sling.feature.cpconverter.vltpkg;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.jackrabbit.vault.fs.io.ZipArchive;
+import org.apache.jackrabbit.vault.packaging.Dependency;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.jackrabbit.vault.packaging.PackageProperties;
+import org.apache.jackrabbit.vault.packaging.VaultPackage;
+import org.apache.jackrabbit.vault.packaging.impl.PackageManagerImpl;
+import org.apache.sling.feature.cpconverter.shared.NodeTypes;
 import org.junit.Assert;
 import org.junit.Test;
 
 import static org.apache.jackrabbit.vault.packaging.PackageType.APPLICATION;
 import static org.apache.jackrabbit.vault.packaging.PackageType.CONTENT;
 import static org.apache.jackrabbit.vault.packaging.PackageType.MIXED;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class VaultPackageAssemblerUnparameterizedTest {
 
@@ -79,4 +109,324 @@ public class VaultPackageAssemblerUnparameterizedTest {
         Assert.assertNull(VaultPackageUtils.recalculatePackageType(MIXED, mixedInput, true));;
         Assert.assertEquals(MIXED, VaultPackageUtils.recalculatePackageType(null, mixedInput, true));;
     }
+
+    @Test
+    public void testStreamingStorage() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")))) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setStreaming(true);
+
+            assembler.addEntry("/jcr_root/content/asd/.content.xml", new ByteArrayInputStream("<jcr:root/>".getBytes(StandardCharsets.UTF_8)));
+            assembler.addEntry("/jcr_root/content/asd/public/license.txt", new ByteArrayInputStream("license".getBytes(StandardCharsets.UTF_8)));
+            assembler.addEntry("/jcr_root/apps/asd/empty", new ByteArrayInputStream(new byte[0]));
+
+            // .content.xml files are still available, while other entries are streamed
+            Assert.assertTrue(assembler.getFileEntry("/content/asd/.content.xml").isFile());
+            Assert.assertFalse(assembler.getFileEntry("/content/asd/public/license.txt").exists());
+
+            File contentPackage = assembler.createPackage();
+            try (ZipFile zipFile = new ZipFile(contentPackage)) {
+                Assert.assertEquals("<jcr:root/>", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/.content.xml")), StandardCharsets.UTF_8));
+                Assert.assertEquals("license", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/public/license.txt")), StandardCharsets.UTF_8));
+                Assert.assertNotNull(zipFile.getEntry("jcr_root/apps/asd/empty"));
+                // directories containing streamed entries only are not empty
+                Assert.assertNull(zipFile.getEntry("jcr_root/content/asd/public/"));
+                Assert.assertNull(zipFile.getEntry("jcr_root/content/asd/public"));
+            }
+            // the package type is recalculated out of the streamed entries as well
+            Assert.assertEquals("mixed", assembler.getPackageProperties().getProperty(PackageProperties.NAME_PACKAGE_TYPE));
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testNodeTypesAreIndexedWhenAdded() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")))) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setStreaming(true);
+
+            assembler.addEntry("/jcr_root/_sling_tests/asd/.content.xml", new ByteArrayInputStream(("<jcr:root xmlns:jcr=\"http://www.jcp.org/jcr/1.0\" "
+                    + "jcr:primaryType=\"sling:Folder\" jcr:mixinTypes=\"[mix:created, rep:AccessControllable]\"/>").getBytes(StandardCharsets.UTF_8)));
+            assembler.addEntry("/jcr_root/content/asd/.content.xml", new ByteArrayInputStream("<jcr:root/>".getBytes(StandardCharsets.UTF_8)));
+            assembler.addEntry("/jcr_root/content/broken/.content.xml", new ByteArrayInputStream("<jcr:root".getBytes(StandardCharsets.UTF_8)));
+
+            NodeTypes nodeTypes = assembler.getNodeTypes("/_sling_tests/asd");
+            Assert.assertNotNull(nodeTypes);
+            Assert.assertEquals("sling:Folder", nodeTypes.getPrimaryType());
+            Assert.assertEquals(Arrays.asList("mix:created", "rep:AccessControllable"), nodeTypes.getMixinTypes());
+            // no primary type declared
+            Assert.assertNull(assembler.getNodeTypes("/content/asd"));
+            Assert.assertNull(assembler.getNodeTypes("/content"));
+            try {
+                assembler.getNodeTypes("/content/broken");
+                Assert.fail("Unparsable .content.xml entries are expected to be reported once asked for");
+            } catch (IOException expected) {
+                // expected
+            }
+
+            // overwritten entries are indexed again
+            assembler.addEntry("/jcr_root/content/asd/.content.xml", new ByteArrayInputStream("<jcr:root jcr:primaryType=\"nt:unstructured\"/>".getBytes(StandardCharsets.UTF_8)));
+            Assert.assertEquals("nt:unstructured", assembler.getNodeTypes("/content/asd").getPrimaryType());
+            Assert.assertTrue(assembler.getNodeTypes("/content/asd").getMixinTypes().isEmpty());
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testUncoveredContentEntriesAreReadOnce() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, new PackageId("group", "name", "1.0"), "test");
+            String docView = "<jcr:root xmlns:jcr=\"http://www.jcp.org/jcr/1.0\" jcr:primaryType=\"sling:Folder\">"
+                    + "<child jcr:primaryType=\"nt:unstructured\"/></jcr:root>\n<!-- trailing -->\n";
+            Archive archive = mock(Archive.class);
+            Archive.Entry entry = mock(Archive.Entry.class);
+            when(archive.openInputStream(entry)).thenReturn(new ByteArrayInputStream(docView.getBytes(StandardCharsets.UTF_8)));
+
+            assembler.addEntry("/jcr_root/content/site/.content.xml", archive, entry);
+
+            verify(archive, times(1)).openInputStream(entry);
+            Assert.assertEquals(docView, FileUtils.readFileToString(assembler.getFileEntry("/content/site/.content.xml"), StandardCharsets.UTF_8));
+            Assert.assertEquals("sling:Folder", assembler.getNodeTypes("/content/site").getPrimaryType());
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testStreamingStorageFallback() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")))) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setStreaming(true);
+
+            assembler.addEntry("/jcr_root/content/asd/public/license.txt", new ByteArrayInputStream("first".getBytes(StandardCharsets.UTF_8)));
+            assembler.addEntry("/jcr_root/content/asd/public/readme.txt", new ByteArrayInputStream("readme".getBytes(StandardCharsets.UTF_8)));
+            // overwriting a streamed entry moves all entries to the storing directory
+            assembler.addEntry("/jcr_root/content/asd/public/license.txt", new ByteArrayInputStream("second".getBytes(StandardCharsets.UTF_8)));
+            Assert.assertTrue(assembler.getFileEntry("/content/asd/public/readme.txt").isFile());
+
+            File contentPackage = assembler.createPackage();
+            try (ZipFile zipFile = new ZipFile(contentPackage)) {
+                Assert.assertEquals("second", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/public/license.txt")), StandardCharsets.UTF_8));
+                Assert.assertEquals("readme", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/public/readme.txt")), StandardCharsets.UTF_8));
+            }
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testStreamingStorageRecoversFromFailingEntries() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")))) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setStreaming(true);
+
+            InputStream failing = new SequenceInputStream(new ByteArrayInputStream("partial".getBytes(StandardCharsets.UTF_8)), new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Truncated entry");
+                }
+            });
+            try {
+                assembler.addEntry("/jcr_root/content/asd/public/license.txt", failing);
+                Assert.fail("The failing entry has not been reported");
+            } catch (IOException expected) {
+                // expected
+            }
+            try {
+                assembler.setStreaming(false);
+                Assert.fail("The storage is not expected to change once entries have been added");
+            } catch (IllegalStateException expected) {
+                // expected
+            }
+
+            // the failing entry can be written again, and the other entries are still streamed
+            assembler.addEntry("/jcr_root/content/asd/public/license.txt", new ByteArrayInputStream("license".getBytes(StandardCharsets.UTF_8)));
+            assembler.addEntry("/jcr_root/content/asd/public/readme.txt", new ByteArrayInputStream("readme".getBytes(StandardCharsets.UTF_8)));
+
+            File contentPackage = assembler.createPackage();
+            try (ZipFile zipFile = new ZipFile(contentPackage)) {
+                Assert.assertEquals("license", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/public/license.txt")), StandardCharsets.UTF_8));
+                Assert.assertEquals("readme", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/public/readme.txt")), StandardCharsets.UTF_8));
+            }
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testStreamingStorageCopiesRawEntries() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        File source = FileUtils.toFile(getClass().getResource("../test-content-package.zip"));
+        String entryName = "jcr_root/etc/packages/asd/test-content.zip";
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(source);
+             ZipFile sourceZipFile = new ZipFile(source)) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setStreaming(true);
+
+            Archive archive = vaultPackage.getArchive();
+            assembler.addEntry('/' + entryName, archive, archive.getEntry(entryName));
+
+            File contentPackage = assembler.createPackage();
+            try (ZipFile zipFile = new ZipFile(contentPackage)) {
+                ZipEntry expected = sourceZipFile.getEntry(entryName);
+                ZipEntry actual = zipFile.getEntry(entryName);
+                // the compressed data has been copied as is
+                Assert.assertEquals(expected.getMethod(), actual.getMethod());
+                Assert.assertEquals(expected.getCrc(), actual.getCrc());
+                Assert.assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+                Assert.assertEquals(expected.getTime(), actual.getTime());
+                Assert.assertArrayEquals(IOUtils.toByteArray(sourceZipFile.getInputStream(expected)), IOUtils.toByteArray(zipFile.getInputStream(actual)));
+            }
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testStreamingStorageDoesNotCopyMovedEntries() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        File source = new File(testDirectory, "source.zip");
+        try (ZipOutputStream zipOutput = new ZipOutputStream(new FileOutputStream(source))) {
+            for (String entryName : new String[] { "jcr_root/apps/first/file.txt", "jcr_root/apps/second/file.txt" }) {
+                zipOutput.putNextEntry(new ZipEntry(entryName));
+                zipOutput.write(entryName.getBytes(StandardCharsets.UTF_8));
+                zipOutput.closeEntry();
+            }
+        }
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")));
+             Archive archive = new ZipArchive(source)) {
+            archive.open(false);
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setStreaming(true);
+
+            // the target path belongs to another entry of the source archive
+            assembler.addEntry("/jcr_root/apps/first/file.txt", archive, archive.getEntry("jcr_root/apps/second/file.txt"));
+
+            File contentPackage = assembler.createPackage();
+            try (ZipFile zipFile = new ZipFile(contentPackage)) {
+                Assert.assertEquals("jcr_root/apps/second/file.txt", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/apps/first/file.txt")), StandardCharsets.UTF_8));
+            }
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testParallelCompression() throws Exception {
+        List<String> sequential = assembleWithCompression(PackageCompression.DEFAULT);
+        List<String> parallel = assembleWithCompression(new PackageCompression(Deflater.BEST_SPEED, Arrays.asList("zip", ".PNG"), 4));
+        // same entries, in the same order, whatever the number of threads
+        Assert.assertEquals(sequential.stream().map(entry -> entry.substring(0, entry.lastIndexOf(':'))).collect(Collectors.toList()),
+                parallel.stream().map(entry -> entry.substring(0, entry.lastIndexOf(':'))).collect(Collectors.toList()));
+        // already compressed entries are stored
+        Assert.assertTrue(parallel.stream().anyMatch(entry -> entry.startsWith("jcr_root/content/asd/image.png:") && entry.endsWith(":" + ZipEntry.STORED)));
+        Assert.assertTrue(parallel.stream().anyMatch(entry -> entry.startsWith("jcr_root/content/asd/readme.txt:") && entry.endsWith(":" + ZipEntry.DEFLATED)));
+        Assert.assertTrue(sequential.stream().anyMatch(entry -> entry.startsWith("jcr_root/content/asd/image.png:") && entry.endsWith(":" + ZipEntry.DEFLATED)));
+    }
+
+    @Test
+    public void testParallelCompressionWritesTheSameBytes() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try {
+            List<File> files = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                File file = new File(testDirectory, i + ".txt");
+                FileUtils.writeStringToFile(file, "<jcr:root title=\"" + i + "\"/>", StandardCharsets.UTF_8);
+                files.add(file);
+            }
+            File image = new File(testDirectory, "image.png");
+            FileUtils.writeByteArrayToFile(image, new byte[1024]);
+            files.add(image);
+            for (File file : files) {
+                Assert.assertTrue(file.setLastModified(1_600_000_000_000L));
+            }
+
+            byte[] sequential = writeEntries(files, new PackageCompression(Deflater.BEST_SPEED, Collections.singleton("png"), 1), testDirectory);
+            byte[] parallel = writeEntries(files, new PackageCompression(Deflater.BEST_SPEED, Collections.singleton("png"), 4), testDirectory);
+            Assert.assertArrayEquals(sequential, parallel);
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    private static byte[] writeEntries(List<File> files, PackageCompression compression, File tmpDir) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (RawZipOutputStream zip = new RawZipOutputStream(output);
+             PackageEntriesWriter writer = new PackageEntriesWriter(zip, compression, tmpDir)) {
+            writer.addEmptyEntry("jcr_root/", 1_600_000_000_000L);
+            for (File file : files) {
+                writer.addFile("jcr_root/" + file.getName(), file);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private List<String> assembleWithCompression(PackageCompression compression) throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")))) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.setCompression(compression);
+
+            for (int i = 0; i < 20; i++) {
+                assembler.addEntry("/jcr_root/content/asd/" + i + "/.content.xml", new ByteArrayInputStream(("<jcr:root title=\"" + i + "\"/>").getBytes(StandardCharsets.UTF_8)));
+            }
+            assembler.addEntry("/jcr_root/content/asd/image.png", new ByteArrayInputStream(new byte[1024]));
+            assembler.addEntry("/jcr_root/content/asd/readme.txt", new ByteArrayInputStream("readme".getBytes(StandardCharsets.UTF_8)));
+
+            List<String> entries = new ArrayList<>();
+            try (ZipFile zipFile = new ZipFile(assembler.createPackage())) {
+                for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                    String content = IOUtils.toString(zipFile.getInputStream(entry), StandardCharsets.UTF_8);
+                    entries.add(entry.getName() + ':' + content.hashCode() + ':' + entry.getMethod());
+                }
+            }
+            return entries;
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
+
+    @Test
+    public void testPackagePropertiesReplacement() throws Exception {
+        File testDirectory = Files.createTempDirectory(getClass().getSimpleName()).toFile();
+        try (VaultPackage vaultPackage = new PackageManagerImpl().open(FileUtils.toFile(getClass().getResource("../test-content-package.zip")))) {
+            VaultPackageAssembler assembler = VaultPackageAssembler.create(testDirectory, vaultPackage, false, false);
+            assembler.addEntry("/jcr_root/content/asd/.content.xml", new ByteArrayInputStream("<jcr:root/>".getBytes(StandardCharsets.UTF_8)));
+            File contentPackage = assembler.createPackage();
+            byte[] firstBuild = Files.readAllBytes(contentPackage.toPath());
+            File xmlFilter = new File(assembler.getFileEntry("/").getParentFile(), "META-INF/vault/filter.xml");
+            Assert.assertTrue(xmlFilter.setLastModified(0));
+
+            // only the package properties get replaced, at the end of the same archive
+            assembler.addDependency(new Dependency(new PackageId("test", "dependency", "1.0.0")));
+            Assert.assertEquals(contentPackage, assembler.createPackage());
+            // and the filter is not built again
+            Assert.assertEquals(0, xmlFilter.lastModified());
+            byte[] secondBuild = Files.readAllBytes(contentPackage.toPath());
+            long propertiesOffset;
+            try (RawZipFile zipFile = new RawZipFile(contentPackage)) {
+                propertiesOffset = zipFile.getEntry("META-INF/vault/properties.xml").getLocalHeaderOffset();
+            }
+            Assert.assertArrayEquals(Arrays.copyOf(firstBuild, (int) propertiesOffset), Arrays.copyOf(secondBuild, (int) propertiesOffset));
+            try (VaultPackage result = new PackageManagerImpl().open(contentPackage)) {
+                Assert.assertTrue(result.getProperty(PackageProperties.NAME_DEPENDENCIES).contains("test:dependency:"));
+            }
+
+            // added entries require the whole archive to be created again
+            assembler.addEntry("/jcr_root/content/asd/public/license.txt", new ByteArrayInputStream("license".getBytes(StandardCharsets.UTF_8)));
+            try (ZipFile zipFile = new ZipFile(assembler.createPackage())) {
+                Assert.assertEquals("license", IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("jcr_root/content/asd/public/license.txt")), StandardCharsets.UTF_8));
+                Assert.assertNotNull(zipFile.getEntry("jcr_root/content/asd/.content.xml"));
+            }
+        } finally {
+            FileUtils.deleteDirectory(testDirectory);
+        }
+    }
 }